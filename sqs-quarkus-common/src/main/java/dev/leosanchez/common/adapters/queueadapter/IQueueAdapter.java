@@ -4,9 +4,11 @@ import dev.leosanchez.common.dto.QueueMessage;
 import dev.leosanchez.common.exceptions.MessagePollingException;
 import dev.leosanchez.common.exceptions.MessageRemovalException;
 import dev.leosanchez.common.exceptions.MessageSendingException;
+import dev.leosanchez.common.exceptions.MessageVisibilityException;
 import dev.leosanchez.common.exceptions.QueueCreationException;
 import dev.leosanchez.common.exceptions.QueueRemovalException;
 import dev.leosanchez.common.exceptions.QueueRetrievalException;
+import dev.leosanchez.common.exceptions.QueueTaggingException;
 
 import java.util.List;
 import java.util.Map;
@@ -15,9 +17,18 @@ import java.util.Optional;
 public interface IQueueAdapter {
     public void sendMessage(String targetQueueUrl, String message) throws MessageSendingException;
     public void sendMessageWithAttributes(String targetQueueUrl, String message, Map<String, String> attributes) throws MessageSendingException;
+    public List<Integer> sendMessageBatch(String targetQueueUrl, List<String> messages) throws MessageSendingException;
+    public List<Integer> sendMessageBatchWithAttributes(String targetQueueUrl, List<String> messages, List<Map<String, String>> attributes) throws MessageSendingException;
     public List<QueueMessage> receiveMessages(String queueUrl, Integer maxNumberOfMessages) throws MessagePollingException;
+    public List<QueueMessage> receiveMessages(String queueUrl, Integer maxNumberOfMessages, Integer waitTimeSeconds) throws MessagePollingException;
     public void deleteMessage(String queueUrl, String receiptHandle) throws MessageRemovalException;
+    public void changeMessageVisibility(String queueUrl, String receiptHandle, Integer visibilityTimeoutSeconds) throws MessageVisibilityException;
     public String createQueue(String queueName) throws QueueCreationException;
     public void deleteQueue(String queueUrl) throws QueueRemovalException;
     public Optional<String> getQueueUrl(String queueName) throws QueueRetrievalException;
+    public List<String> listQueues(String queueNamePrefix) throws QueueRetrievalException;
+    public Map<String, String> getQueueTags(String queueUrl) throws QueueRetrievalException;
+    public Long getApproximateNumberOfMessages(String queueUrl) throws QueueRetrievalException;
+    public void tagQueue(String queueUrl, Map<String, String> tags) throws QueueTaggingException;
+    public void purgeQueue(String queueUrl) throws MessageRemovalException;
 }
\ No newline at end of file
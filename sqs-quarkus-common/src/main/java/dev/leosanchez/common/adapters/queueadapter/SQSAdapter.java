@@ -2,34 +2,49 @@ package dev.leosanchez.common.adapters.queueadapter;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
 import dev.leosanchez.common.dto.QueueMessage;
 import dev.leosanchez.common.exceptions.MessagePollingException;
 import dev.leosanchez.common.exceptions.MessageRemovalException;
 import dev.leosanchez.common.exceptions.MessageSendingException;
+import dev.leosanchez.common.exceptions.MessageVisibilityException;
 import dev.leosanchez.common.exceptions.QueueCreationException;
 import dev.leosanchez.common.exceptions.QueueRemovalException;
 import dev.leosanchez.common.exceptions.QueueRetrievalException;
+import dev.leosanchez.common.exceptions.QueueTaggingException;
 import io.quarkus.arc.lookup.LookupIfProperty;
 import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityRequest;
 import software.amazon.awssdk.services.sqs.model.CreateQueueRequest;
 import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
 import software.amazon.awssdk.services.sqs.model.DeleteQueueRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
 import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
 import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.ListQueueTagsRequest;
+import software.amazon.awssdk.services.sqs.model.ListQueuesRequest;
 import software.amazon.awssdk.services.sqs.model.Message;
 import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+import software.amazon.awssdk.services.sqs.model.PurgeQueueRequest;
 import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
 import software.amazon.awssdk.services.sqs.model.QueueDoesNotExistException;
 import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
 import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.TagQueueRequest;
 
 @ApplicationScoped
 @LookupIfProperty(name = "queue.provider", stringValue = "sqs")
@@ -38,10 +53,20 @@ public class SQSAdapter implements IQueueAdapter {
     // just a logger
     private static final Logger LOG = Logger.getLogger(SQSAdapter.class);
 
+    // the maximum number of entries sqs accepts in a batch request
+    private static final int MAX_BATCH_SIZE = 10;
+
+    // the maximum size sqs accepts for a batch request, adding up the bodies and attributes of its entries
+    private static final int MAX_BATCH_BYTES = 256 * 1024;
+
     // the sdk client
     @Inject
     SqsClient sqs;
 
+    // how long a receive waits for messages if the queue is empty (long polling, up to 20 seconds)
+    @ConfigProperty(name = "queue.receive.wait-time-seconds", defaultValue = "0")
+    Integer receiveWaitTimeSeconds;
+
     @Override
     public void sendMessage(String targetQueueUrl, String message) throws MessageSendingException {
         sendMessageWithAttributes(targetQueueUrl, message, new HashMap<>());
@@ -73,6 +98,119 @@ public class SQSAdapter implements IQueueAdapter {
         }
     }
     
+    @Override
+    public List<Integer> sendMessageBatch(String targetQueueUrl, List<String> messages) throws MessageSendingException {
+        List<Map<String, String>> attributes = new ArrayList<>();
+        messages.forEach(message -> attributes.add(new HashMap<>()));
+        return sendMessageBatchWithAttributes(targetQueueUrl, messages, attributes);
+    }
+
+    @Override
+    public List<Integer> sendMessageBatchWithAttributes(String targetQueueUrl, List<String> messages, List<Map<String, String>> attributes) throws MessageSendingException {
+        LOG.info("SQS - Sending batch of " + messages.size() + " messages");
+        // the indexes of the messages that sqs could not accept
+        List<Integer> failedIndexes = new ArrayList<>();
+        // sqs accepts at most 10 entries and 256 KiB per batch request, so the messages are split by both
+        List<Integer> requestIndexes = new ArrayList<>();
+        int requestBytes = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            int messageBytes = sizeOf(messages.get(i), attributes.get(i));
+            if (messageBytes > MAX_BATCH_BYTES) {
+                // it would make the whole request fail, and it cannot be sent on its own either
+                LOG.error("SQS - Message of batch exceeds the maximum size: " + messageBytes + " bytes");
+                failedIndexes.add(i);
+                continue;
+            }
+            if (requestIndexes.size() == MAX_BATCH_SIZE || requestBytes + messageBytes > MAX_BATCH_BYTES) {
+                failedIndexes.addAll(sendBatchRequest(targetQueueUrl, messages, attributes, requestIndexes));
+                requestIndexes = new ArrayList<>();
+                requestBytes = 0;
+            }
+            requestIndexes.add(i);
+            requestBytes += messageBytes;
+        }
+        if (!requestIndexes.isEmpty()) {
+            failedIndexes.addAll(sendBatchRequest(targetQueueUrl, messages, attributes, requestIndexes));
+        }
+        return failedIndexes;
+    }
+
+    // returns the indexes of the entries that failed, all of them if the request itself failed
+    private List<Integer> sendBatchRequest(String targetQueueUrl, List<String> messages, List<Map<String, String>> attributes, List<Integer> indexes) {
+        List<Integer> failedIndexes = new ArrayList<>();
+        try {
+            List<SendMessageBatchRequestEntry> entries = new ArrayList<>();
+            for (Integer i : indexes) {
+                Map<String, MessageAttributeValue> messageAttributes = new HashMap<>();
+                attributes.get(i).forEach((key, value) -> {
+                    messageAttributes.put(key, MessageAttributeValue.builder().dataType("String").stringValue(value).build());
+                });
+                // the entry id is the index of the message, so we can report which ones failed
+                entries.add(SendMessageBatchRequestEntry.builder()
+                        .id(String.valueOf(i))
+                        .messageBody(messages.get(i))
+                        .messageAttributes(messageAttributes)
+                        .build());
+            }
+            SendMessageBatchResponse response = sqs.sendMessageBatch(SendMessageBatchRequest.builder()
+                    .queueUrl(targetQueueUrl)
+                    .entries(entries)
+                    .build());
+            response.failed().forEach(failure -> {
+                LOG.error("SQS - Error sending message of batch: " + failure.message());
+                failedIndexes.add(Integer.valueOf(failure.id()));
+            });
+        } catch (Exception e) {
+            // the requests already sent are not reported as failed, only the entries of this one
+            LOG.error("SQS - Error sending batch of messages", e);
+            failedIndexes.addAll(indexes);
+        }
+        return failedIndexes;
+    }
+
+    // the size sqs counts for a message: its body plus the name, type and value of each attribute
+    private int sizeOf(String message, Map<String, String> attributes) {
+        int bytes = message.getBytes(StandardCharsets.UTF_8).length;
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            bytes += attribute.getKey().getBytes(StandardCharsets.UTF_8).length + "String".length()
+                    + attribute.getValue().getBytes(StandardCharsets.UTF_8).length;
+        }
+        return bytes;
+    }
+
+    @Override
+    public List<QueueMessage> receiveMessages(String queueUrl, Integer maxNumberOfMessages) throws MessagePollingException {
+        return receiveMessages(queueUrl, maxNumberOfMessages, receiveWaitTimeSeconds);
+    }
+
+    @Override
+    public List<QueueMessage> receiveMessages(String queueUrl, Integer maxNumberOfMessages, Integer waitTimeSeconds) throws MessagePollingException {
+        try {
+            LOG.info("SQS - Receiving messages from queue: " + queueUrl);
+            ReceiveMessageRequest request = ReceiveMessageRequest.builder()
+                    .queueUrl(queueUrl)
+                    .maxNumberOfMessages(maxNumberOfMessages)
+                    .waitTimeSeconds(waitTimeSeconds)
+                    .attributeNamesWithStrings(QueueAttributeName.ALL.toString())
+                    .messageAttributeNames("All")
+                    .build();
+            List<QueueMessage> queueMessages = new ArrayList<>();
+            for (Message message : sqs.receiveMessage(request).messages()) {
+                // we only expose the string value of the message attributes
+                Map<String, String> attributes = new HashMap<>();
+                message.messageAttributes().forEach((key, value) -> attributes.put(key, value.stringValue()));
+                // the system attributes were requested with the message, the sending time tells how long it waited in the queue
+                String sentTimestamp = message.attributes().get(MessageSystemAttributeName.SENT_TIMESTAMP);
+                queueMessages.add(new QueueMessage(message.body(), message.receiptHandle(), attributes,
+                        Objects.nonNull(sentTimestamp) ? Long.valueOf(sentTimestamp) : null));
+            }
+            return queueMessages;
+        } catch (Exception e) {
+            LOG.error("SQS - Error receiving messages from queue: " + queueUrl, e);
+            throw new MessagePollingException(e.getMessage());
+        }
+    }
+
     @Override
     public void deleteMessage(String queueUrl, String receiptHandle) throws MessageRemovalException {
         try {
@@ -84,6 +222,18 @@ public class SQSAdapter implements IQueueAdapter {
         }
     }
 
+    @Override
+    public void changeMessageVisibility(String queueUrl, String receiptHandle, Integer visibilityTimeoutSeconds) throws MessageVisibilityException {
+        try {
+            LOG.info("SQS - Changing visibility of message with receipt handle: " + receiptHandle + " to " + visibilityTimeoutSeconds + " seconds");
+            sqs.changeMessageVisibility(ChangeMessageVisibilityRequest.builder().queueUrl(queueUrl).receiptHandle(receiptHandle)
+                    .visibilityTimeout(visibilityTimeoutSeconds).build());
+        } catch (Exception e) {
+            LOG.error("SQS - Error changing visibility of message with receipt handle: " + receiptHandle, e);
+            throw new MessageVisibilityException(e.getMessage());
+        }
+    }
+
     @Override
     public String createQueue(String queueName) throws QueueCreationException {
         try {
@@ -125,4 +275,67 @@ public class SQSAdapter implements IQueueAdapter {
             throw new QueueRetrievalException(e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<String> listQueues(String queueNamePrefix) throws QueueRetrievalException {
+        try {
+            LOG.info("SQS - Listing queues with prefix: " + queueNamePrefix);
+            ListQueuesRequest request = ListQueuesRequest.builder().queueNamePrefix(queueNamePrefix).build();
+            // the paginator takes care of the queues beyond the first page
+            List<String> queueUrls = new ArrayList<>();
+            sqs.listQueuesPaginator(request).queueUrls().forEach(queueUrls::add);
+            return queueUrls;
+        } catch (Exception e) {
+            LOG.error("SQS - Error listing queues with prefix: " + queueNamePrefix, e);
+            throw new QueueRetrievalException(e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, String> getQueueTags(String queueUrl) throws QueueRetrievalException {
+        try {
+            ListQueueTagsRequest request = ListQueueTagsRequest.builder().queueUrl(queueUrl).build();
+            return new HashMap<>(sqs.listQueueTags(request).tags());
+        } catch (Exception e) {
+            LOG.error("SQS - Error retrieving tags of queue: " + queueUrl, e);
+            throw new QueueRetrievalException(e.getMessage());
+        }
+    }
+
+    @Override
+    public Long getApproximateNumberOfMessages(String queueUrl) throws QueueRetrievalException {
+        try {
+            GetQueueAttributesRequest request = GetQueueAttributesRequest.builder()
+                    .queueUrl(queueUrl)
+                    .attributeNames(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES)
+                    .build();
+            // the messages available for retrieval, not counting the ones in flight or delayed
+            return Long.valueOf(sqs.getQueueAttributes(request).attributes().get(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES));
+        } catch (Exception e) {
+            LOG.error("SQS - Error retrieving the number of messages of queue: " + queueUrl, e);
+            throw new QueueRetrievalException(e.getMessage());
+        }
+    }
+
+    @Override
+    public void tagQueue(String queueUrl, Map<String, String> tags) throws QueueTaggingException {
+        try {
+            LOG.info("SQS - Tagging queue: " + queueUrl);
+            sqs.tagQueue(TagQueueRequest.builder().queueUrl(queueUrl).tags(tags).build());
+        } catch (Exception e) {
+            LOG.error("SQS - Error tagging queue: " + queueUrl, e);
+            throw new QueueTaggingException(e.getMessage());
+        }
+    }
+
+    @Override
+    public void purgeQueue(String queueUrl) throws MessageRemovalException {
+        try {
+            LOG.info("SQS - Purging queue: " + queueUrl);
+            sqs.purgeQueue(PurgeQueueRequest.builder().queueUrl(queueUrl).build());
+        } catch (Exception e) {
+            LOG.error("SQS - Error purging queue: " + queueUrl, e);
+            throw new MessageRemovalException(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package dev.leosanchez.common.codecs;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import dev.leosanchez.common.exceptions.MessageDecodingException;
+
+// binds message bodies to a type, parsing them straight into the object without building a json tree
+// the reader and writer are built once per type and reused, and jackson recycles its parsing buffers per thread
+public class JsonCodec<T> {
+
+    // shared by every codec, so the serializers of each type are only introspected once
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            // a newer sender may add fields we do not know yet
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    private final Class<T> type;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+
+    private JsonCodec(Class<T> type) {
+        this.type = type;
+        this.reader = MAPPER.readerFor(type);
+        this.writer = MAPPER.writerFor(type);
+    }
+
+    public static <T> JsonCodec<T> of(Class<T> type) {
+        return new JsonCodec<>(type);
+    }
+
+    public T decode(String body) throws MessageDecodingException {
+        try {
+            return reader.readValue(body);
+        } catch (JsonProcessingException e) {
+            throw new MessageDecodingException("Invalid " + type.getSimpleName() + " received: " + e.getOriginalMessage());
+        }
+    }
+
+    public String encode(T value) {
+        try {
+            return writer.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            // the codecs are meant for plain data classes, so this is a bug and not a bad message
+            throw new IllegalStateException("Unable to encode " + type.getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package dev.leosanchez.common.dto;
+
+import java.util.List;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+// the body of a query, for a single city or for many of them at once
+// a search takes the city as a text, and is answered with up to limit names starting like it or written like it
+@RegisterForReflection
+public class CoordinatesQuery {
+    private String city;
+    private List<String> cities;
+    private Boolean search;
+    private Integer limit;
+
+    public CoordinatesQuery() {
+    }
+
+    public CoordinatesQuery(String city) {
+        this.city = city;
+    }
+
+    public CoordinatesQuery(List<String> cities) {
+        this.cities = cities;
+    }
+
+    public CoordinatesQuery(String city, Boolean search, Integer limit) {
+        this.city = city;
+        this.search = search;
+        this.limit = limit;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+    }
+
+    public List<String> getCities() {
+        return cities;
+    }
+
+    public void setCities(List<String> cities) {
+        this.cities = cities;
+    }
+
+    public Boolean getSearch() {
+        return search;
+    }
+
+    public void setSearch(Boolean search) {
+        this.search = search;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+}
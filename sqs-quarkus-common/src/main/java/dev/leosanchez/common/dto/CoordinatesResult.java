@@ -0,0 +1,95 @@
+package dev.leosanchez.common.dto;
+
+import java.util.List;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+// the answer to a query: the coordinates of a city, or the results of many cities, with its status
+// the results of a nearest query also carry their distance to the point, in kilometers
+// the results of a search carry how they matched the text: exact, prefix or fuzzy, the best ones first
+// the fields not set are not sent
+@RegisterForReflection
+public class CoordinatesResult {
+    private String name;
+    private Double lat;
+    private Double lon;
+    private Double distance;
+    private String match;
+    private String status;
+    private List<CoordinatesResult> results;
+
+    public CoordinatesResult() {
+    }
+
+    public CoordinatesResult(String status) {
+        this.status = status;
+    }
+
+    public CoordinatesResult(String name, Double lat, Double lon, String status) {
+        this.name = name;
+        this.lat = lat;
+        this.lon = lon;
+        this.status = status;
+    }
+
+    public CoordinatesResult(List<CoordinatesResult> results, String status) {
+        this.results = results;
+        this.status = status;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Double getLat() {
+        return lat;
+    }
+
+    public void setLat(Double lat) {
+        this.lat = lat;
+    }
+
+    public Double getLon() {
+        return lon;
+    }
+
+    public void setLon(Double lon) {
+        this.lon = lon;
+    }
+
+    public Double getDistance() {
+        return distance;
+    }
+
+    public void setDistance(Double distance) {
+        this.distance = distance;
+    }
+
+    public String getMatch() {
+        return match;
+    }
+
+    public void setMatch(String match) {
+        this.match = match;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public List<CoordinatesResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<CoordinatesResult> results) {
+        this.results = results;
+    }
+}
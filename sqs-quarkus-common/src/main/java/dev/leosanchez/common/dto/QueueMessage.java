@@ -2,6 +2,7 @@ package dev.leosanchez.common.dto;
 
 import io.quarkus.runtime.annotations.RegisterForReflection;
 import java.util.Map;
+import java.util.Optional;
 
 @RegisterForReflection
 
@@ -9,10 +10,16 @@ public class QueueMessage {
     private String message;
     private Map<String, String> attributes;
     private String receiptHandle;
+    // when the queue received the message (epoch millis), null if the provider does not tell
+    private Long sentTimestamp;
     public QueueMessage(String message, String receiptHandle, Map<String, String> attributes) {
+        this(message, receiptHandle, attributes, null);
+    }
+    public QueueMessage(String message, String receiptHandle, Map<String, String> attributes, Long sentTimestamp) {
         this.message = message;
         this.attributes = attributes;
         this.receiptHandle = receiptHandle;
+        this.sentTimestamp = sentTimestamp;
     }
     public String getMessage() {
         return message;
@@ -23,4 +30,7 @@ public class QueueMessage {
     public String getReceiptHandle() {
         return receiptHandle;
     }
+    public Optional<Long> getSentTimestamp() {
+        return Optional.ofNullable(sentTimestamp);
+    }
 }
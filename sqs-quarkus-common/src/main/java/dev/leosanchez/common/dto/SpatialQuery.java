@@ -0,0 +1,98 @@
+package dev.leosanchez.common.dto;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+// the body of a spatial query: the k places nearest to a point, or the places within a bounding box
+// a box whose west longitude is greater than its east one crosses the antimeridian
+@RegisterForReflection
+public class SpatialQuery {
+    private Double lat;
+    private Double lon;
+    private Integer k;
+    private Double minLat;
+    private Double minLon;
+    private Double maxLat;
+    private Double maxLon;
+    private Integer limit;
+
+    public SpatialQuery() {
+    }
+
+    public SpatialQuery(Double lat, Double lon, Integer k) {
+        this.lat = lat;
+        this.lon = lon;
+        this.k = k;
+    }
+
+    public SpatialQuery(Double minLat, Double minLon, Double maxLat, Double maxLon, Integer limit) {
+        this.minLat = minLat;
+        this.minLon = minLon;
+        this.maxLat = maxLat;
+        this.maxLon = maxLon;
+        this.limit = limit;
+    }
+
+    public Double getLat() {
+        return lat;
+    }
+
+    public void setLat(Double lat) {
+        this.lat = lat;
+    }
+
+    public Double getLon() {
+        return lon;
+    }
+
+    public void setLon(Double lon) {
+        this.lon = lon;
+    }
+
+    public Integer getK() {
+        return k;
+    }
+
+    public void setK(Integer k) {
+        this.k = k;
+    }
+
+    public Double getMinLat() {
+        return minLat;
+    }
+
+    public void setMinLat(Double minLat) {
+        this.minLat = minLat;
+    }
+
+    public Double getMinLon() {
+        return minLon;
+    }
+
+    public void setMinLon(Double minLon) {
+        this.minLon = minLon;
+    }
+
+    public Double getMaxLat() {
+        return maxLat;
+    }
+
+    public void setMaxLat(Double maxLat) {
+        this.maxLat = maxLat;
+    }
+
+    public Double getMaxLon() {
+        return maxLon;
+    }
+
+    public void setMaxLon(Double maxLon) {
+        this.maxLon = maxLon;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+}
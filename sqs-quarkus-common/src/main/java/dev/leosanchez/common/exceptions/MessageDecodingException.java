@@ -0,0 +1,10 @@
+package dev.leosanchez.common.exceptions;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+@RegisterForReflection
+public class MessageDecodingException extends Exception {
+    public MessageDecodingException(String message) {
+        super(message);
+    }
+}
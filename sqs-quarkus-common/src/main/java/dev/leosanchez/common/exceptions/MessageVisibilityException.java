@@ -0,0 +1,10 @@
+package dev.leosanchez.common.exceptions;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+@RegisterForReflection
+public class MessageVisibilityException extends Exception {
+    public MessageVisibilityException(String message) {
+        super(message);
+    }
+}
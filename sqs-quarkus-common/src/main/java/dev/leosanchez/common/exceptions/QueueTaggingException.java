@@ -0,0 +1,10 @@
+package dev.leosanchez.common.exceptions;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+@RegisterForReflection
+public class QueueTaggingException extends Exception {
+    public QueueTaggingException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+package dev.leosanchez.common.streams;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.logging.Logger;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import dev.leosanchez.common.adapters.queueadapter.IQueueAdapter;
+import dev.leosanchez.common.dto.QueueMessage;
+import dev.leosanchez.common.exceptions.MessagePollingException;
+import dev.leosanchez.common.exceptions.MessageVisibilityException;
+
+// publishes the messages of a queue, receiving only what the subscriber requested and never more than a receive returns
+// the messages are not deleted, the subscriber acknowledges each of them or they come back after the visibility timeout
+public class QueuePublisher implements Publisher<QueueMessage> {
+
+    // just a logger
+    private static final Logger LOG = Logger.getLogger(QueuePublisher.class);
+
+    // the maximum number of messages sqs returns in a receive
+    private static final int MAX_RECEIVE_SIZE = 10;
+
+    private final IQueueAdapter queueAdapter;
+    private final String queueUrl;
+    private final int waitTimeSeconds;
+    // runs the receives, which block up to the wait time
+    private final Executor executor;
+
+    public QueuePublisher(IQueueAdapter queueAdapter, String queueUrl, int waitTimeSeconds, Executor executor) {
+        this.queueAdapter = queueAdapter;
+        this.queueUrl = queueUrl;
+        this.waitTimeSeconds = waitTimeSeconds;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super QueueMessage> subscriber) {
+        Objects.requireNonNull(subscriber);
+        // each subscriber receives its own messages
+        subscriber.onSubscribe(new QueueSubscription(subscriber));
+    }
+
+    private class QueueSubscription implements Subscription {
+        private final Subscriber<? super QueueMessage> subscriber;
+        // the messages requested and not delivered yet
+        private final AtomicLong demand = new AtomicLong();
+        // if a receive loop is running, so the subscriber is never called from two threads
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private volatile boolean cancelled = false;
+        // a request that broke the rules, signalled by the receive loop so the subscriber is never called concurrently
+        private volatile Throwable invalidRequest;
+
+        private QueueSubscription(Subscriber<? super QueueMessage> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                if (Objects.isNull(invalidRequest)) {
+                    invalidRequest = new IllegalArgumentException("The number of requested messages must be positive");
+                }
+            } else {
+                // an unbounded request stays unbounded
+                demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            if (draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void drain() {
+            while (true) {
+                while (!cancelled && demand.get() > 0 && Objects.isNull(invalidRequest)) {
+                    // we never receive more messages than requested, so nothing is buffered
+                    int batch = (int) Math.min(demand.get(), MAX_RECEIVE_SIZE);
+                    List<QueueMessage> messages;
+                    try {
+                        messages = queueAdapter.receiveMessages(queueUrl, batch, waitTimeSeconds);
+                    } catch (MessagePollingException | RuntimeException e) {
+                        cancelled = true;
+                        subscriber.onError(e);
+                        return;
+                    }
+                    for (QueueMessage message : messages) {
+                        if (cancelled) {
+                            release(message);
+                            continue;
+                        }
+                        demand.decrementAndGet();
+                        subscriber.onNext(message);
+                    }
+                }
+                if (!cancelled && Objects.nonNull(invalidRequest)) {
+                    cancelled = true;
+                    subscriber.onError(invalidRequest);
+                    return;
+                }
+                draining.set(false);
+                // a request received while we were leaving the loop could not start another one
+                if (cancelled || (demand.get() == 0 && Objects.isNull(invalidRequest)) || !draining.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+
+        // a message received after the cancellation is made visible again, so another consumer gets it right away
+        private void release(QueueMessage message) {
+            try {
+                queueAdapter.changeMessageVisibility(queueUrl, message.getReceiptHandle(), 0);
+            } catch (MessageVisibilityException e) {
+                LOG.warn("Message not released, it will be visible again after its visibility timeout");
+            }
+        }
+    }
+}
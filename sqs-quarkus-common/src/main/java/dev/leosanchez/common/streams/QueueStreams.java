@@ -0,0 +1,84 @@
+package dev.leosanchez.common.streams;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import dev.leosanchez.common.adapters.queueadapter.IQueueAdapter;
+import dev.leosanchez.common.dto.QueueMessage;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+
+// consumes queues as streams, an alternative to the listeners for reactive pipelines that pull messages at their own pace
+// the messages are acknowledged explicitly: ack deletes them, nack makes them visible again for a new delivery
+@ApplicationScoped
+public class QueueStreams {
+
+    @Inject
+    IQueueAdapter queueAdapter;
+
+    // how long a receive waits for messages, so an idle stream does not poll continuously (1 to 20 seconds)
+    @ConfigProperty(name = "queue.stream.wait-time-seconds", defaultValue = "20")
+    Integer waitTimeSeconds;
+
+    // the receives and acknowledgements block, so they never run on the threads of the pipelines
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "queue-stream-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Multi<QueueMessage> consume(String queueUrl) {
+        if (waitTimeSeconds < 1 || waitTimeSeconds > 20) {
+            throw new IllegalStateException("queue.stream.wait-time-seconds must be between 1 and 20");
+        }
+        return Multi.createFrom().publisher(new QueuePublisher(queueAdapter, queueUrl, waitTimeSeconds, executor));
+    }
+
+    // the message is processed, so it is deleted
+    public Uni<Void> ack(String queueUrl, QueueMessage message) {
+        return Uni.createFrom().<Void>item(() -> {
+            try {
+                queueAdapter.deleteMessage(queueUrl, message.getReceiptHandle());
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            return null;
+        }).runSubscriptionOn(executor);
+    }
+
+    // the message could not be processed, so it is delivered again right away
+    public Uni<Void> nack(String queueUrl, QueueMessage message) {
+        return nack(queueUrl, message, 0);
+    }
+
+    // the message is delivered again after the delay, until the queue moves it to its dead letter queue if it has one
+    public Uni<Void> nack(String queueUrl, QueueMessage message, int redeliveryDelaySeconds) {
+        return Uni.createFrom().<Void>item(() -> {
+            try {
+                queueAdapter.changeMessageVisibility(queueUrl, message.getReceiptHandle(), redeliveryDelaySeconds);
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            return null;
+        }).runSubscriptionOn(executor);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+}
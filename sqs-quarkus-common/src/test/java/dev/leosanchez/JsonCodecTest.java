@@ -0,0 +1,44 @@
+package dev.leosanchez;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.leosanchez.common.codecs.JsonCodec;
+import dev.leosanchez.common.dto.CoordinatesQuery;
+import dev.leosanchez.common.dto.CoordinatesResult;
+import dev.leosanchez.common.exceptions.MessageDecodingException;
+
+public class JsonCodecTest {
+
+    @Test
+    public void testRoundTrip() throws MessageDecodingException {
+        JsonCodec<CoordinatesResult> codec = JsonCodec.of(CoordinatesResult.class);
+        CoordinatesResult result = new CoordinatesResult(List.of(new CoordinatesResult("Santiago", -34.397, 150.644, "OK")), "OK");
+        CoordinatesResult decoded = codec.decode(codec.encode(result));
+        Assertions.assertEquals("OK", decoded.getStatus());
+        Assertions.assertEquals("Santiago", decoded.getResults().get(0).getName());
+        Assertions.assertEquals(150.644, decoded.getResults().get(0).getLon());
+    }
+
+    @Test
+    public void testMissingFieldsAreNotEncoded() {
+        // the consumers tell a single query from a bulk one by the fields present
+        String encoded = JsonCodec.of(CoordinatesQuery.class).encode(new CoordinatesQuery("Santiago"));
+        Assertions.assertEquals("{\"city\":\"Santiago\"}", encoded);
+    }
+
+    @Test
+    public void testUnknownFieldsAreIgnored() throws MessageDecodingException {
+        CoordinatesQuery query = JsonCodec.of(CoordinatesQuery.class).decode("{\"city\":\"Santiago\",\"language\":\"es\"}");
+        Assertions.assertEquals("Santiago", query.getCity());
+    }
+
+    @Test
+    public void testInvalidMessage() {
+        JsonCodec<CoordinatesQuery> codec = JsonCodec.of(CoordinatesQuery.class);
+        Assertions.assertThrows(MessageDecodingException.class, () -> codec.decode("{\"city\":"));
+        Assertions.assertThrows(MessageDecodingException.class, () -> codec.decode("{\"cities\":{}}"));
+    }
+}
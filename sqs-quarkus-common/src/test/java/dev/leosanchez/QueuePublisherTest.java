@@ -0,0 +1,120 @@
+package dev.leosanchez;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import dev.leosanchez.common.adapters.queueadapter.IQueueAdapter;
+import dev.leosanchez.common.dto.QueueMessage;
+import dev.leosanchez.common.exceptions.MessagePollingException;
+import dev.leosanchez.common.streams.QueuePublisher;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+
+public class QueuePublisherTest {
+
+    IQueueAdapter queueAdapter;
+    ExecutorService executor;
+
+    @BeforeEach
+    public void beforeEach() throws MessagePollingException {
+        queueAdapter = Mockito.mock(IQueueAdapter.class);
+        executor = Executors.newCachedThreadPool();
+        // the queue always has as many messages as asked for
+        Mockito.when(queueAdapter.receiveMessages(Mockito.anyString(), Mockito.anyInt(), Mockito.anyInt())).thenAnswer(invocation -> {
+            int count = invocation.getArgument(1);
+            return IntStream.range(0, count)
+                .mapToObj(i -> new QueueMessage("Hola", "RH_" + i, Map.of()))
+                .collect(Collectors.toList());
+        });
+    }
+
+    @AfterEach
+    public void afterEach() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testReceivesOnlyWhatIsRequested() throws MessagePollingException {
+        AssertSubscriber<QueueMessage> subscriber = Multi.createFrom()
+            .publisher(new QueuePublisher(queueAdapter, "StreamQueue", 20, executor))
+            .subscribe().withSubscriber(AssertSubscriber.create(0));
+
+        // nothing is received until the subscriber asks for it
+        Mockito.verify(queueAdapter, Mockito.after(100).never()).receiveMessages(Mockito.anyString(), Mockito.anyInt(), Mockito.anyInt());
+
+        subscriber.request(3);
+        subscriber.awaitItems(3);
+        Mockito.verify(queueAdapter, Mockito.times(1)).receiveMessages("StreamQueue", 3, 20);
+
+        // large requests are split in receives of the maximum size
+        subscriber.request(12);
+        subscriber.awaitItems(15);
+        Mockito.verify(queueAdapter, Mockito.times(1)).receiveMessages("StreamQueue", 10, 20);
+        Mockito.verify(queueAdapter, Mockito.times(1)).receiveMessages("StreamQueue", 2, 20);
+        // the messages are left in the queue until acknowledged
+        Mockito.verifyNoMoreInteractions(queueAdapter);
+        subscriber.cancel();
+    }
+
+    @Test
+    public void testPollingFailureEndsTheStream() throws MessagePollingException {
+        Mockito.when(queueAdapter.receiveMessages(Mockito.eq("BrokenQueue"), Mockito.anyInt(), Mockito.anyInt()))
+            .thenThrow(new MessagePollingException("Queue not found"));
+
+        AssertSubscriber<QueueMessage> subscriber = Multi.createFrom()
+            .publisher(new QueuePublisher(queueAdapter, "BrokenQueue", 20, executor))
+            .subscribe().withSubscriber(AssertSubscriber.create(1));
+
+        subscriber.awaitFailure();
+        Assertions.assertTrue(subscriber.getFailure() instanceof MessagePollingException);
+        Assertions.assertEquals(List.of(), subscriber.getItems());
+    }
+
+    @Test
+    public void testInvalidRequestSignalledFromTheReceiveLoop() throws Exception {
+        CompletableFuture<Subscription> subscription = new CompletableFuture<>();
+        CompletableFuture<Thread> errorThread = new CompletableFuture<>();
+        CompletableFuture<Throwable> error = new CompletableFuture<>();
+        new QueuePublisher(queueAdapter, "StreamQueue", 20, executor).subscribe(new Subscriber<QueueMessage>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription.complete(s);
+            }
+
+            @Override
+            public void onNext(QueueMessage message) {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                errorThread.complete(Thread.currentThread());
+                error.complete(t);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        subscription.get(1, TimeUnit.SECONDS).request(0);
+
+        // the error is not signalled from the thread that made the request (rule 1.3)
+        Assertions.assertNotEquals(Thread.currentThread(), errorThread.get(1, TimeUnit.SECONDS));
+        Assertions.assertTrue(error.get() instanceof IllegalArgumentException);
+        Mockito.verify(queueAdapter, Mockito.never()).receiveMessages(Mockito.anyString(), Mockito.anyInt(), Mockito.anyInt());
+    }
+}
@@ -75,6 +75,30 @@ public class SQSAdapterIT {
 
         }
 
+        @Test
+        public void testListAndTagQueues() {
+                try {
+                        String queueUrl = adapter.createQueue("testTagged_1");
+                        adapter.createQueue("testTagged_2");
+                        adapter.tagQueue(queueUrl, Map.of("LeaseOwner", "test"));
+                        Assertions.assertEquals(2, adapter.listQueues("testTagged_").size());
+                        Assertions.assertEquals("test", adapter.getQueueTags(queueUrl).get("LeaseOwner"));
+                } catch (Exception e) {
+                        Assertions.fail(e.getMessage());
+                }
+        }
+
+        @Test
+        public void testApproximateNumberOfMessages() {
+                try {
+                        String queueUrl = adapter.createQueue("testBacklog");
+                        adapter.sendMessageBatch(queueUrl, List.of("one", "two", "three"));
+                        Assertions.assertEquals(3L, adapter.getApproximateNumberOfMessages(queueUrl));
+                } catch (Exception e) {
+                        Assertions.fail(e.getMessage());
+                }
+        }
+
         @Test
         public void testDeleteQueue() {
                 try {
@@ -104,6 +128,41 @@ public class SQSAdapterIT {
                 }
         }
 
+        @Test
+        public void testSendMessageBatch() {
+                try {
+                        adapter.createQueue("testSendMessageBatch");
+                        Optional<String> queueUrl = adapter.getQueueUrl("testSendMessageBatch");
+                        List<Integer> failed = adapter.sendMessageBatchWithAttributes(queueUrl.get(), List.of("first", "second"),
+                                        List.of(Map.of("key", "first"), Map.of("key", "second")));
+                        Assertions.assertTrue(failed.isEmpty());
+                        List<QueueMessage> messages = adapter.receiveMessages(queueUrl.get(), 10);
+                        Assertions.assertEquals(2, messages.size());
+                        messages.forEach(message -> Assertions.assertEquals(message.getMessage(), message.getAttributes().get("key")));
+                } catch (Exception e) {
+                        Assertions.fail(e.getMessage());
+                }
+        }
+
+        @Test
+        public void testSendMessageBatchOverMaximumSize() {
+                try {
+                        adapter.createQueue("testSendMessageBatchOverMaximumSize");
+                        Optional<String> queueUrl = adapter.getQueueUrl("testSendMessageBatchOverMaximumSize");
+                        // together they exceed the 256 KiB of a batch request, so they are sent in more than one
+                        String large = "x".repeat(100 * 1024);
+                        List<Integer> failed = adapter.sendMessageBatchWithAttributes(queueUrl.get(), List.of(large, large, large),
+                                        List.of(Map.of(), Map.of(), Map.of()));
+                        Assertions.assertTrue(failed.isEmpty());
+                        // a message over the maximum size fails alone, without the ones of its batch
+                        failed = adapter.sendMessageBatchWithAttributes(queueUrl.get(), List.of("small", "x".repeat(300 * 1024)),
+                                        List.of(Map.of(), Map.of()));
+                        Assertions.assertEquals(List.of(1), failed);
+                } catch (Exception e) {
+                        Assertions.fail(e.getMessage());
+                }
+        }
+
         @Test
         public void testDeleteMessage() {
                 try {
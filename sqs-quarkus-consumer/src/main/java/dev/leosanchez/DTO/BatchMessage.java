@@ -0,0 +1,35 @@
+package dev.leosanchez.DTO;
+
+import java.util.Map;
+import java.util.Optional;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+@RegisterForReflection
+public class BatchMessage {
+    String message;
+    Map<String, String> attributes;
+    // set by the batch listener, sent back to the sender of the message if it expects it
+    String response;
+
+    public BatchMessage(String message, Map<String, String> attributes) {
+        this.message = message;
+        this.attributes = attributes;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    public Optional<String> getResponse() {
+        return Optional.ofNullable(response);
+    }
+
+    public void respond(String response) {
+        this.response = response;
+    }
+}
@@ -0,0 +1,29 @@
+package dev.leosanchez.DTO;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+// a name found by a search, how it matched the text (exact, prefix or fuzzy) and the typos it needed
+@RegisterForReflection
+public class CityMatch {
+    String name;
+    String match;
+    int edits;
+
+    public CityMatch(String name, String match, int edits) {
+        this.name = name;
+        this.match = match;
+        this.edits = edits;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getMatch() {
+        return match;
+    }
+
+    public int getEdits() {
+        return edits;
+    }
+}
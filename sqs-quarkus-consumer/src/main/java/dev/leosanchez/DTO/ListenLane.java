@@ -0,0 +1,28 @@
+package dev.leosanchez.DTO;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+@RegisterForReflection
+public class ListenLane {
+    String queueUrl;
+    Integer priority;
+    Integer weight;
+
+    public ListenLane(String queueUrl, Integer priority, Integer weight) {
+        this.queueUrl = queueUrl;
+        this.priority = priority;
+        this.weight = weight;
+    }
+
+    public String getQueueUrl() {
+        return queueUrl;
+    }
+
+    public Integer getPriority() {
+        return priority;
+    }
+
+    public Integer getWeight() {
+        return weight;
+    }
+}
@@ -1,5 +1,7 @@
 package dev.leosanchez.DTO;
 
+import java.util.List;
+
 import dev.leosanchez.listeners.IListener;
 import io.quarkus.runtime.annotations.RegisterForReflection;
 
@@ -8,15 +10,55 @@ public class ListenRequest {
     IListener listener;
     String queueUrl;
     boolean parallelProcessing;
-    Integer maxMessagesPerPolling;
+    // the settings that can be changed while listening are read by the pollers and workers without locking
+    volatile Integer maxMessagesPerPolling;
     Integer minExecutionMilliseconds;
+    volatile Integer maxConcurrency;
+    Integer queueCapacity;
+    Integer prefetchCapacity;
+    volatile Double messagesPerSecond;
+    // null to wait for messages the time configured for the queue adapter
+    volatile Integer waitTimeSeconds;
+    boolean batchResponses;
+    List<ListenLane> lanes;
 
     public ListenRequest(IListener listener, String queueUrl, boolean parallelProcessing, Integer maxMessagesPerPolling, Integer minExecutionMilliseconds) {
+        this(listener, queueUrl, parallelProcessing, maxMessagesPerPolling, minExecutionMilliseconds, 0);
+    }
+
+    public ListenRequest(IListener listener, String queueUrl, boolean parallelProcessing, Integer maxMessagesPerPolling, Integer minExecutionMilliseconds, Integer maxConcurrency) {
+        // a single lane with the queue of the listener
+        this(listener, queueUrl, parallelProcessing, maxMessagesPerPolling, minExecutionMilliseconds, maxConcurrency, List.of(new ListenLane(queueUrl, 0, 1)));
+    }
+
+    public ListenRequest(IListener listener, String queueUrl, boolean parallelProcessing, Integer maxMessagesPerPolling, Integer minExecutionMilliseconds, Integer maxConcurrency, List<ListenLane> lanes) {
+        this(listener, queueUrl, parallelProcessing, maxMessagesPerPolling, minExecutionMilliseconds, maxConcurrency, lanes, 0);
+    }
+
+    public ListenRequest(IListener listener, String queueUrl, boolean parallelProcessing, Integer maxMessagesPerPolling, Integer minExecutionMilliseconds, Integer maxConcurrency, List<ListenLane> lanes, Integer queueCapacity) {
+        this(listener, queueUrl, parallelProcessing, maxMessagesPerPolling, minExecutionMilliseconds, maxConcurrency, lanes, queueCapacity, 0);
+    }
+
+    public ListenRequest(IListener listener, String queueUrl, boolean parallelProcessing, Integer maxMessagesPerPolling, Integer minExecutionMilliseconds, Integer maxConcurrency, List<ListenLane> lanes, Integer queueCapacity, Integer prefetchCapacity) {
+        this(listener, queueUrl, parallelProcessing, maxMessagesPerPolling, minExecutionMilliseconds, maxConcurrency, lanes, queueCapacity, prefetchCapacity, 0.0);
+    }
+
+    public ListenRequest(IListener listener, String queueUrl, boolean parallelProcessing, Integer maxMessagesPerPolling, Integer minExecutionMilliseconds, Integer maxConcurrency, List<ListenLane> lanes, Integer queueCapacity, Integer prefetchCapacity, Double messagesPerSecond) {
+        this(listener, queueUrl, parallelProcessing, maxMessagesPerPolling, minExecutionMilliseconds, maxConcurrency, lanes, queueCapacity, prefetchCapacity, messagesPerSecond, false);
+    }
+
+    public ListenRequest(IListener listener, String queueUrl, boolean parallelProcessing, Integer maxMessagesPerPolling, Integer minExecutionMilliseconds, Integer maxConcurrency, List<ListenLane> lanes, Integer queueCapacity, Integer prefetchCapacity, Double messagesPerSecond, boolean batchResponses) {
         this.listener =  listener;
         this.queueUrl = queueUrl;
         this.parallelProcessing = parallelProcessing;
         this.maxMessagesPerPolling = maxMessagesPerPolling;
         this.minExecutionMilliseconds = minExecutionMilliseconds;
+        this.maxConcurrency = maxConcurrency;
+        this.lanes = lanes;
+        this.queueCapacity = queueCapacity;
+        this.prefetchCapacity = prefetchCapacity;
+        this.messagesPerSecond = messagesPerSecond;
+        this.batchResponses = batchResponses;
     }
 
     public IListener getListener() {
@@ -35,7 +77,51 @@ public class ListenRequest {
         return maxMessagesPerPolling;
     }
 
+    public void setMaxMessagesPerPolling(Integer maxMessagesPerPolling){
+        this.maxMessagesPerPolling = maxMessagesPerPolling;
+    }
+
     public Integer getMinExecutionMilliseconds(){
         return minExecutionMilliseconds;
     }
+
+    public Integer getMaxConcurrency(){
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(Integer maxConcurrency){
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public List<ListenLane> getLanes(){
+        return lanes;
+    }
+
+    public Integer getQueueCapacity(){
+        return queueCapacity;
+    }
+
+    public Integer getPrefetchCapacity(){
+        return prefetchCapacity;
+    }
+
+    public Double getMessagesPerSecond(){
+        return messagesPerSecond;
+    }
+
+    public void setMessagesPerSecond(Double messagesPerSecond){
+        this.messagesPerSecond = messagesPerSecond;
+    }
+
+    public Integer getWaitTimeSeconds(){
+        return waitTimeSeconds;
+    }
+
+    public void setWaitTimeSeconds(Integer waitTimeSeconds){
+        this.waitTimeSeconds = waitTimeSeconds;
+    }
+
+    public boolean isBatchResponses(){
+        return batchResponses;
+    }
 }
@@ -0,0 +1,46 @@
+package dev.leosanchez.DTO;
+
+import java.util.Objects;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+// the settings of a listener that can be changed while it is listening, null for the ones left as they are
+@RegisterForReflection
+public class ListenerSettings {
+    Integer maxMessagesPerPolling;
+    Integer maxConcurrency;
+    Integer waitTimeSeconds;
+    Double messagesPerSecond;
+
+    public ListenerSettings(Integer maxMessagesPerPolling, Integer maxConcurrency, Integer waitTimeSeconds, Double messagesPerSecond) {
+        this.maxMessagesPerPolling = maxMessagesPerPolling;
+        this.maxConcurrency = maxConcurrency;
+        this.waitTimeSeconds = waitTimeSeconds;
+        this.messagesPerSecond = messagesPerSecond;
+    }
+
+    // the settings of newer changes replace the ones of older changes not applied yet
+    public ListenerSettings merge(ListenerSettings newer) {
+        return new ListenerSettings(
+                Objects.nonNull(newer.maxMessagesPerPolling) ? newer.maxMessagesPerPolling : maxMessagesPerPolling,
+                Objects.nonNull(newer.maxConcurrency) ? newer.maxConcurrency : maxConcurrency,
+                Objects.nonNull(newer.waitTimeSeconds) ? newer.waitTimeSeconds : waitTimeSeconds,
+                Objects.nonNull(newer.messagesPerSecond) ? newer.messagesPerSecond : messagesPerSecond);
+    }
+
+    public Integer getMaxMessagesPerPolling() {
+        return maxMessagesPerPolling;
+    }
+
+    public Integer getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public Integer getWaitTimeSeconds() {
+        return waitTimeSeconds;
+    }
+
+    public Double getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+}
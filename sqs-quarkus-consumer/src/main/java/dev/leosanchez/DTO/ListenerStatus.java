@@ -0,0 +1,107 @@
+package dev.leosanchez.DTO;
+
+import java.util.List;
+import java.util.Optional;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+// what a listener is doing right now, as reported by the admin endpoint
+@RegisterForReflection
+public class ListenerStatus {
+    String name;
+    String queueUrl;
+    String listenerClass;
+    boolean paused;
+    List<String> lanes;
+    // the settings in use, and the ones waiting for the next polling
+    ListenerSettings settings;
+    ListenerSettings pendingSettings;
+    int pollers;
+    long pollings;
+    long emptyPollings;
+    long processed;
+    long failed;
+    double averageProcessingMilliseconds;
+    int inFlight;
+    int bufferedMessages;
+
+    public ListenerStatus(String name, String queueUrl, String listenerClass, boolean paused, List<String> lanes,
+            ListenerSettings settings, ListenerSettings pendingSettings, int pollers, long pollings, long emptyPollings,
+            long processed, long failed, double averageProcessingMilliseconds, int inFlight, int bufferedMessages) {
+        this.name = name;
+        this.queueUrl = queueUrl;
+        this.listenerClass = listenerClass;
+        this.paused = paused;
+        this.lanes = lanes;
+        this.settings = settings;
+        this.pendingSettings = pendingSettings;
+        this.pollers = pollers;
+        this.pollings = pollings;
+        this.emptyPollings = emptyPollings;
+        this.processed = processed;
+        this.failed = failed;
+        this.averageProcessingMilliseconds = averageProcessingMilliseconds;
+        this.inFlight = inFlight;
+        this.bufferedMessages = bufferedMessages;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getQueueUrl() {
+        return queueUrl;
+    }
+
+    public String getListenerClass() {
+        return listenerClass;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public List<String> getLanes() {
+        return lanes;
+    }
+
+    public ListenerSettings getSettings() {
+        return settings;
+    }
+
+    public Optional<ListenerSettings> getPendingSettings() {
+        return Optional.ofNullable(pendingSettings);
+    }
+
+    public int getPollers() {
+        return pollers;
+    }
+
+    public long getPollings() {
+        return pollings;
+    }
+
+    public long getEmptyPollings() {
+        return emptyPollings;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public double getAverageProcessingMilliseconds() {
+        return averageProcessingMilliseconds;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public int getBufferedMessages() {
+        return bufferedMessages;
+    }
+}
@@ -0,0 +1,39 @@
+package dev.leosanchez.DTO;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+// a place found by a spatial query, with its distance to the point of the query in kilometers when there is one
+@RegisterForReflection
+public class Place {
+    String name;
+    double lat;
+    double lon;
+    double distance;
+
+    public Place(String name, double lat, double lon) {
+        this(name, lat, lon, Double.NaN);
+    }
+
+    public Place(String name, double lat, double lon, double distance) {
+        this.name = name;
+        this.lat = lat;
+        this.lon = lon;
+        this.distance = distance;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public double getLon() {
+        return lon;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+}
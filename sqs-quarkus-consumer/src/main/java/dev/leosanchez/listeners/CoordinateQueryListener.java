@@ -1,53 +1,153 @@
 package dev.leosanchez.listeners;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import dev.leosanchez.DTO.CityMatch;
+import dev.leosanchez.common.codecs.JsonCodec;
+import dev.leosanchez.common.dto.CoordinatesQuery;
+import dev.leosanchez.common.dto.CoordinatesResult;
+import dev.leosanchez.common.exceptions.MessageDecodingException;
+import dev.leosanchez.qualifiers.ListenerLane;
 import dev.leosanchez.qualifiers.ListenerQualifier;
 import dev.leosanchez.services.CoordinatesService;
-import io.quarkus.runtime.annotations.RegisterForReflection;
-import io.vertx.core.json.JsonObject;
 
 
 @ApplicationScoped
-@RegisterForReflection
-@ListenerQualifier(urlProperty = "twoways.queue.url", parallelProcessing = false, minProcessingMilliseconds = 20)
-public class CoordinateQueryListener  implements IListener {
+// single queries are interactive, so bulk queries (in their own queue, if configured) only take the pollings they leave free
+@ListenerQualifier(urlProperty = "twoways.queue.url", parallelProcessing = false, messagesPerSecond = 50, priority = 1, weight = 3,
+        lanes = { @ListenerLane(urlProperty = "twoways.bulk.queue.url", priority = 0, weight = 1) }, batchResponses = true)
+public class CoordinateQueryListener  implements ITypedListener<CoordinatesQuery, CoordinatesResult>, IStreamingListener {
+
+    // just a logger
+    private static final Logger LOG = Logger.getLogger(CoordinateQueryListener.class);
+
+    // the number of results sent in each chunk of a streamed response
+    private static final int RESULTS_PER_CHUNK = 10;
+
+    // the names a search returns when it does not ask for a number
+    private static final int DEFAULT_SEARCH_RESULTS = 5;
+
+    private static final JsonCodec<CoordinatesQuery> QUERY_CODEC = JsonCodec.of(CoordinatesQuery.class);
+    private static final JsonCodec<CoordinatesResult> RESULT_CODEC = JsonCodec.of(CoordinatesResult.class);
+
+    // the most names returned by a search, whatever it asks for
+    @ConfigProperty(name = "coordinates.search.max-results", defaultValue = "20")
+    Integer maxSearchResults;
 
     @Inject
     CoordinatesService service;
-    
+
+    public JsonCodec<CoordinatesQuery> requestCodec() {
+        return QUERY_CODEC;
+    }
+
+    public JsonCodec<CoordinatesResult> responseCodec() {
+        return RESULT_CODEC;
+    }
+
+    // both contracts accept a raw body, the typed one is the one answering single messages
+    public Optional<String> process(String message) {
+        return ITypedListener.super.process(message);
+    }
+
     // listener for two ways comunication
-    public Optional<String> process(String message){
+    public Optional<CoordinatesResult> process(CoordinatesQuery query) {
         try {
-            // convert the original message to json
-            JsonObject requestBody = new JsonObject(message);
-            // extract the city name to be searched
-            String city = requestBody.getString("city");
-            // we make the query
-            List<Double> coordinates = service.getCoordinates(city);
-            // we start building the response
-            JsonObject json = new JsonObject();
-            if(Objects.nonNull(coordinates)) {
-                // coordinates found
-                json.put("name", city);
-                json.put("lat", coordinates.get(0));
-                json.put("lon", coordinates.get(1));
-                json.put("status", "OK");
-            } else {
-                // coordinates not found
-                json.put("status", "NO_RESULTS");
+            // a search is answered with its ranked names in a single message
+            if (Boolean.TRUE.equals(query.getSearch())) {
+                return Optional.of(searchCities(query));
             }
-            return Optional.of(json.encode());
-        } catch(Exception e) {
+            // bulk queries carry many cities and are answered in a single message
+            if (Objects.nonNull(query.getCities())) {
+                List<CoordinatesResult> results = new ArrayList<>();
+                for (String city : query.getCities()) {
+                    results.add(findCoordinates(city));
+                }
+                return Optional.of(new CoordinatesResult(results, "OK"));
+            }
+            return Optional.of(findCoordinates(query.getCity()));
+        } catch (Exception e) {
             // any error
-            e.printStackTrace();
-            JsonObject json = new JsonObject(); 
-            json.put("status", "INTERNAL_SERVER_ERROR" );
-            return Optional.of(json.encode());
+            LOG.error("Error processing query", e);
+            return Optional.of(new CoordinatesResult("INTERNAL_SERVER_ERROR"));
+        }
+    }
+
+    public Optional<CoordinatesResult> processInvalid(String message, MessageDecodingException e) {
+        LOG.error(e.getMessage());
+        return Optional.of(new CoordinatesResult("INTERNAL_SERVER_ERROR"));
+    }
+
+    // listener for two ways comunication with the response streamed in chunks of results
+    public void process(String message, Consumer<String> emitter) {
+        try {
+            CoordinatesQuery query = QUERY_CODEC.decode(message);
+            // a search is answered in a single chunk too
+            if (Boolean.TRUE.equals(query.getSearch())) {
+                emitter.accept(RESULT_CODEC.encode(searchCities(query)));
+                return;
+            }
+            // a single city is answered in a single chunk
+            List<String> cities = Objects.nonNull(query.getCities()) ? query.getCities() : List.of(query.getCity());
+            List<CoordinatesResult> results = new ArrayList<>();
+            for (int i = 0; i < cities.size(); i++) {
+                results.add(findCoordinates(cities.get(i)));
+                // the results found so far are sent without waiting for the remaining cities
+                if (results.size() == RESULTS_PER_CHUNK || i == cities.size() - 1) {
+                    emitter.accept(RESULT_CODEC.encode(new CoordinatesResult(results, null)));
+                    results = new ArrayList<>();
+                }
+            }
+        } catch (StreamInterruptedException e) {
+            // the emitter itself failed, so the error cannot be sent through it
+            throw e;
+        } catch (Exception e) {
+            // any error, the chunks already sent are still valid
+            LOG.error("Error processing streamed query", e);
+            emitter.accept(RESULT_CODEC.encode(new CoordinatesResult("INTERNAL_SERVER_ERROR")));
+        }
+    }
+
+    private CoordinatesResult findCoordinates(String city) {
+        // we make the query
+        List<Double> coordinates = service.getCoordinates(city);
+        if (Objects.nonNull(coordinates)) {
+            // coordinates found
+            return new CoordinatesResult(city, coordinates.get(0), coordinates.get(1), "OK");
+        }
+        // coordinates not found, the name is kept so bulk results can still be correlated with their city
+        CoordinatesResult result = new CoordinatesResult("NO_RESULTS");
+        result.setName(city);
+        return result;
+    }
+
+    private CoordinatesResult searchCities(CoordinatesQuery query) {
+        if (Objects.isNull(query.getCity()) || query.getCity().isBlank() || (Objects.nonNull(query.getLimit()) && query.getLimit() < 1)) {
+            return new CoordinatesResult("INVALID_QUERY");
+        }
+        int limit = Objects.nonNull(query.getLimit()) ? Math.min(query.getLimit(), maxSearchResults) : DEFAULT_SEARCH_RESULTS;
+        List<CoordinatesResult> results = new ArrayList<>();
+        for (CityMatch match : service.searchCities(query.getCity(), limit)) {
+            List<Double> coordinates = service.getCoordinates(match.getName());
+            // the index only holds the names, the coordinates are the current ones of the table
+            if (Objects.nonNull(coordinates)) {
+                CoordinatesResult result = new CoordinatesResult(match.getName(), coordinates.get(0), coordinates.get(1), "OK");
+                result.setMatch(match.getMatch());
+                results.add(result);
+            }
         }
+        CoordinatesResult response = new CoordinatesResult(results, results.isEmpty() ? "NO_RESULTS" : "OK");
+        response.setName(query.getCity());
+        return response;
     }
 }
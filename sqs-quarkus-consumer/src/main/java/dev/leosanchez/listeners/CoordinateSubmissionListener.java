@@ -1,32 +1,52 @@
 package dev.leosanchez.listeners;
 
-import java.util.Optional;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
+import org.jboss.logging.Logger;
+
+import dev.leosanchez.DTO.BatchMessage;
+import dev.leosanchez.common.codecs.JsonCodec;
+import dev.leosanchez.common.dto.CoordinatesSubmission;
+import dev.leosanchez.common.exceptions.MessageDecodingException;
 import dev.leosanchez.qualifiers.ListenerQualifier;
 import dev.leosanchez.services.CoordinatesService;
-import io.quarkus.runtime.annotations.RegisterForReflection;
-import io.vertx.core.json.JsonObject;
 
 
 @ApplicationScoped
-@RegisterForReflection
 @ListenerQualifier(urlProperty = "oneway.queue.url")
-public class CoordinateSubmissionListener implements IListener {
+public class CoordinateSubmissionListener implements IBatchListener {
+
+    // just a logger
+    private static final Logger LOG = Logger.getLogger(CoordinateSubmissionListener.class);
+
+    private static final JsonCodec<CoordinatesSubmission> SUBMISSION_CODEC = JsonCodec.of(CoordinatesSubmission.class);
 
     @Inject
     CoordinatesService service;
 
-    // listener for one way communication
-    public Optional<String> process(String message) {
-        JsonObject requestBody = new JsonObject(message);
-        String city = requestBody.getString("name");
-        Double lat = requestBody.getDouble("lat");
-        Double lon = requestBody.getDouble("lon");
-        service.addCoordinates(city, lat, lon);
-        return Optional.empty();
+    // listener for one way communication, the submissions of a polling are written at once
+    public void process(List<BatchMessage> batch) {
+        // a city submitted many times in the same batch keeps its last coordinates
+        Map<String, List<Double>> coordinates = new LinkedHashMap<>();
+        for (BatchMessage message : batch) {
+            try {
+                CoordinatesSubmission submission = SUBMISSION_CODEC.decode(message.getMessage());
+                if (Objects.isNull(submission.getName()) || Objects.isNull(submission.getLat()) || Objects.isNull(submission.getLon())) {
+                    throw new MessageDecodingException("Incomplete submission received");
+                }
+                coordinates.put(submission.getName(), List.of(submission.getLat(), submission.getLon()));
+            } catch (MessageDecodingException e) {
+                // an invalid submission does not discard the others
+                LOG.error("Invalid submission received: " + message.getMessage(), e);
+            }
+        }
+        service.addCoordinatesInBulk(coordinates);
     }
 
 }
@@ -0,0 +1,19 @@
+package dev.leosanchez.listeners;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import dev.leosanchez.DTO.BatchMessage;
+
+public interface IBatchListener extends IListener {
+    // receives all the messages of a polling at once, so they can be written in bulk or deduplicated, responding on each of them
+    public void process(List<BatchMessage> batch);
+
+    // a single message is processed as a batch of one
+    default Optional<String> process(String message) {
+        BatchMessage batchMessage = new BatchMessage(message, Map.of());
+        process(List.of(batchMessage));
+        return batchMessage.getResponse();
+    }
+}
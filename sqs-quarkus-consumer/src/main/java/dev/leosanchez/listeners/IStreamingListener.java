@@ -0,0 +1,8 @@
+package dev.leosanchez.listeners;
+
+import java.util.function.Consumer;
+
+public interface IStreamingListener extends IListener {
+    // used when the sender asked for a streamed response, each emitted chunk is sent as soon as it is emitted
+    public void process(String message, Consumer<String> emitter);
+}
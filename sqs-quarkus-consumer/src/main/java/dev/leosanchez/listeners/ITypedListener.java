@@ -0,0 +1,30 @@
+package dev.leosanchez.listeners;
+
+import java.util.Optional;
+
+import dev.leosanchez.common.codecs.JsonCodec;
+import dev.leosanchez.common.exceptions.MessageDecodingException;
+
+// a listener working with types instead of raw bodies, the messages are bound to them by codecs built once per listener
+public interface ITypedListener<T, R> extends IListener {
+    public JsonCodec<T> requestCodec();
+
+    public JsonCodec<R> responseCodec();
+
+    public Optional<R> process(T request);
+
+    // answers a body that could not be bound to the request type, by default it fails like any other processing error
+    default Optional<R> processInvalid(String message, MessageDecodingException e) {
+        throw new IllegalArgumentException(e.getMessage(), e);
+    }
+
+    default Optional<String> process(String message) {
+        Optional<R> response;
+        try {
+            response = process(requestCodec().decode(message));
+        } catch (MessageDecodingException e) {
+            response = processInvalid(message, e);
+        }
+        return response.map(responseCodec()::encode);
+    }
+}
@@ -0,0 +1,24 @@
+package dev.leosanchez.listeners;
+
+import java.util.Optional;
+
+// information about the message being processed in the current thread, so listeners can read it without changing their signature
+public class ListenerContext {
+
+    // the moment (epoch millis) after which nobody will read the response of the current message
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    public static Optional<Long> getRemainingMilliseconds() {
+        Long deadline = DEADLINE.get();
+        // messages without deadline (e.g. one way messages) have no time budget
+        return Optional.ofNullable(deadline).map(d -> Math.max(0, d - System.currentTimeMillis()));
+    }
+
+    public static void setDeadline(Long deadline) {
+        DEADLINE.set(deadline);
+    }
+
+    public static void clear() {
+        DEADLINE.remove();
+    }
+}
@@ -0,0 +1,99 @@
+package dev.leosanchez.listeners;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import dev.leosanchez.DTO.Place;
+import dev.leosanchez.common.codecs.JsonCodec;
+import dev.leosanchez.common.dto.CoordinatesResult;
+import dev.leosanchez.common.dto.SpatialQuery;
+import dev.leosanchez.common.exceptions.MessageDecodingException;
+import dev.leosanchez.qualifiers.ListenerQualifier;
+import dev.leosanchez.services.CoordinatesService;
+
+@ApplicationScoped
+// the queries only read the spatial index, so they are answered in parallel. Deployments without the queue skip it
+@ListenerQualifier(urlProperty = "spatial.queue.url", optional = true, parallelProcessing = true, batchResponses = true)
+public class SpatialQueryListener implements ITypedListener<SpatialQuery, CoordinatesResult> {
+
+    // just a logger
+    private static final Logger LOG = Logger.getLogger(SpatialQueryListener.class);
+
+    private static final JsonCodec<SpatialQuery> QUERY_CODEC = JsonCodec.of(SpatialQuery.class);
+    private static final JsonCodec<CoordinatesResult> RESULT_CODEC = JsonCodec.of(CoordinatesResult.class);
+
+    // the most places returned by a query, whatever it asks for
+    @ConfigProperty(name = "coordinates.spatial.max-results", defaultValue = "1000")
+    Integer maxResults;
+
+    @Inject
+    CoordinatesService service;
+
+    public JsonCodec<SpatialQuery> requestCodec() {
+        return QUERY_CODEC;
+    }
+
+    public JsonCodec<CoordinatesResult> responseCodec() {
+        return RESULT_CODEC;
+    }
+
+    // listener for two ways comunication
+    public Optional<CoordinatesResult> process(SpatialQuery query) {
+        try {
+            List<Place> places;
+            if (Objects.nonNull(query.getLat()) && Objects.nonNull(query.getLon())) {
+                // k nearest to a point
+                if (!isLatitude(query.getLat()) || !isLongitude(query.getLon()) || (Objects.nonNull(query.getK()) && query.getK() < 1)) {
+                    return Optional.of(new CoordinatesResult("INVALID_QUERY"));
+                }
+                int k = Objects.nonNull(query.getK()) ? Math.min(query.getK(), maxResults) : 1;
+                places = service.getNearest(query.getLat(), query.getLon(), k);
+            } else if (Objects.nonNull(query.getMinLat()) && Objects.nonNull(query.getMinLon())
+                    && Objects.nonNull(query.getMaxLat()) && Objects.nonNull(query.getMaxLon())) {
+                // all within a box
+                if (!isLatitude(query.getMinLat()) || !isLatitude(query.getMaxLat()) || query.getMinLat() > query.getMaxLat()
+                        || !isLongitude(query.getMinLon()) || !isLongitude(query.getMaxLon()) || (Objects.nonNull(query.getLimit()) && query.getLimit() < 1)) {
+                    return Optional.of(new CoordinatesResult("INVALID_QUERY"));
+                }
+                int limit = Objects.nonNull(query.getLimit()) ? Math.min(query.getLimit(), maxResults) : maxResults;
+                places = service.getWithin(query.getMinLat(), query.getMinLon(), query.getMaxLat(), query.getMaxLon(), limit);
+            } else {
+                return Optional.of(new CoordinatesResult("INVALID_QUERY"));
+            }
+            List<CoordinatesResult> results = new ArrayList<>(places.size());
+            for (Place place : places) {
+                CoordinatesResult result = new CoordinatesResult(place.getName(), place.getLat(), place.getLon(), null);
+                if (!Double.isNaN(place.getDistance())) {
+                    result.setDistance(place.getDistance());
+                }
+                results.add(result);
+            }
+            return Optional.of(new CoordinatesResult(results, results.isEmpty() ? "NO_RESULTS" : "OK"));
+        } catch (Exception e) {
+            // any error
+            LOG.error("Error processing spatial query", e);
+            return Optional.of(new CoordinatesResult("INTERNAL_SERVER_ERROR"));
+        }
+    }
+
+    public Optional<CoordinatesResult> processInvalid(String message, MessageDecodingException e) {
+        LOG.error(e.getMessage());
+        return Optional.of(new CoordinatesResult("INVALID_QUERY"));
+    }
+
+    private boolean isLatitude(double lat) {
+        return lat >= -90 && lat <= 90;
+    }
+
+    private boolean isLongitude(double lon) {
+        return lon >= -180 && lon <= 180;
+    }
+}
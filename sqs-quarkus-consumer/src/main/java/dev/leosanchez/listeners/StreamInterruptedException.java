@@ -0,0 +1,8 @@
+package dev.leosanchez.listeners;
+
+// thrown by the emitter of a streamed response when a chunk could not be sent, the listener must stop emitting
+public class StreamInterruptedException extends RuntimeException {
+    public StreamInterruptedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,215 @@
+package dev.leosanchez.repositories;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+import dev.leosanchez.DTO.CityMatch;
+
+// finds the names of the places by a prefix or with typos, ignoring case, accents and repeated spaces
+// the normalized names are kept sorted, so a prefix is a range of them, and each trigram points to the names containing it,
+// so a name with typos is looked for only among the names sharing its rarest trigrams
+public class CitySearchIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final int GRAM = 3;
+    // a swap of adjacent letters changes one trigram more than the other typos
+    private static final int GRAMS_PER_EDIT = GRAM + 1;
+    // the prefix matches read to rank the shortest first, per result asked
+    private static final int PREFIX_SCAN_PER_RESULT = 8;
+
+    // the normalized names with the names they stand for, usually just one
+    private final ConcurrentSkipListMap<String, String[]> names = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, Postings> grams = new ConcurrentHashMap<>();
+
+    // the names are never removed, a place only changes its coordinates
+    public void add(String name) {
+        String key = normalize(name);
+        if (key.isEmpty()) {
+            return;
+        }
+        boolean[] newKey = { false };
+        names.compute(key, (k, current) -> {
+            if (Objects.isNull(current)) {
+                newKey[0] = true;
+                return new String[] { name };
+            }
+            if (Arrays.asList(current).contains(name)) {
+                return current;
+            }
+            String[] extended = Arrays.copyOf(current, current.length + 1);
+            extended[current.length] = name;
+            return extended;
+        });
+        if (newKey[0]) {
+            for (String gram : gramsOf(key)) {
+                grams.compute(gram, (g, postings) -> Objects.isNull(postings) ? Postings.of(key) : postings.add(key));
+            }
+        }
+    }
+
+    // the exact matches first, then the names starting with the text, the shortest first, then the ones with the fewest typos
+    public List<CityMatch> search(String text, int limit) {
+        List<CityMatch> matches = new ArrayList<>();
+        String query = normalize(text);
+        if (query.isEmpty() || limit <= 0) {
+            return matches;
+        }
+        Set<String> seen = new HashSet<>();
+        addMatches(query, "exact", 0, limit, seen, matches);
+        if (matches.size() < limit) {
+            List<String> prefixed = new ArrayList<>();
+            for (String key : names.subMap(query, false, query + Character.MAX_VALUE, false).keySet()) {
+                prefixed.add(key);
+                if (prefixed.size() >= limit * PREFIX_SCAN_PER_RESULT) {
+                    break;
+                }
+            }
+            prefixed.sort(Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder()));
+            for (String key : prefixed) {
+                addMatches(key, "prefix", 0, limit, seen, matches);
+            }
+        }
+        if (matches.size() < limit) {
+            for (Map.Entry<String, Integer> candidate : similar(query)) {
+                addMatches(candidate.getKey(), "fuzzy", candidate.getValue(), limit, seen, matches);
+            }
+        }
+        return matches;
+    }
+
+    // lower case, without accents and with single spaces
+    public static String normalize(String name) {
+        if (Objects.isNull(name)) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        return SPACES.matcher(MARKS.matcher(decomposed).replaceAll("")).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void addMatches(String key, String match, int edits, int limit, Set<String> seen, List<CityMatch> matches) {
+        String[] found = names.get(key);
+        if (Objects.isNull(found)) {
+            return;
+        }
+        for (String name : found) {
+            if (matches.size() < limit && seen.add(name)) {
+                matches.add(new CityMatch(name, match, edits));
+            }
+        }
+    }
+
+    // the names within the typos allowed for the length of the query, with their number of typos, the fewest first
+    private List<Map.Entry<String, Integer>> similar(String query) {
+        List<String> queryGrams = new ArrayList<>(gramsOf(query));
+        // each typo changes at most four trigrams, and a name must still share one of them to be found
+        int maxEdits = Math.min(query.length() >= 6 ? 2 : 1, (queryGrams.size() - 1) / GRAMS_PER_EDIT);
+        if (maxEdits == 0) {
+            return List.of();
+        }
+        // a name with at most maxEdits typos shares all but 4 * maxEdits trigrams, so it is in one of the 4 * maxEdits + 1 rarest lists
+        List<Postings> lists = new ArrayList<>();
+        for (String gram : queryGrams) {
+            lists.add(grams.getOrDefault(gram, Postings.EMPTY));
+        }
+        lists.sort(Comparator.comparingInt(postings -> postings.size));
+        Set<String> candidates = new HashSet<>();
+        for (Postings postings : lists.subList(0, Math.min(lists.size(), GRAMS_PER_EDIT * maxEdits + 1))) {
+            for (int i = 0; i < postings.size; i++) {
+                // a name too long or too short cannot be within the typos allowed
+                if (Math.abs(postings.keys[i].length() - query.length()) <= maxEdits) {
+                    candidates.add(postings.keys[i]);
+                }
+            }
+        }
+        List<Map.Entry<String, Integer>> similar = new ArrayList<>();
+        for (String candidate : candidates) {
+            int edits = edits(query, candidate, maxEdits);
+            if (edits <= maxEdits) {
+                similar.add(Map.entry(candidate, edits));
+            }
+        }
+        similar.sort(Map.Entry.<String, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+        return similar;
+    }
+
+    // the padded trigrams, so the first and last letters also count
+    private static Set<String> gramsOf(String key) {
+        String padded = " " + key + " ";
+        Set<String> keyGrams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= padded.length(); i++) {
+            keyGrams.add(padded.substring(i, i + GRAM));
+        }
+        return keyGrams;
+    }
+
+    // insertions, deletions, substitutions and swaps of adjacent letters, only counted up to max + 1
+    // only the cells near the diagonal are computed, the others are already beyond the max
+    static int edits(String a, String b, int max) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        int[] beforePrevious = new int[b.length() + 1];
+        int beyond = max + 1;
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = Math.min(j, beyond);
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            Arrays.fill(current, beyond);
+            current[0] = Math.min(i, beyond);
+            int best = current[0];
+            for (int j = Math.max(1, i - max); j <= Math.min(b.length(), i + max); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, beforePrevious[j - 2] + 1);
+                }
+                current[j] = Math.min(value, beyond);
+                best = Math.min(best, current[j]);
+            }
+            // every path already has more typos than allowed
+            if (best > max) {
+                return beyond;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    // the names containing a trigram, a change returns new postings and the older ones never read past their own size
+    private static class Postings {
+        private static final Postings EMPTY = new Postings(new String[0], 0);
+
+        private final String[] keys;
+        private final int size;
+
+        private Postings(String[] keys, int size) {
+            this.keys = keys;
+            this.size = size;
+        }
+
+        private static Postings of(String key) {
+            return new Postings(new String[] { key, null }, 1);
+        }
+
+        private Postings add(String key) {
+            String[] extended = size == keys.length ? Arrays.copyOf(keys, size * 2) : keys;
+            extended[size] = key;
+            return new Postings(extended, size + 1);
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package dev.leosanchez.repositories;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import dev.leosanchez.DTO.Place;
+
+// the places bucketed in cells of a fixed size in degrees, so a spatial query only visits the cells around it
+// only the cells with places exist, and a cell is replaced instead of modified, so the queries never lock
+public class CoordinatesGrid implements ICoordinatesObserver {
+
+    static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+    private static final int INITIAL_CELL_CAPACITY = 4;
+
+    private final double cellDegrees;
+    private final int rows;
+    private final int columns;
+    private final ConcurrentHashMap<Long, Cell> cells = new ConcurrentHashMap<>();
+
+    public CoordinatesGrid(double cellDegrees) {
+        if (!(cellDegrees > 0 && cellDegrees <= 90)) {
+            throw new IllegalArgumentException("The cells must measure between 0 and 90 degrees");
+        }
+        // the columns are adjusted to divide the whole circle, so the first one follows the last one
+        this.columns = (int) Math.round(360 / cellDegrees);
+        this.cellDegrees = 360.0 / columns;
+        this.rows = (int) Math.ceil(180 / this.cellDegrees);
+    }
+
+    public void moved(String name, boolean existed, double previousLat, double previousLon, double lat, double lon) {
+        long key = keyOf(rowOf(lat), columnOf(lon));
+        if (existed) {
+            long previousKey = keyOf(rowOf(previousLat), columnOf(previousLon));
+            if (previousKey == key) {
+                cells.compute(key, (k, cell) -> Objects.isNull(cell) ? Cell.of(name, lat, lon) : cell.replace(name, lat, lon));
+                return;
+            }
+            // the empty cells are removed
+            cells.computeIfPresent(previousKey, (k, cell) -> cell.remove(name));
+        }
+        cells.compute(key, (k, cell) -> Objects.isNull(cell) ? Cell.of(name, lat, lon) : cell.add(name, lat, lon));
+    }
+
+    // the k places nearest to the point, the closest first
+    // the rings of cells around the point are visited until no place outside them can be closer than the k found
+    public List<Place> nearest(double lat, double lon, int k) {
+        if (k <= 0) {
+            return List.of();
+        }
+        Nearest nearest = new Nearest(lat, lon, k);
+        int row = rowOf(lat);
+        int column = columnOf(lon);
+        long visited = 0;
+        for (int ring = 0;; ring++) {
+            visited += visitRing(row, column, ring, nearest);
+            boolean allRows = row - ring <= 0 && row + ring >= rows - 1;
+            boolean allColumns = 2 * ring + 1 >= columns;
+            if ((allRows && allColumns)
+                    || (nearest.isFull() && nearest.farthest() <= distanceOutsideRing(lat, lon, row, column, ring, allColumns))) {
+                return nearest.sorted();
+            }
+            // the places are far from the point compared to how spread they are, so the cells are visited by distance instead
+            if (visited > cells.size()) {
+                return nearestByCells(lat, lon, k);
+            }
+        }
+    }
+
+    // the places within the box, at most limit of them in no particular order
+    public List<Place> within(double minLat, double minLon, double maxLat, double maxLon, int limit) {
+        List<Place> found = new ArrayList<>();
+        if (limit <= 0 || minLat > maxLat) {
+            return found;
+        }
+        boolean crossesAntimeridian = minLon > maxLon;
+        int firstRow = rowOf(minLat);
+        int lastRow = rowOf(maxLat);
+        int firstColumn = columnOf(minLon);
+        // the east edge is not wrapped, a box up to 180 ends on the last column
+        int lastColumn = Math.min(columns - 1, (int) Math.floor((maxLon + 180) / cellDegrees));
+        int spannedColumns = crossesAntimeridian ? columns - firstColumn + lastColumn + 1 : lastColumn - firstColumn + 1;
+        spannedColumns = Math.max(1, Math.min(columns, spannedColumns));
+        long spannedCells = (long) (lastRow - firstRow + 1) * spannedColumns;
+        if (spannedCells > cells.size()) {
+            // a box larger than the places it may contain, only the existing cells are checked
+            for (Map.Entry<Long, Cell> entry : cells.entrySet()) {
+                int row = (int) (entry.getKey() / columns);
+                int column = (int) (entry.getKey() % columns);
+                if (row >= firstRow && row <= lastRow && Math.floorMod(column - firstColumn, columns) < spannedColumns
+                        && entry.getValue().within(minLat, minLon, maxLat, maxLon, crossesAntimeridian, limit, found)) {
+                    break;
+                }
+            }
+            return found;
+        }
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int offset = 0; offset < spannedColumns; offset++) {
+                Cell cell = cells.get(keyOf(row, Math.floorMod(firstColumn + offset, columns)));
+                if (Objects.nonNull(cell) && cell.within(minLat, minLon, maxLat, maxLon, crossesAntimeridian, limit, found)) {
+                    return found;
+                }
+            }
+        }
+        return found;
+    }
+
+    // the great circle distance in kilometers
+    public static double distance(double lat1, double lon1, double lat2, double lon2) {
+        return toKilometers(haversine(lat1, Math.cos(Math.toRadians(lat1)), lon1, lat2, lon2));
+    }
+
+    // visits the cells of the square ring at the given distance in cells, each cell once even when the ring wraps around the globe
+    private long visitRing(int row, int column, int ring, Nearest nearest) {
+        long visited = 0;
+        if (ring == 0) {
+            nearest.scan(cells.get(keyOf(row, column)));
+            return 1;
+        }
+        // the columns of the ring that were not visited yet
+        int spannedColumns = Math.min(2 * ring + 1, columns);
+        for (int edgeRow : new int[] { row - ring, row + ring }) {
+            if (edgeRow < 0 || edgeRow >= rows) {
+                continue;
+            }
+            for (int offset = 0; offset < spannedColumns; offset++) {
+                nearest.scan(cells.get(keyOf(edgeRow, Math.floorMod(column - ring + offset, columns))));
+                visited++;
+            }
+        }
+        boolean westIsNew = 2 * ring <= columns;
+        boolean eastIsNew = 2 * ring < columns;
+        for (int sideRow = Math.max(0, row - ring + 1); sideRow <= Math.min(rows - 1, row + ring - 1); sideRow++) {
+            if (westIsNew) {
+                nearest.scan(cells.get(keyOf(sideRow, Math.floorMod(column - ring, columns))));
+                visited++;
+            }
+            if (eastIsNew) {
+                nearest.scan(cells.get(keyOf(sideRow, Math.floorMod(column + ring, columns))));
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    // a place outside the square visited so far is at least as far as the nearest of its sides
+    private double distanceOutsideRing(double lat, double lon, int row, int column, int ring, boolean allColumns) {
+        double distance = Double.POSITIVE_INFINITY;
+        if (row - ring > 0) {
+            distance = Math.min(distance, (lat - southOf(row - ring)) * KM_PER_DEGREE);
+        }
+        if (row + ring < rows - 1) {
+            distance = Math.min(distance, (southOf(row + ring + 1) - lat) * KM_PER_DEGREE);
+        }
+        if (!allColumns) {
+            double west = lon - westOf(column - ring);
+            double east = westOf(column + ring + 1) - lon;
+            distance = Math.min(distance, distanceToMeridian(lat, Math.min(west, east)));
+        }
+        return distance;
+    }
+
+    // the cells sorted by how close they may be, scanned until the next one cannot have a closer place
+    private List<Place> nearestByCells(double lat, double lon, int k) {
+        List<Map.Entry<Double, Cell>> candidates = new ArrayList<>();
+        for (Map.Entry<Long, Cell> entry : cells.entrySet()) {
+            int row = (int) (entry.getKey() / columns);
+            int column = (int) (entry.getKey() % columns);
+            candidates.add(Map.entry(distanceToCell(lat, lon, row, column), entry.getValue()));
+        }
+        candidates.sort(Map.Entry.comparingByKey());
+        Nearest nearest = new Nearest(lat, lon, k);
+        for (Map.Entry<Double, Cell> candidate : candidates) {
+            if (nearest.isFull() && nearest.farthest() <= candidate.getKey()) {
+                break;
+            }
+            nearest.scan(candidate.getValue());
+        }
+        return nearest.sorted();
+    }
+
+    // a lower bound of the distance to any place of the cell, from its gap in latitude and in longitude
+    private double distanceToCell(double lat, double lon, int row, int column) {
+        double south = southOf(row);
+        double north = south + cellDegrees;
+        double latitudeGap = lat < south ? south - lat : lat > north ? lat - north : 0;
+        // the gap in longitude to the nearest edge of the cell, going around whichever way is shorter
+        double nearGap = 0;
+        if (columnOf(lon) != column) {
+            double west = westOf(column);
+            nearGap = Math.min(eastwardGap(lon, west), eastwardGap(west + cellDegrees, lon));
+        }
+        double farGap = Math.min(180, nearGap + cellDegrees);
+        double meridian = EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.cos(Math.toRadians(lat))
+                * Math.min(Math.sin(Math.toRadians(nearGap)), Math.sin(Math.toRadians(farGap)))));
+        return Math.max(latitudeGap * KM_PER_DEGREE, meridian);
+    }
+
+    // the degrees from one longitude to another going east, between 0 and 360
+    private static double eastwardGap(double from, double to) {
+        double gap = (to - from) % 360;
+        return gap < 0 ? gap + 360 : gap;
+    }
+
+    // the distance to the great circle of a meridian, which is never more than the distance to a place beyond it
+    private static double distanceToMeridian(double lat, double longitudeGap) {
+        return EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.cos(Math.toRadians(lat)) * Math.abs(Math.sin(Math.toRadians(longitudeGap)))));
+    }
+
+    private static double haversine(double lat1, double cosLat1, double lon1, double lat2, double lon2) {
+        double sinLat = Math.sin(Math.toRadians(lat2 - lat1) / 2);
+        double sinLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        return sinLat * sinLat + cosLat1 * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+    }
+
+    private static double toKilometers(double haversine) {
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(haversine)));
+    }
+
+    private int rowOf(double lat) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((lat + 90) / cellDegrees)));
+    }
+
+    private int columnOf(double lon) {
+        return Math.floorMod((int) Math.floor((lon + 180) / cellDegrees), columns);
+    }
+
+    private double southOf(int row) {
+        return row * cellDegrees - 90;
+    }
+
+    private double westOf(int column) {
+        return column * cellDegrees - 180;
+    }
+
+    private long keyOf(int row, int column) {
+        return (long) row * columns + column;
+    }
+
+    // the k closest places found so far, the farthest of them on top so it is the one replaced
+    private static class Nearest {
+        private final double lat;
+        private final double cosLat;
+        private final double lon;
+        private final int k;
+        private final PriorityQueue<Candidate> candidates;
+
+        private Nearest(double lat, double lon, int k) {
+            this.lat = lat;
+            this.cosLat = Math.cos(Math.toRadians(lat));
+            this.lon = lon;
+            this.k = k;
+            this.candidates = new PriorityQueue<>(Comparator.comparingDouble((Candidate candidate) -> candidate.haversine).reversed());
+        }
+
+        private void scan(Cell cell) {
+            if (Objects.isNull(cell)) {
+                return;
+            }
+            for (int i = 0; i < cell.size; i++) {
+                // the haversine grows with the distance, so the places are compared without computing it
+                double haversine = haversine(lat, cosLat, lon, cell.lats[i], cell.lons[i]);
+                if (candidates.size() < k) {
+                    candidates.add(new Candidate(haversine, cell.names[i], cell.lats[i], cell.lons[i]));
+                } else if (haversine < candidates.peek().haversine) {
+                    candidates.poll();
+                    candidates.add(new Candidate(haversine, cell.names[i], cell.lats[i], cell.lons[i]));
+                }
+            }
+        }
+
+        private boolean isFull() {
+            return candidates.size() == k;
+        }
+
+        private double farthest() {
+            return toKilometers(candidates.peek().haversine);
+        }
+
+        private List<Place> sorted() {
+            List<Candidate> closestFirst = new ArrayList<>(candidates);
+            closestFirst.sort(Comparator.comparingDouble(candidate -> candidate.haversine));
+            List<Place> places = new ArrayList<>(closestFirst.size());
+            for (Candidate candidate : closestFirst) {
+                places.add(new Place(candidate.name, candidate.lat, candidate.lon, toKilometers(candidate.haversine)));
+            }
+            return places;
+        }
+    }
+
+    private static class Candidate {
+        private final double haversine;
+        private final String name;
+        private final double lat;
+        private final double lon;
+
+        private Candidate(double haversine, String name, double lat, double lon) {
+            this.haversine = haversine;
+            this.name = name;
+            this.lat = lat;
+            this.lon = lon;
+        }
+    }
+
+    // the places of a cell in parallel arrays, a change returns a new cell
+    // an addition reuses the arrays while they have room, the older cells never read past their own size
+    private static class Cell {
+        private final String[] names;
+        private final double[] lats;
+        private final double[] lons;
+        private final int size;
+
+        private Cell(String[] names, double[] lats, double[] lons, int size) {
+            this.names = names;
+            this.lats = lats;
+            this.lons = lons;
+            this.size = size;
+        }
+
+        private static Cell of(String name, double lat, double lon) {
+            return new Cell(new String[INITIAL_CELL_CAPACITY], new double[INITIAL_CELL_CAPACITY], new double[INITIAL_CELL_CAPACITY], 0)
+                    .add(name, lat, lon);
+        }
+
+        private Cell add(String name, double lat, double lon) {
+            String[] newNames = names;
+            double[] newLats = lats;
+            double[] newLons = lons;
+            if (size == names.length) {
+                newNames = Arrays.copyOf(names, size * 2);
+                newLats = Arrays.copyOf(lats, size * 2);
+                newLons = Arrays.copyOf(lons, size * 2);
+            }
+            newNames[size] = name;
+            newLats[size] = lat;
+            newLons[size] = lon;
+            return new Cell(newNames, newLats, newLons, size + 1);
+        }
+
+        // the arrays are copied, the older cells may be being read
+        private Cell replace(String name, double lat, double lon) {
+            int index = indexOf(name);
+            if (index < 0) {
+                return add(name, lat, lon);
+            }
+            double[] newLats = Arrays.copyOf(lats, lats.length);
+            double[] newLons = Arrays.copyOf(lons, lons.length);
+            newLats[index] = lat;
+            newLons[index] = lon;
+            return new Cell(Arrays.copyOf(names, names.length), newLats, newLons, size);
+        }
+
+        // returns null when the cell is left empty, so the grid removes it
+        private Cell remove(String name) {
+            int index = indexOf(name);
+            if (index < 0) {
+                return this;
+            }
+            if (size == 1) {
+                return null;
+            }
+            int capacity = Math.max(INITIAL_CELL_CAPACITY, size - 1);
+            String[] newNames = new String[capacity];
+            double[] newLats = new double[capacity];
+            double[] newLons = new double[capacity];
+            System.arraycopy(names, 0, newNames, 0, index);
+            System.arraycopy(lats, 0, newLats, 0, index);
+            System.arraycopy(lons, 0, newLons, 0, index);
+            System.arraycopy(names, index + 1, newNames, index, size - index - 1);
+            System.arraycopy(lats, index + 1, newLats, index, size - index - 1);
+            System.arraycopy(lons, index + 1, newLons, index, size - index - 1);
+            return new Cell(newNames, newLats, newLons, size - 1);
+        }
+
+        private int indexOf(String name) {
+            for (int i = 0; i < size; i++) {
+                if (names[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // returns true once the limit is reached
+        private boolean within(double minLat, double minLon, double maxLat, double maxLon, boolean crossesAntimeridian, int limit, List<Place> found) {
+            for (int i = 0; i < size; i++) {
+                boolean inLongitude = crossesAntimeridian ? lons[i] >= minLon || lons[i] <= maxLon : lons[i] >= minLon && lons[i] <= maxLon;
+                if (inLongitude && lats[i] >= minLat && lats[i] <= maxLat) {
+                    found.add(new Place(names[i], lats[i], lons[i]));
+                    if (found.size() >= limit) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
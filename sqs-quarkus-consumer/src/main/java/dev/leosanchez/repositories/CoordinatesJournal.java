@@ -0,0 +1,452 @@
+package dev.leosanchez.repositories;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.jboss.logging.Logger;
+
+// keeps the coordinates of a table on disk, so they survive a restart
+// every change is appended to a log, and the changes that arrive while the log is being synced are synced together with the next write
+// a change only reaches the table once it is synced, so the table never has coordinates that a restart would lose
+// from time to time the log is closed and the table is written to a snapshot, so a restart reads a snapshot and a short log instead of every change ever made
+public class CoordinatesJournal implements Closeable {
+
+    // just a logger
+    private static final Logger LOG = Logger.getLogger(CoordinatesJournal.class);
+
+    private static final String PREFIX = "coordinates-";
+    private static final String LOG_SUFFIX = ".log";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    // a record is the length of the name, the name, the latitude, the longitude and a checksum of all of them
+    private static final int RECORD_OVERHEAD = Integer.BYTES + 2 * Double.BYTES + Integer.BYTES;
+    private static final int MAX_NAME_BYTES = 0xFFFF;
+    // the files are mapped by windows, a mapping cannot be larger than 2 GB
+    private static final long MAX_WINDOW = 1L << 30;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final Path directory;
+    private final CoordinatesTable table;
+    private final long snapshotLogBytes;
+    private final long snapshotIntervalSeconds;
+
+    // guards the pending records and the sequences, the writers wait on it for their records to be synced
+    private final Object lock = new Object();
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_BYTES);
+    private ByteBuffer writing = ByteBuffer.allocate(BUFFER_BYTES);
+    // the places of the records in each buffer, applied to the table once their buffer is synced
+    private Map<String, double[]> pendingPlaces = new LinkedHashMap<>();
+    private Map<String, double[]> writingPlaces = new LinkedHashMap<>();
+    private long appended;
+    private long committed;
+    private boolean rollRequested;
+    private boolean closed;
+    private IOException failure;
+
+    // only used by the flusher once it started
+    private FileChannel log;
+    private long generation;
+    private long logBytes;
+
+    private final AtomicBoolean snapshotting = new AtomicBoolean();
+    private Thread flusher;
+    private ScheduledExecutorService snapshots;
+
+    public CoordinatesJournal(Path directory, CoordinatesTable table, long snapshotLogBytes, long snapshotIntervalSeconds) {
+        this.directory = directory;
+        this.table = table;
+        this.snapshotLogBytes = snapshotLogBytes;
+        this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+    }
+
+    // loads the last snapshot and the logs written after it into the table, then starts a new log
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        long snapshotGeneration = 0;
+        List<Long> logGenerations = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.startsWith(PREFIX)) {
+                    continue;
+                }
+                if (name.endsWith(TEMPORARY_SUFFIX)) {
+                    // a snapshot that was not finished, the logs it was made from are still there
+                    Files.delete(file);
+                } else if (name.endsWith(SNAPSHOT_SUFFIX)) {
+                    snapshotGeneration = Math.max(snapshotGeneration, generationOf(name, SNAPSHOT_SUFFIX));
+                } else if (name.endsWith(LOG_SUFFIX)) {
+                    logGenerations.add(generationOf(name, LOG_SUFFIX));
+                }
+            }
+        }
+        long started = System.currentTimeMillis();
+        long loadedGeneration = snapshotGeneration;
+        if (snapshotGeneration > 0) {
+            load(fileOf(snapshotGeneration, SNAPSHOT_SUFFIX), false);
+        }
+        logGenerations.sort(Long::compare);
+        for (Long logGeneration : logGenerations) {
+            // the logs already in the snapshot are only left if the application stopped before removing them
+            if (logGeneration > snapshotGeneration) {
+                load(fileOf(logGeneration, LOG_SUFFIX), true);
+            }
+            loadedGeneration = Math.max(loadedGeneration, logGeneration);
+        }
+        LOG.info("Loaded " + table.size() + " coordinates from " + directory + " in " + (System.currentTimeMillis() - started) + " ms");
+
+        generation = loadedGeneration + 1;
+        log = FileChannel.open(fileOf(generation, LOG_SUFFIX), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        // the new log must survive a crash of the host, and its entry lives in the directory
+        syncDirectory();
+        flusher = new Thread(this::flush, "coordinates-journal");
+        flusher.setDaemon(true);
+        flusher.start();
+        snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "coordinates-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (snapshotIntervalSeconds > 0) {
+            snapshots.scheduleWithFixedDelay(this::requestRoll, snapshotIntervalSeconds, snapshotIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    // returns once the coordinates are synced to disk and applied to the table, it throws if they could not be synced
+    public void append(String name, double lat, double lon) {
+        byte[] nameBytes = encodeName(name);
+        long sequence;
+        synchronized (lock) {
+            checkWritable();
+            pending = encode(pending, nameBytes, lat, lon);
+            pendingPlaces.put(name, new double[] { lat, lon });
+            sequence = ++appended;
+            lock.notifyAll();
+        }
+        awaitCommit(sequence);
+    }
+
+    // the whole bulk is synced at once
+    public void appendAll(Map<String, double[]> places) {
+        List<byte[]> names = new ArrayList<>(places.size());
+        for (String name : places.keySet()) {
+            names.add(encodeName(name));
+        }
+        long sequence;
+        synchronized (lock) {
+            checkWritable();
+            int index = 0;
+            for (Map.Entry<String, double[]> place : places.entrySet()) {
+                pending = encode(pending, names.get(index++), place.getValue()[0], place.getValue()[1]);
+            }
+            pendingPlaces.putAll(places);
+            sequence = ++appended;
+            lock.notifyAll();
+        }
+        awaitCommit(sequence);
+    }
+
+    // the records still pending are synced and the snapshot in progress is finished before returning
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        snapshots.shutdown();
+        try {
+            flusher.join();
+            snapshots.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+    }
+
+    private void checkWritable() {
+        if (closed) {
+            throw new IllegalStateException("The coordinates journal is closed");
+        }
+        if (Objects.nonNull(failure)) {
+            throw new UncheckedIOException("The coordinates journal could not write to disk", failure);
+        }
+    }
+
+    private void awaitCommit(long sequence) {
+        synchronized (lock) {
+            while (committed < sequence && Objects.isNull(failure)) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the coordinates to be written", e);
+                }
+            }
+            if (committed < sequence) {
+                throw new UncheckedIOException("The coordinates could not be written to disk", failure);
+            }
+        }
+    }
+
+    // writes the pending records, one sync for all of them, until the journal is closed and nothing is pending
+    private void flush() {
+        while (true) {
+            ByteBuffer batch;
+            Map<String, double[]> places;
+            long sequence;
+            boolean roll;
+            synchronized (lock) {
+                while (pending.position() == 0 && !rollRequested && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // only the closing of the journal stops the flusher
+                    }
+                }
+                if (pending.position() == 0 && closed) {
+                    return;
+                }
+                batch = pending;
+                pending = writing;
+                writing = batch;
+                places = pendingPlaces;
+                pendingPlaces = writingPlaces;
+                writingPlaces = places;
+                sequence = appended;
+                roll = rollRequested;
+                rollRequested = false;
+            }
+            try {
+                batch.flip();
+                logBytes += batch.remaining();
+                while (batch.hasRemaining()) {
+                    log.write(batch);
+                }
+                log.force(false);
+                batch.clear();
+                synchronized (lock) {
+                    // the table is changed while holding the lock, so a log that is closed only has records already in the table
+                    table.putAll(places);
+                    places.clear();
+                    committed = sequence;
+                    lock.notifyAll();
+                }
+                if ((roll || logBytes >= snapshotLogBytes) && logBytes > 0 && snapshotting.compareAndSet(false, true)) {
+                    roll();
+                }
+            } catch (IOException e) {
+                LOG.error("The coordinates journal could not write to " + directory + ", no more coordinates are accepted", e);
+                synchronized (lock) {
+                    // the writers waiting for these places are told they were not stored, so the table does not get them
+                    places.clear();
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    private void requestRoll() {
+        synchronized (lock) {
+            rollRequested = true;
+            lock.notifyAll();
+        }
+    }
+
+    // starts a new log and snapshots the table in the background, every record of the closed log is already in the table
+    private void roll() throws IOException {
+        long closedGeneration = generation;
+        FileChannel next = FileChannel.open(fileOf(closedGeneration + 1, LOG_SUFFIX), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        syncDirectory();
+        log.close();
+        log = next;
+        generation = closedGeneration + 1;
+        logBytes = 0;
+        try {
+            snapshots.execute(() -> snapshot(closedGeneration));
+        } catch (RuntimeException e) {
+            // the journal is closing, the closed log is loaded on the next start
+            snapshotting.set(false);
+        }
+    }
+
+    private void snapshot(long closedGeneration) {
+        long started = System.currentTimeMillis();
+        Path temporary = fileOf(closedGeneration, SNAPSHOT_SUFFIX + TEMPORARY_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer[] buffer = { ByteBuffer.allocate(BUFFER_BYTES * 16) };
+                IOException[] failed = { null };
+                table.forEach((name, coordinates) -> {
+                    if (Objects.nonNull(failed[0])) {
+                        return;
+                    }
+                    byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+                    try {
+                        if (buffer[0].remaining() < nameBytes.length + RECORD_OVERHEAD) {
+                            write(channel, buffer[0]);
+                        }
+                        buffer[0] = encode(buffer[0], nameBytes, coordinates[0], coordinates[1]);
+                    } catch (IOException e) {
+                        failed[0] = e;
+                    }
+                });
+                if (Objects.nonNull(failed[0])) {
+                    throw failed[0];
+                }
+                write(channel, buffer[0]);
+                channel.force(true);
+            }
+            // the snapshot only replaces the logs once it is complete
+            Files.move(temporary, fileOf(closedGeneration, SNAPSHOT_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+            removeOlderThan(closedGeneration);
+            LOG.debug("Coordinates snapshot " + closedGeneration + " written in " + (System.currentTimeMillis() - started) + " ms");
+        } catch (IOException e) {
+            // the logs are kept, so nothing is lost, the next snapshot tries again
+            LOG.error("The coordinates snapshot could not be written to " + directory, e);
+        } finally {
+            snapshotting.set(false);
+        }
+    }
+
+    private void removeOlderThan(long snapshotGeneration) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.startsWith(PREFIX)) {
+                    continue;
+                }
+                if ((name.endsWith(LOG_SUFFIX) && generationOf(name, LOG_SUFFIX) <= snapshotGeneration)
+                        || (name.endsWith(SNAPSHOT_SUFFIX) && generationOf(name, SNAPSHOT_SUFFIX) < snapshotGeneration)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // reads the records mapping the file, a log is cut at the first record not written completely
+    private void load(Path file, boolean truncate) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, MAX_WINDOW));
+                int read = decode(window);
+                if (read == 0) {
+                    break;
+                }
+                position += read;
+            }
+            if (position < size) {
+                if (!truncate) {
+                    throw new IOException("The coordinates snapshot " + file + " is corrupted at byte " + position);
+                }
+                LOG.warn("Discarding " + (size - position) + " bytes not written completely at the end of " + file);
+                channel.truncate(position);
+                channel.force(true);
+            }
+        }
+    }
+
+    // returns the bytes of the complete records, the last record of a window may continue in the next one
+    private int decode(ByteBuffer buffer) {
+        CRC32C checksum = new CRC32C();
+        while (buffer.remaining() >= RECORD_OVERHEAD) {
+            int start = buffer.position();
+            int nameLength = buffer.getInt(start);
+            if (nameLength < 0 || nameLength > MAX_NAME_BYTES || buffer.remaining() < nameLength + RECORD_OVERHEAD) {
+                break;
+            }
+            int end = start + nameLength + RECORD_OVERHEAD;
+            checksum.reset();
+            checksum.update(buffer.duplicate().position(start).limit(end - Integer.BYTES));
+            if ((int) checksum.getValue() != buffer.getInt(end - Integer.BYTES)) {
+                break;
+            }
+            byte[] nameBytes = new byte[nameLength];
+            buffer.position(start + Integer.BYTES);
+            buffer.get(nameBytes);
+            double lat = buffer.getDouble();
+            double lon = buffer.getDouble();
+            table.put(new String(nameBytes, StandardCharsets.UTF_8), lat, lon);
+            buffer.position(end);
+        }
+        return buffer.position();
+    }
+
+    private static byte[] encodeName(String name) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("The name of the place is too long to be stored");
+        }
+        return nameBytes;
+    }
+
+    // the buffer is replaced by a larger one when the record does not fit
+    private static ByteBuffer encode(ByteBuffer buffer, byte[] nameBytes, double lat, double lon) {
+        int recordLength = nameBytes.length + RECORD_OVERHEAD;
+        if (buffer.remaining() < recordLength) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + recordLength));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        int start = buffer.position();
+        buffer.putInt(nameBytes.length).put(nameBytes).putDouble(lat).putDouble(lon);
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.array(), start, buffer.position() - start);
+        buffer.putInt((int) checksum.getValue());
+        return buffer;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // the creation, renaming and removal of files are only durable once the directory is synced
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // some platforms do not allow opening a directory, the files are still synced
+            LOG.debug("The directory " + directory + " could not be synced", e);
+        }
+    }
+
+    private Path fileOf(long fileGeneration, String suffix) {
+        return directory.resolve(PREFIX + String.format("%019d", fileGeneration) + suffix);
+    }
+
+    private static long generationOf(String name, String suffix) {
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - suffix.length()));
+    }
+}
@@ -1,23 +1,130 @@
 package dev.leosanchez.repositories;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import dev.leosanchez.DTO.CityMatch;
+import dev.leosanchez.DTO.Place;
+
+// the listeners read it from many workers while the submissions write it, so it is backed by a table safe for both
 @ApplicationScoped
 public class CoordinatesRepository {
-    private Map<String, List<Double>> coordinates = new HashMap<>() {{
-        put("Santiago", List.of(-33.447487, -70.673676));
-        put("Coquimbo", List.of(-30.657041, -71.8844573));
-    }};
+
+    // just a logger
+    private static final Logger LOG = Logger.getLogger(CoordinatesRepository.class);
+
+    // when set, the coordinates are kept in this directory and loaded again on start, otherwise they only live in memory
+    @ConfigProperty(name = "coordinates.persistence.directory")
+    Optional<String> persistenceDirectory;
+
+    // the size the log reaches before it is compacted into a snapshot, which bounds what a restart has to replay
+    @ConfigProperty(name = "coordinates.persistence.snapshot-log-bytes", defaultValue = "67108864")
+    Long snapshotLogBytes;
+
+    // a snapshot is also taken after this time if anything was written, 0 disables it
+    @ConfigProperty(name = "coordinates.persistence.snapshot-interval-seconds", defaultValue = "300")
+    Long snapshotIntervalSeconds;
+
+    // the size of the cells of the spatial index, a nearest query usually visits the cell of its point and the eight around it
+    @ConfigProperty(name = "coordinates.spatial.cell-degrees", defaultValue = "0.25")
+    Double cellDegrees;
+
+    private CoordinatesGrid grid;
+    private CitySearchIndex searchIndex;
+    private CoordinatesTable coordinates;
+    private CoordinatesJournal journal;
+
+    @PostConstruct
+    public void init() {
+        // the grid and the search index follow every change of the table, including the ones loaded from disk
+        grid = new CoordinatesGrid(cellDegrees);
+        searchIndex = new CitySearchIndex();
+        coordinates = new CoordinatesTable((name, existed, previousLat, previousLon, lat, lon) -> {
+            grid.moved(name, existed, previousLat, previousLon, lat, lon);
+            // the names only need indexing the first time
+            if (!existed) {
+                searchIndex.add(name);
+            }
+        });
+        coordinates.put("Santiago", -33.447487, -70.673676);
+        coordinates.put("Coquimbo", -30.657041, -71.8844573);
+        if (Objects.isNull(persistenceDirectory) || persistenceDirectory.isEmpty()) {
+            return;
+        }
+        journal = new CoordinatesJournal(Path.of(persistenceDirectory.get()), coordinates, snapshotLogBytes, snapshotIntervalSeconds);
+        try {
+            journal.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("The coordinates could not be loaded from " + persistenceDirectory.get(), e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (Objects.isNull(journal)) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            LOG.error("The coordinates journal was not closed properly", e);
+        }
+    }
 
     public List<Double> getCoordinates(String city) {
-        return coordinates.get(city);
+        double[] found = new double[2];
+        // a query without a city (e.g. a bulk query with a null entry) cannot be hashed by the table
+        if (Objects.isNull(city) || !coordinates.get(city, found)) {
+            return null;
+        }
+        return List.of(found[0], found[1]);
+    }
+
+    public List<Place> findNearest(double lat, double lon, int k) {
+        return grid.nearest(lat, lon, k);
+    }
+
+    public List<Place> findWithin(double minLat, double minLon, double maxLat, double maxLon, int limit) {
+        return grid.within(minLat, minLon, maxLat, maxLon, limit);
+    }
+
+    public List<CityMatch> search(String text, int limit) {
+        return searchIndex.search(text, limit);
     }
 
+    // when persisted, it returns once the coordinates are on disk
     public void addCoordinates(String city, double lat, double lon) {
-        coordinates.put(city, List.of(lat, lon));
+        if (Objects.nonNull(journal)) {
+            journal.append(city, lat, lon);
+        } else {
+            coordinates.put(city, lat, lon);
+        }
+    }
+
+    public void addAllCoordinates(Map<String, List<Double>> newCoordinates) {
+        Map<String, double[]> places = new HashMap<>(newCoordinates.size() * 2);
+        newCoordinates.forEach((city, pair) -> {
+            if (Objects.nonNull(pair) && pair.size() >= 2) {
+                places.put(city, new double[] { pair.get(0), pair.get(1) });
+            }
+        });
+        if (Objects.nonNull(journal)) {
+            journal.appendAll(places);
+        } else {
+            coordinates.putAll(places);
+        }
     }
 }
@@ -0,0 +1,235 @@
+package dev.leosanchez.repositories;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+
+// the coordinates of each place kept in primitive arrays, two doubles per place instead of a list with two boxed doubles
+// the names are split in segments, each one an open addressing table with its own lock, so writers only block the writers of their segment
+// readers never lock, they read optimistically and only retry under the lock if a writer changed the segment meanwhile
+public class CoordinatesTable {
+
+    private static final int SEGMENTS = 16;
+    private static final int SEGMENT_BITS = 4;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final ICoordinatesObserver observer;
+
+    public CoordinatesTable() {
+        this(null);
+    }
+
+    // the observer keeps other structures, like the spatial index, in step with the table
+    public CoordinatesTable(ICoordinatesObserver observer) {
+        this.observer = observer;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    // fills the given array with the latitude and the longitude, returns false if the place is not known
+    public boolean get(String name, double[] coordinates) {
+        int hash = hash(name);
+        return segmentOf(hash).get(name, hash, coordinates);
+    }
+
+    public void put(String name, double lat, double lon) {
+        int hash = hash(name);
+        Segment segment = segmentOf(hash);
+        long stamp = segment.lock.writeLock();
+        try {
+            segment.put(name, hash, lat, lon, observer);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    // the places are grouped by segment first, so each segment is locked once for the whole bulk
+    @SuppressWarnings("unchecked")
+    public void putAll(Map<String, double[]> places) {
+        Map.Entry<String, double[]>[][] grouped = new Map.Entry[SEGMENTS][];
+        int[] counts = new int[SEGMENTS];
+        for (String name : places.keySet()) {
+            counts[segmentIndex(hash(name))]++;
+        }
+        for (int i = 0; i < SEGMENTS; i++) {
+            grouped[i] = new Map.Entry[counts[i]];
+            counts[i] = 0;
+        }
+        for (Map.Entry<String, double[]> place : places.entrySet()) {
+            int index = segmentIndex(hash(place.getKey()));
+            grouped[index][counts[index]++] = place;
+        }
+        for (int i = 0; i < SEGMENTS; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            Segment segment = segments[i];
+            long stamp = segment.lock.writeLock();
+            try {
+                for (Map.Entry<String, double[]> place : grouped[i]) {
+                    segment.put(place.getKey(), hash(place.getKey()), place.getValue()[0], place.getValue()[1], observer);
+                }
+            } finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                size += segment.size;
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    // visits every place, each segment is read under its lock so the visitor sees whole coordinates
+    public void forEach(BiConsumer<String, double[]> visitor) {
+        for (Segment segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                Table table = segment.table;
+                for (int slot = 0; slot < table.names.length; slot++) {
+                    if (Objects.nonNull(table.names[slot])) {
+                        visitor.accept(table.names[slot], new double[] { table.coordinates[slot << 1], table.coordinates[(slot << 1) + 1] });
+                    }
+                }
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    // the string hash is mixed, so names with similar hashes do not land together in the same segment and slots
+    private static int hash(String name) {
+        int hash = name.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int segmentIndex(int hash) {
+        return hash >>> (Integer.SIZE - SEGMENT_BITS);
+    }
+
+    private Segment segmentOf(int hash) {
+        return segments[segmentIndex(hash)];
+    }
+
+    // the arrays of a segment are replaced together when it grows, so a reader never mixes the names of one with the coordinates of another
+    private static class Table {
+        private final String[] names;
+        // the hashes are kept next to the names, so the probe only compares the strings when they match
+        private final int[] hashes;
+        private final double[] coordinates;
+
+        private Table(int capacity) {
+            names = new String[capacity];
+            hashes = new int[capacity];
+            coordinates = new double[capacity << 1];
+        }
+
+        // the probe is bounded by the capacity, a reader racing with a writer may see a table without empty slots
+        private int slotOf(String name, int hash) {
+            int mask = names.length - 1;
+            int slot = hash & mask;
+            for (int probes = 0; probes < names.length; probes++) {
+                String candidate = names[slot];
+                if (Objects.isNull(candidate)) {
+                    return -1 - slot;
+                }
+                if (hashes[slot] == hash && candidate.equals(name)) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return Integer.MIN_VALUE;
+        }
+    }
+
+    private static class Segment {
+        private final StampedLock lock = new StampedLock();
+        private volatile Table table = new Table(INITIAL_CAPACITY);
+        private int size;
+
+        private boolean get(String name, int hash, double[] coordinates) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0L) {
+                boolean found = read(name, hash, coordinates);
+                if (lock.validate(stamp)) {
+                    return found;
+                }
+            }
+            // a writer changed the segment while it was read, so it is read again holding the lock
+            stamp = lock.readLock();
+            try {
+                return read(name, hash, coordinates);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private boolean read(String name, int hash, double[] coordinates) {
+            Table current = table;
+            int slot = current.slotOf(name, hash);
+            if (slot < 0) {
+                return false;
+            }
+            coordinates[0] = current.coordinates[slot << 1];
+            coordinates[1] = current.coordinates[(slot << 1) + 1];
+            return true;
+        }
+
+        // called holding the write lock
+        private void put(String name, int hash, double lat, double lon, ICoordinatesObserver observer) {
+            Table current = table;
+            int slot = current.slotOf(name, hash);
+            if (slot < 0) {
+                // the table is kept at most three quarters full, so the probes stay short
+                if ((size + 1) * 4 > current.names.length * 3) {
+                    current = grow(current);
+                    slot = current.slotOf(name, hash);
+                }
+                slot = -1 - slot;
+                current.coordinates[slot << 1] = lat;
+                current.coordinates[(slot << 1) + 1] = lon;
+                current.hashes[slot] = hash;
+                current.names[slot] = name;
+                size++;
+                if (Objects.nonNull(observer)) {
+                    observer.moved(name, false, 0, 0, lat, lon);
+                }
+                return;
+            }
+            double previousLat = current.coordinates[slot << 1];
+            double previousLon = current.coordinates[(slot << 1) + 1];
+            current.coordinates[slot << 1] = lat;
+            current.coordinates[(slot << 1) + 1] = lon;
+            if (Objects.nonNull(observer)) {
+                observer.moved(name, true, previousLat, previousLon, lat, lon);
+            }
+        }
+
+        private Table grow(Table current) {
+            Table grown = new Table(current.names.length << 1);
+            for (int slot = 0; slot < current.names.length; slot++) {
+                String name = current.names[slot];
+                if (Objects.nonNull(name)) {
+                    int target = -1 - grown.slotOf(name, current.hashes[slot]);
+                    grown.names[target] = name;
+                    grown.hashes[target] = current.hashes[slot];
+                    grown.coordinates[target << 1] = current.coordinates[slot << 1];
+                    grown.coordinates[(target << 1) + 1] = current.coordinates[(slot << 1) + 1];
+                }
+            }
+            table = grown;
+            return grown;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package dev.leosanchez.repositories;
+
+public interface ICoordinatesObserver {
+    // called with the segment of the place locked, so the changes of the same place are observed in the order they were made
+    public void moved(String name, boolean existed, double previousLat, double previousLon, double lat, double lon);
+}
@@ -0,0 +1,152 @@
+package dev.leosanchez.resources;
+
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import dev.leosanchez.DTO.ListenerSettings;
+import dev.leosanchez.DTO.ListenerStatus;
+import dev.leosanchez.services.ListenerLauncherService;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+// lets the listeners be inspected and tuned while the application runs, the listeners are named by their main queue
+@Path("/admin/listeners")
+public class ListenerAdminResource {
+    @Inject
+    ListenerLauncherService listenerLauncher;
+
+    // the endpoints are served on the public port without authentication, so the ones changing the listeners are
+    // only available when enabled (e.g. where the port is only reachable from a management network)
+    @ConfigProperty(name = "listener.admin.enabled", defaultValue = "false")
+    Boolean adminEnabled;
+
+    // endpoint listing the listeners with their settings and stats
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response list() {
+        JsonArray listeners = new JsonArray();
+        listenerLauncher.getListenerStatuses().forEach(status -> listeners.add(toJson(status)));
+        return Response.ok(listeners).build();
+    }
+
+    @GET
+    @Path("/{name}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response get(@PathParam("name") String name) {
+        Optional<ListenerStatus> status = findListener(name);
+        if (status.isEmpty()) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.ok(toJson(status.get())).build();
+    }
+
+    // the polling in progress finishes, no other starts until resumed
+    @POST
+    @Path("/{name}/pause")
+    public Response pause(@PathParam("name") String name) {
+        if (!adminEnabled) {
+            return disabled();
+        }
+        Optional<ListenerStatus> status = findListener(name);
+        if (status.isEmpty() || !listenerLauncher.pauseListener(status.get().getQueueUrl())) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.noContent().build();
+    }
+
+    @POST
+    @Path("/{name}/resume")
+    public Response resume(@PathParam("name") String name) {
+        if (!adminEnabled) {
+            return disabled();
+        }
+        Optional<ListenerStatus> status = findListener(name);
+        if (status.isEmpty() || !listenerLauncher.resumeListener(status.get().getQueueUrl())) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.noContent().build();
+    }
+
+    // endpoint changing the settings given in the body, they are applied by the next polling of the listener
+    // (so a paused listener applies them once resumed, as told by the appliedOn field of the response)
+    @PUT
+    @Path("/{name}/settings")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response reconfigure(@PathParam("name") String name, JsonObject body) {
+        if (!adminEnabled) {
+            return disabled();
+        }
+        Optional<ListenerStatus> status = findListener(name);
+        if (status.isEmpty()) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        if (Objects.isNull(body)) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        try {
+            ListenerSettings settings = new ListenerSettings(body.getInteger("batchSize"), body.getInteger("concurrency"),
+                    body.getInteger("waitTimeSeconds"), body.getDouble("messagesPerSecond"));
+            listenerLauncher.reconfigureListener(status.get().getQueueUrl(), settings);
+        } catch (IllegalArgumentException | ClassCastException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(new JsonObject().put("error", e.getMessage())).build();
+        }
+        ListenerStatus reconfigured = findListener(name).get();
+        JsonObject response = toJson(reconfigured).put("appliedOn", reconfigured.isPaused() ? "resume" : "nextPolling");
+        return Response.accepted(response).build();
+    }
+
+    private Response disabled() {
+        return Response.status(Response.Status.FORBIDDEN)
+                .entity(new JsonObject().put("error", "The listener admin operations are disabled")).build();
+    }
+
+    private Optional<ListenerStatus> findListener(String name) {
+        return listenerLauncher.getListenerStatuses().stream().filter(status -> status.getName().equals(name)).findFirst();
+    }
+
+    private JsonObject toJson(ListenerStatus status) {
+        JsonObject json = new JsonObject();
+        json.put("name", status.getName());
+        json.put("queueUrl", status.getQueueUrl());
+        json.put("listener", status.getListenerClass());
+        json.put("paused", status.isPaused());
+        json.put("lanes", new JsonArray(status.getLanes()));
+        json.put("settings", toJson(status.getSettings()));
+        status.getPendingSettings().ifPresent(pending -> json.put("pendingSettings", toJson(pending)));
+        JsonObject stats = new JsonObject();
+        stats.put("pollers", status.getPollers());
+        stats.put("pollings", status.getPollings());
+        stats.put("emptyPollings", status.getEmptyPollings());
+        stats.put("processed", status.getProcessed());
+        stats.put("failed", status.getFailed());
+        stats.put("averageProcessingMilliseconds", status.getAverageProcessingMilliseconds());
+        stats.put("inFlight", status.getInFlight());
+        stats.put("bufferedMessages", status.getBufferedMessages());
+        json.put("stats", stats);
+        return json;
+    }
+
+    private JsonObject toJson(ListenerSettings settings) {
+        JsonObject json = new JsonObject();
+        json.put("batchSize", settings.getMaxMessagesPerPolling());
+        json.put("concurrency", settings.getMaxConcurrency());
+        // absent while the listener waits the time configured for the adapter
+        if (Objects.nonNull(settings.getWaitTimeSeconds())) {
+            json.put("waitTimeSeconds", settings.getWaitTimeSeconds());
+        }
+        json.put("messagesPerSecond", settings.getMessagesPerSecond());
+        return json;
+    }
+}
@@ -0,0 +1,103 @@
+package dev.leosanchez.services;
+
+// decides the pollers, batch size and workers of a listener from its backlog, its empty receives and its processing latency
+public class AdaptiveController {
+
+    // the bounds of the decisions, the batch size and workers can be changed while listening
+    private final int maxPollers;
+    private int maxBatchSize;
+    private int maxWorkers;
+    // the maximum time the last message of a batch should wait for the previous ones
+    private final long targetLatencyMilliseconds;
+
+    // the current decisions
+    private int pollers = 1;
+    private int batchSize;
+    private int workers;
+
+    // what happened since the last adjustment
+    private int pollings = 0;
+    private int emptyPollings = 0;
+    private int processed = 0;
+    private long intervalStart = System.currentTimeMillis();
+    // moving average of the processing time of a message
+    private double averageLatencyMilliseconds = 0;
+
+    public AdaptiveController(int maxPollers, int maxBatchSize, int maxWorkers, long targetLatencyMilliseconds) {
+        this.maxPollers = Math.max(1, maxPollers);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxWorkers = Math.max(1, maxWorkers);
+        this.targetLatencyMilliseconds = targetLatencyMilliseconds;
+        // we start as configured and adapt from there
+        this.batchSize = this.maxBatchSize;
+        this.workers = this.maxWorkers;
+    }
+
+    public synchronized void recordPolling(int received) {
+        pollings++;
+        if (received == 0) {
+            emptyPollings++;
+        }
+    }
+
+    public synchronized void recordProcessing(long latencyMilliseconds) {
+        processed++;
+        averageLatencyMilliseconds = averageLatencyMilliseconds == 0 ? latencyMilliseconds
+                : averageLatencyMilliseconds * 0.9 + latencyMilliseconds * 0.1;
+    }
+
+    // backlog is the number of messages waiting in the queues, or a negative number if unknown
+    public synchronized void adjust(long backlog) {
+        double seconds = Math.max(0.001, (System.currentTimeMillis() - intervalStart) / 1000.0);
+        long knownBacklog = Math.max(0, backlog);
+        double emptyRate = pollings == 0 ? 1 : (double) emptyPollings / pollings;
+
+        // pollers (AIMD): one more while the backlog exceeds what a round of pollings takes, half when most receives are empty
+        if (knownBacklog > (long) pollers * batchSize && emptyRate < 0.1) {
+            pollers = Math.min(maxPollers, pollers + 1);
+        } else if (emptyRate > 0.5) {
+            pollers = Math.max(1, pollers / 2);
+        }
+
+        // workers (little's law): the messages in process are the arrival rate times the time each one takes
+        if (averageLatencyMilliseconds > 0) {
+            // the backlog is expected to be drained within the next interval
+            double arrivalRate = processed / seconds + knownBacklog / seconds;
+            int required = (int) Math.ceil(arrivalRate * averageLatencyMilliseconds / 1000.0);
+            workers = Math.max(1, Math.min(maxWorkers, required));
+        }
+
+        // batch size (AIMD): halved when the last message of a batch waits too long, one more while there is backlog
+        double batchWaitMilliseconds = batchSize * averageLatencyMilliseconds / workers;
+        if (batchWaitMilliseconds > targetLatencyMilliseconds) {
+            batchSize = Math.max(1, batchSize / 2);
+        } else if (knownBacklog > batchSize) {
+            batchSize = Math.min(maxBatchSize, batchSize + 1);
+        }
+
+        pollings = 0;
+        emptyPollings = 0;
+        processed = 0;
+        intervalStart = System.currentTimeMillis();
+    }
+
+    // the current decisions are kept within the new bounds, and grow up to them as before
+    public synchronized void setLimits(int maxBatchSize, int maxWorkers) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxWorkers = Math.max(1, maxWorkers);
+        batchSize = Math.min(batchSize, this.maxBatchSize);
+        workers = Math.min(workers, this.maxWorkers);
+    }
+
+    public synchronized int getPollers() {
+        return pollers;
+    }
+
+    public synchronized int getBatchSize() {
+        return batchSize;
+    }
+
+    public synchronized int getWorkers() {
+        return workers;
+    }
+}
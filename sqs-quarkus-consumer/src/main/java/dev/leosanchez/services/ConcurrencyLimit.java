@@ -0,0 +1,89 @@
+package dev.leosanchez.services;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// the messages of a listener processing at the same time on virtual threads, which are not pooled
+// the poller reserves room before receiving, so it keeps receiving while there is room instead of waiting for its batch
+public class ConcurrencyLimit {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    // the maximum number of messages processing at the same time
+    private int limit;
+    // the messages processing, including the room reserved by the polling in progress
+    private int inFlight = 0;
+
+    public ConcurrencyLimit(int limit) {
+        this.limit = Math.max(1, limit);
+    }
+
+    // blocks the poller until there is room for a message, and reserves room for up to the given number of them
+    public int reserve(int messages) throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight >= limit) {
+                changed.await();
+            }
+            int reserved = Math.min(messages, limit - inFlight);
+            inFlight += reserved;
+            return reserved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // takes room for a message that was not reserved, waiting until there is some
+    public void acquire() {
+        lock.lock();
+        try {
+            while (inFlight >= limit) {
+                changed.awaitUninterruptibly();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // frees the room of the messages processed or not received
+    public void release(int messages) {
+        lock.lock();
+        try {
+            inFlight -= messages;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // the messages already processing finish, the new limit applies to the next ones
+    public void resize(int limit) {
+        lock.lock();
+        try {
+            this.limit = Math.max(1, limit);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // waits until no message is processing, returns false on timeout
+    public boolean awaitIdle(long timeoutMilliseconds) throws InterruptedException {
+        lock.lock();
+        try {
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMilliseconds);
+            while (inFlight > 0) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = changed.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
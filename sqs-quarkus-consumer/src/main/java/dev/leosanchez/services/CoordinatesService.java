@@ -1,10 +1,13 @@
 package dev.leosanchez.services;
 
 import java.util.List;
+import java.util.Map;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
+import dev.leosanchez.DTO.CityMatch;
+import dev.leosanchez.DTO.Place;
 import dev.leosanchez.repositories.CoordinatesRepository;
 
 @ApplicationScoped
@@ -19,4 +22,20 @@ public class CoordinatesService {
     public void addCoordinates(String city, double lat, double lon) {
         repository.addCoordinates(city, lat, lon);
     }
+
+    public void addCoordinatesInBulk(Map<String, List<Double>> coordinates) {
+        repository.addAllCoordinates(coordinates);
+    }
+
+    public List<Place> getNearest(double lat, double lon, int k) {
+        return repository.findNearest(lat, lon, k);
+    }
+
+    public List<Place> getWithin(double minLat, double minLon, double maxLat, double maxLon, int limit) {
+        return repository.findWithin(minLat, minLon, maxLat, maxLon, limit);
+    }
+
+    public List<CityMatch> searchCities(String text, int limit) {
+        return repository.search(text, limit);
+    }
 }
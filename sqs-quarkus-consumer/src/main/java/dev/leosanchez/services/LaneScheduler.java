@@ -0,0 +1,74 @@
+package dev.leosanchez.services;
+
+import java.util.List;
+
+import dev.leosanchez.DTO.ListenLane;
+
+// chooses the lane of a listener that is polled next
+// lanes with pending messages starve the lanes with lower priority, otherwise each lane is polled according to its weight
+public class LaneScheduler {
+
+    private final List<ListenLane> lanes;
+    // the accumulated weight of each lane (smooth weighted round robin)
+    private final int[] currentWeights;
+    // if the last polling of each lane received messages
+    private final boolean[] backlog;
+    // the moment until each lane is not polled because it failed
+    private final long[] suspendedUntil;
+
+    public LaneScheduler(List<ListenLane> lanes) {
+        this.lanes = lanes;
+        this.currentWeights = new int[lanes.size()];
+        this.backlog = new boolean[lanes.size()];
+        this.suspendedUntil = new long[lanes.size()];
+    }
+
+    public synchronized ListenLane next() {
+        long now = System.currentTimeMillis();
+        // if every lane is suspended we keep polling all of them, the caller decides what to do with the failures
+        boolean allSuspended = true;
+        for (int i = 0; i < lanes.size(); i++) {
+            allSuspended = allSuspended && suspendedUntil[i] > now;
+        }
+        // the highest priority with pending messages, the lanes below it wait until it is drained
+        int minPriority = Integer.MIN_VALUE;
+        for (int i = 0; i < lanes.size(); i++) {
+            if (backlog[i] && isAvailable(i, now, allSuspended)) {
+                minPriority = Math.max(minPriority, lanes.get(i).getPriority());
+            }
+        }
+        // each eligible lane accumulates its weight and the one with the highest accumulated weight is chosen
+        int totalWeight = 0;
+        int chosen = -1;
+        for (int i = 0; i < lanes.size(); i++) {
+            if (lanes.get(i).getPriority() >= minPriority && isAvailable(i, now, allSuspended)) {
+                int weight = Math.max(1, lanes.get(i).getWeight());
+                currentWeights[i] += weight;
+                totalWeight += weight;
+                if (chosen < 0 || currentWeights[i] > currentWeights[chosen]) {
+                    chosen = i;
+                }
+            }
+        }
+        currentWeights[chosen] -= totalWeight;
+        return lanes.get(chosen);
+    }
+
+    public synchronized void report(ListenLane lane, boolean pendingMessages) {
+        backlog[lanes.indexOf(lane)] = pendingMessages;
+    }
+
+    public synchronized void suspend(ListenLane lane, long milliseconds) {
+        int index = lanes.indexOf(lane);
+        backlog[index] = false;
+        suspendedUntil[index] = System.currentTimeMillis() + milliseconds;
+    }
+
+    public int size() {
+        return lanes.size();
+    }
+
+    private boolean isAvailable(int index, long now, boolean allSuspended) {
+        return allSuspended || suspendedUntil[index] <= now;
+    }
+}
@@ -1,31 +1,61 @@
 package dev.leosanchez.services;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
-import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 
 import dev.leosanchez.common.dto.QueueMessage;
 import dev.leosanchez.common.exceptions.MessagePollingException;
 
 import org.eclipse.microprofile.config.ConfigProvider;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
+import dev.leosanchez.DTO.BatchMessage;
+import dev.leosanchez.DTO.ListenLane;
 import dev.leosanchez.DTO.ListenRequest;
+import dev.leosanchez.DTO.ListenerSettings;
+import dev.leosanchez.DTO.ListenerStatus;
+import dev.leosanchez.listeners.IBatchListener;
 import dev.leosanchez.listeners.IListener;
+import dev.leosanchez.listeners.IStreamingListener;
+import dev.leosanchez.listeners.StreamInterruptedException;
+import dev.leosanchez.listeners.ListenerContext;
 import dev.leosanchez.qualifiers.ListenerQualifier;
+import dev.leosanchez.listeners.runtime.ListenerDefinition;
+import dev.leosanchez.listeners.runtime.ListenerDefinitions;
+import dev.leosanchez.listeners.runtime.ListenerLaneDefinition;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import io.quarkus.arc.ClientProxy;
+import io.quarkus.arc.InjectableInstance;
+import io.quarkus.arc.InstanceHandle;
 import io.quarkus.runtime.Startup;
 import io.quarkus.runtime.configuration.ProfileManager;
 
@@ -36,174 +66,918 @@ public class ListenerLauncherService {
     // a simple logger
     private static Logger LOG = Logger.getLogger(ListenerLauncherService.class);
 
+    // the time a failing queue is not polled
+    private static final Long FAILING_SUSPENSION = 5 * 60 * 1000L;
+
     // our listeners injected and filtered by the qualifier
     @ListenerQualifier
-    Instance<IListener> partialListeners;
+    InjectableInstance<IListener> partialListeners;
+
+    // the annotations of the listeners, read when the application was built
+    @Inject
+    ListenerDefinitions listenerDefinitions;
 
     // the provider we implemented
     @Inject
     QueueConsumerService queueConsumerService;
 
+    // sends the responses of the listeners that batch them
+    @Inject
+    ResponseBatchSender responseBatchSender;
+
+    // the registry where the listener metrics are published
+    @Inject
+    MeterRegistry registry;
+
+    // platform (messages processed on the workers of each listener) or virtual (each message on its own virtual thread, java 21+)
+    @ConfigProperty(name = "listener.execution-mode", defaultValue = "platform")
+    String executionMode;
+
+    // the executor that starts a virtual thread per message, empty if we use platform threads
+    private Optional<ExecutorService> virtualThreadExecutor = Optional.empty();
+
+    // the messages each parallel listener processes at the same time on virtual threads, by the url of its main queue
+    private final Map<String, ConcurrencyLimit> concurrencyLimits = new ConcurrentHashMap<>();
+
+    // the lane scheduling of each listener, by the url of its main queue
+    private final Map<String, LaneScheduler> laneSchedulers = new ConcurrentHashMap<>();
+
+    // the polling loop of each listener, by the url of its main queue
+    private final Map<String, PollingLoop> pollingLoops = new ConcurrentHashMap<>();
+
+    // the workers of each parallel listener, by the url of its main queue
+    private final Map<String, ThreadPoolExecutor> workerPools = new ConcurrentHashMap<>();
+
+    // the messages received ahead of demand for each pipelined listener, by the url of its main queue
+    private final Map<String, PrefetchBuffer> prefetchBuffers = new ConcurrentHashMap<>();
+
+    // the threads draining the prefetch buffers
+    private final List<ExecutorService> drainerPools = new CopyOnWriteArrayList<>();
+
+    // the adaptive control of each listener, by the url of its main queue
+    private final Map<String, AdaptiveController> adaptiveControllers = new ConcurrentHashMap<>();
+
+    // the pollers added to each listener by its adaptive control
+    private final Map<String, List<PollingLoop>> extraPollers = new ConcurrentHashMap<>();
+
+    // the pacing of each listener with a limited rate, by the url of its main queue
+    private final Map<String, TokenBucket> pacers = new ConcurrentHashMap<>();
+
+    // the threads running the polling loops
+    private final List<ScheduledExecutorService> pollingSchedulers = new CopyOnWriteArrayList<>();
+
+    // the listeners being orchestrated, by the url of their main queue
+    private final Map<String, ListenRequest> listenRequests = new ConcurrentHashMap<>();
+
+    // the settings changed while listening, applied by the next polling of each listener
+    private final Map<String, ListenerSettings> pendingSettings = new ConcurrentHashMap<>();
+
+    // what each listener did since it started, by the url of its main queue
+    private final Map<String, ListenerStats> listenerStats = new ConcurrentHashMap<>();
+
+    // the wait before polling again a listener whose queues were empty, doubled on each empty polling
+    @ConfigProperty(name = "listener.empty-backoff.initial-milliseconds", defaultValue = "100")
+    Long initialBackoffMilliseconds;
+
+    @ConfigProperty(name = "listener.empty-backoff.max-milliseconds", defaultValue = "5000")
+    Long maxBackoffMilliseconds;
+
+    // if enabled, the pollers, batch size and workers of each listener adapt to its backlog and latency
+    @ConfigProperty(name = "listener.adaptive.enabled", defaultValue = "false")
+    Boolean adaptive;
+
+    @ConfigProperty(name = "listener.adaptive.interval-seconds", defaultValue = "10")
+    Long adaptiveIntervalSeconds;
+
+    // the maximum number of concurrent pollers of a listener
+    @ConfigProperty(name = "listener.adaptive.max-pollers", defaultValue = "4")
+    Integer maxPollers;
+
+    // the maximum time the last message of a batch should wait for the previous ones
+    @ConfigProperty(name = "listener.adaptive.target-latency-milliseconds", defaultValue = "1000")
+    Long adaptiveTargetLatencyMilliseconds;
+
+    // the maximum time a prefetched message should wait before being processed (the default visibility timeout of sqs)
+    @ConfigProperty(name = "listener.prefetch.max-buffered-seconds", defaultValue = "30")
+    Long maxBufferedSeconds;
+
+    // the time the application waits on stop for the pollings in progress and the messages already received
+    @ConfigProperty(name = "listener.shutdown.timeout-seconds", defaultValue = "30")
+    Long shutdownTimeoutSeconds;
+
     @PostConstruct
     public void init() {
+        if (executionMode.equals("virtual")) {
+            virtualThreadExecutor = createVirtualThreadExecutor();
+        }
         // we just want to launch the listeners if the profile is not test
         if (!ProfileManager.getActiveProfile().equals("test")) {
             LOG.info("Launching listeners");
             // we transform the data so we can handle it in a more readable way
             List<ListenRequest> requests = extractListenRequests();
-            // we launch the listening orchestation in a different thread to avoid blocking the main thread
-            Executors.newSingleThreadExecutor().submit(() -> orchestrateListeners(requests, null));
+            // the listeners poll in their own threads, so the main thread is not blocked
+            orchestrateListeners(requests, null);
         }
     }
 
     private List<ListenRequest> extractListenRequests() {
         // our initial response
         List<ListenRequest> requests = new ArrayList<>();
-        // we iterate the injected listeners
-        for (IListener listener : partialListeners) {
-            // we extract the original class name from the proxy (Quarkus does not inject the bean directly)
-            String listenerProxyClassName = listener.getClass().getName();
-            String listenerClassName = cleanClassName(listenerProxyClassName);
-            // we load the original class
-            Class<?> listenerClass = null;
-            try {
-                listenerClass = Class.forName(listenerClassName);
-            } catch (ClassNotFoundException e) {
-                e.printStackTrace();
+        // we iterate the injected listeners, each with the bean that tells us its class
+        for (InstanceHandle<IListener> handle : partialListeners.handles()) {
+            String listenerClassName = handle.getBean().getBeanClass().getName();
+            // the metadata of the listener was read from its annotation when the application was built
+            Optional<ListenerDefinition> definition = listenerDefinitions.forBeanClass(listenerClassName);
+            if (definition.isEmpty()) {
                 LOG.error("Metadata for listener " + listenerClassName + " not found. Skipping...");
                 continue;
             }
-            // We get the annotation from the original class
-            ListenerQualifier annotation = listenerClass.getAnnotation(ListenerQualifier.class);
-            // if the annotation has an valid url property we continue
-            if (Objects.nonNull(annotation.urlProperty()) && !annotation.urlProperty().equals("")) {
-                // we get the url from properties
-                String url = ConfigProvider.getConfig().getValue(annotation.urlProperty(), String.class);
-                // we build an object containing all the information
-                ListenRequest lr = new ListenRequest(listener, url, annotation.parallelProcessing(),
-                        annotation.maxNumberOfMessagesPerProcessing(), annotation.minProcessingMilliseconds());
-                // we append it to our response
-                requests.add(lr);
+            // we get the url from properties
+            Optional<String> configuredUrl = ConfigProvider.getConfig().getOptionalValue(definition.get().getUrlProperty(), String.class);
+            if (configuredUrl.isEmpty() && definition.get().isOptional()) {
+                LOG.info("Queue " + definition.get().getUrlProperty() + " of listener " + listenerClassName + " not configured. Skipping...");
+                continue;
             }
+            // a required queue fails the startup if missing
+            String url = configuredUrl.orElseGet(() -> ConfigProvider.getConfig().getValue(definition.get().getUrlProperty(), String.class));
+            // the queue of the listener is its first lane, the others are added if configured
+            List<ListenLane> lanes = new ArrayList<>();
+            lanes.add(new ListenLane(url, definition.get().getPriority(), definition.get().getWeight()));
+            for (ListenerLaneDefinition lane : definition.get().getLanes()) {
+                Optional<String> laneUrl = ConfigProvider.getConfig().getOptionalValue(lane.getUrlProperty(), String.class);
+                if (laneUrl.isPresent()) {
+                    lanes.add(new ListenLane(laneUrl.get(), lane.getPriority(), lane.getWeight()));
+                } else {
+                    LOG.info("Lane " + lane.getUrlProperty() + " of listener " + listenerClassName + " not configured. Skipping...");
+                }
+            }
+            // we build an object containing all the information
+            ListenRequest lr = new ListenRequest(handle.get(), url, definition.get().isParallelProcessing(),
+                    definition.get().getMaxNumberOfMessagesPerProcessing(), definition.get().getMinProcessingMilliseconds(),
+                    definition.get().getMaxConcurrency(), lanes, definition.get().getQueueCapacity(),
+                    definition.get().getPrefetchCapacity(), definition.get().getMessagesPerSecond(),
+                    definition.get().isBatchResponses());
+            // we append it to our response
+            requests.add(lr);
         }
         return requests;
     }
 
     public void orchestrateListeners(List<ListenRequest> requests, Integer pollingQuantity) {
-        // here we will store the current executions
-        Map<String, Future<?>> currentExecutions = new HashMap<>();
-        // we will also keep a record of the quantity of the pollings performed per listener
-        Map<String, Integer> pollingRecord = requests.stream().collect(Collectors.toMap(ListenRequest::getQueueUrl, e -> 0));
-        // we keep a record of suspensions in case a polling fails
-        Map<String, Long> queuePollingSuspension = new HashMap<>();
-        Long failingSuspension = 5 * 60 * 1000L;
-        
-        // iterate continuosly  or until iterations are done
-        while (Objects.isNull(pollingQuantity) || !pollingRecord.values().stream().allMatch(p -> p >= pollingQuantity)) {
-            // we iterate each request extracted
+        // the adaptive control only runs while listening continuously
+        boolean adaptiveListeners = adaptive && Objects.isNull(pollingQuantity);
+        // each listener polls in its own loops, which only take a thread while they poll and process their messages
+        int pollersPerListener = adaptiveListeners ? maxPollers : 1;
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(Math.max(1, requests.size() * pollersPerListener),
+                namedThreads("listener-poller"));
+        pollingSchedulers.add(scheduler);
+        List<PollingLoop> loops = new ArrayList<>();
+        for (ListenRequest request : requests) {
+            listenRequests.put(request.getQueueUrl(), request);
+            statsOf(request);
+            createPacer(request);
+            if (request.getPrefetchCapacity() > 0 && request.getListener() instanceof IBatchListener) {
+                // a batch listener already receives all the messages of a polling at once
+                LOG.warn("Listener of " + request.getQueueUrl() + " processes whole batches, prefetching is ignored");
+            } else if (request.getPrefetchCapacity() > 0) {
+                startPipeline(request);
+            }
+            PollingLoop loop = new PollingLoop(request.getQueueUrl(), scheduler, () -> performPolling(request), pollingQuantity,
+                    initialBackoffMilliseconds, maxBackoffMilliseconds, FAILING_SUSPENSION);
+            pollingLoops.put(request.getQueueUrl(), loop);
+            loops.add(loop);
+            loop.start();
+            if (adaptiveListeners && isAdaptable(request)) {
+                startAdaptiveControl(request, scheduler);
+            } else if (adaptiveListeners) {
+                LOG.warn("Listener of " + request.getQueueUrl() + " does not process on a pool of workers, adaptive control is ignored");
+            }
+        }
+        // if the number of pollings is limited, we wait for the loops to finish
+        if (Objects.nonNull(pollingQuantity)) {
+            loops.forEach(PollingLoop::awaitFinish);
+            scheduler.shutdown();
+            // the prefetched messages and the ones processing on virtual threads are processed before returning
             for (ListenRequest request : requests) {
-                // we check how much pollings have been done for this request
-                Integer currentIterations = pollingRecord.get(request.getQueueUrl());
-                if (! queuePollingSuspension.containsKey(request.getQueueUrl()) ||  queuePollingSuspension.get(request.getQueueUrl()) < System.currentTimeMillis()) {
-                    // if we dont limit the number of pollings or  if the current number of pollings is less than the one desired, continue
-                    if (Objects.isNull(pollingQuantity) || currentIterations <  pollingQuantity ) {
-                        // we verify if there is a current execution for this request
-                        Future<?> currentTask = currentExecutions.get(request.getQueueUrl());
-                        // if there is no execution or if the current execution is done, run a new one for the request
-                        // if there is an execution not done, we skip this request and in a new execution we will check if it is finished
-                        if (Objects.isNull(currentTask) || currentTask.isDone()) {
-                            // we define and run the new task
-                            Future<?> currentExecution = CompletableFuture.runAsync(() -> {
-                                try {
-                                    performPolling(request);
-                                } catch (Exception e) {
-                                    e.printStackTrace();
-                                    LOG.error("Polling for " + request.getQueueUrl() + " failed, retrying in "+failingSuspension+" milliseconds");
-                                    queuePollingSuspension.put(request.getQueueUrl(), System.currentTimeMillis() + failingSuspension);
-                                }
-                            });
-                            // we save it on our records
-                            currentExecutions.put(request.getQueueUrl(), currentExecution);
-                            // if the polling quantity param was specified, then update the polling records
-                            if(Objects.nonNull(pollingQuantity)) {
-                                pollingRecord.put(request.getQueueUrl(), currentIterations + 1);
-                            }
-                        }
+                PrefetchBuffer buffer = prefetchBuffers.get(request.getQueueUrl());
+                ConcurrencyLimit limit = concurrencyLimits.get(request.getQueueUrl());
+                try {
+                    if (Objects.nonNull(buffer) && !buffer.awaitDrained(maxBufferedSeconds * 1000)) {
+                        LOG.warn("Prefetched messages of " + request.getQueueUrl() + " not processed in time");
+                    }
+                    if (Objects.nonNull(limit) && !limit.awaitIdle(maxBufferedSeconds * 1000)) {
+                        LOG.warn("Messages of " + request.getQueueUrl() + " not processed in time");
                     }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 }
             }
         }
-        // once the polling limit is reached, we wait for the current executions to finish
-        for (Future<?> future : currentExecutions.values()) {
+    }
+
+    private void createPacer(ListenRequest request) {
+        int workers = workerCount(request);
+        // a minimum processing time was a way of limiting each worker to a message every that time
+        double messagesPerSecond = Objects.nonNull(request.getMessagesPerSecond()) && request.getMessagesPerSecond() > 0
+                ? request.getMessagesPerSecond()
+                : request.getMinExecutionMilliseconds() > 0 ? workers * 1000.0 / request.getMinExecutionMilliseconds() : 0;
+        if (messagesPerSecond <= 0) {
+            pacers.remove(request.getQueueUrl());
+            return;
+        }
+        // every worker can start right away after the listener was idle
+        pacers.put(request.getQueueUrl(), new TokenBucket(messagesPerSecond, workers));
+        LOG.info("Listener of " + request.getQueueUrl() + " will dispatch up to " + messagesPerSecond + " messages per second");
+    }
+
+    // the adaptive control sizes the pool of workers and adds pollers sharing it, so it only applies to the listeners
+    // processing on that pool: sequential and batch listeners must not poll concurrently, the prefetch drainers are
+    // started with a fixed size, and on virtual threads a single poller keeps receiving while the concurrency allows
+    private boolean isAdaptable(ListenRequest request) {
+        return request.isParallelProcessing() && request.getPrefetchCapacity() == 0
+                && !(request.getListener() instanceof IBatchListener) && virtualThreadExecutor.isEmpty();
+    }
+
+    private void startAdaptiveControl(ListenRequest request, ScheduledExecutorService scheduler) {
+        AdaptiveController controller = new AdaptiveController(maxPollers, request.getMaxMessagesPerPolling(),
+                workerCount(request), adaptiveTargetLatencyMilliseconds);
+        adaptiveControllers.put(request.getQueueUrl(), controller);
+        Tags tags = Tags.of("queue", request.getQueueUrl());
+        registry.gauge("listener.adaptive.pollers", tags, controller, AdaptiveController::getPollers);
+        registry.gauge("listener.adaptive.batch_size", tags, controller, AdaptiveController::getBatchSize);
+        registry.gauge("listener.adaptive.workers", tags, controller, AdaptiveController::getWorkers);
+        scheduler.scheduleWithFixedDelay(() -> {
             try {
-                future.get();
+                adaptListener(request, controller, scheduler);
             } catch (Exception e) {
-                e.printStackTrace();
+                LOG.error("Error adapting listener of " + request.getQueueUrl(), e);
             }
+        }, adaptiveIntervalSeconds, adaptiveIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    private void adaptListener(ListenRequest request, AdaptiveController controller, ScheduledExecutorService scheduler) {
+        // the messages waiting in all the lanes of the listener
+        long backlog = 0;
+        for (ListenLane lane : request.getLanes()) {
+            try {
+                backlog += queueConsumerService.getBacklog(lane.getQueueUrl());
+            } catch (Exception e) {
+                LOG.warn("Backlog of " + lane.getQueueUrl() + " unknown, adapting without it");
+                backlog = -1;
+                break;
+            }
+        }
+        controller.adjust(backlog);
+        // the main poller always exists, the others are added or stopped
+        List<PollingLoop> extras = extraPollers.computeIfAbsent(request.getQueueUrl(), url -> new CopyOnWriteArrayList<>());
+        PollingLoop mainLoop = pollingLoops.get(request.getQueueUrl());
+        if (Objects.nonNull(mainLoop) && !mainLoop.isPaused()) {
+            while (extras.size() < controller.getPollers() - 1) {
+                PollingLoop loop = new PollingLoop(request.getQueueUrl(), scheduler, () -> performPolling(request), null,
+                        initialBackoffMilliseconds, maxBackoffMilliseconds, FAILING_SUSPENSION);
+                extras.add(loop);
+                loop.start();
+            }
+        }
+        while (extras.size() > controller.getPollers() - 1) {
+            extras.remove(extras.size() - 1).stop();
+        }
+        resizeWorkers(request, controller.getWorkers());
+        LOG.debug("Listener of " + request.getQueueUrl() + " adapted to " + controller.getPollers() + " pollers, batches of "
+                + controller.getBatchSize() + " and " + controller.getWorkers() + " workers, backlog " + backlog);
+    }
+
+    // called by the adaptive control and by the pollers applying new settings, the two sizes must change together
+    private synchronized void resizeWorkers(ListenRequest request, int size) {
+        ThreadPoolExecutor workers = workerPools.get(request.getQueueUrl());
+        if (Objects.nonNull(workers) && workers.getMaximumPoolSize() != size) {
+            // the core size can never be greater than the maximum size
+            if (size > workers.getMaximumPoolSize()) {
+                workers.setMaximumPoolSize(size);
+                workers.setCorePoolSize(size);
+            } else {
+                workers.setCorePoolSize(size);
+                workers.setMaximumPoolSize(size);
+            }
+        }
+    }
+
+    private void startPipeline(ListenRequest request) {
+        // sequential listeners drain their buffer with a single worker
+        int workers = workerCount(request);
+        PrefetchBuffer buffer = new PrefetchBuffer(request.getPrefetchCapacity(), workers, maxBufferedSeconds * 1000);
+        prefetchBuffers.put(request.getQueueUrl(), buffer);
+        registry.gauge("listener.prefetch.buffered", Tags.of("queue", request.getQueueUrl()), buffer, PrefetchBuffer::size);
+        registry.gauge("listener.prefetch.watermark", Tags.of("queue", request.getQueueUrl()), buffer, PrefetchBuffer::getWatermark);
+        // the workers take messages as soon as they are free, while the poller keeps the buffer filled
+        ExecutorService drainers = Executors.newFixedThreadPool(workers, namedThreads("listener-" + queueName(request)));
+        drainerPools.add(drainers);
+        for (int i = 0; i < workers; i++) {
+            drainers.submit(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    QueueMessage message;
+                    try {
+                        message = buffer.take();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long start = System.currentTimeMillis();
+                    try {
+                        processMessage(message, request);
+                    } catch (Exception e) {
+                        LOG.error("Error processing message of queue " + request.getQueueUrl(), e);
+                    } finally {
+                        buffer.done(System.currentTimeMillis() - start);
+                    }
+                }
+            });
+        }
+        LOG.info("Listener of " + request.getQueueUrl() + " will prefetch up to " + request.getPrefetchCapacity() + " messages");
+    }
+
+    // no new pollings are made for the listener until it is resumed
+    public boolean pauseListener(String queueUrl) {
+        PollingLoop loop = pollingLoops.get(queueUrl);
+        if (Objects.isNull(loop)) {
+            return false;
+        }
+        loop.pause();
+        extraPollers.getOrDefault(queueUrl, List.of()).forEach(PollingLoop::pause);
+        return true;
+    }
+
+    public boolean resumeListener(String queueUrl) {
+        PollingLoop loop = pollingLoops.get(queueUrl);
+        if (Objects.isNull(loop)) {
+            return false;
+        }
+        loop.resume();
+        extraPollers.getOrDefault(queueUrl, List.of()).forEach(PollingLoop::resume);
+        return true;
+    }
+
+    // the changes are validated now and applied by the next polling of the listener, so no polling sees half of them
+    public boolean reconfigureListener(String queueUrl, ListenerSettings settings) {
+        ListenRequest request = listenRequests.get(queueUrl);
+        if (Objects.isNull(request)) {
+            return false;
+        }
+        if (Objects.nonNull(settings.getMaxMessagesPerPolling())
+                && (settings.getMaxMessagesPerPolling() < 1 || settings.getMaxMessagesPerPolling() > 10)) {
+            throw new IllegalArgumentException("The batch size must be between 1 and 10");
         }
+        if (Objects.nonNull(settings.getWaitTimeSeconds()) && (settings.getWaitTimeSeconds() < 0 || settings.getWaitTimeSeconds() > 20)) {
+            throw new IllegalArgumentException("The wait time must be between 0 and 20 seconds");
+        }
+        if (Objects.nonNull(settings.getMessagesPerSecond()) && settings.getMessagesPerSecond() < 0) {
+            throw new IllegalArgumentException("The messages per second cannot be negative");
+        }
+        if (Objects.nonNull(settings.getMaxConcurrency())) {
+            if (settings.getMaxConcurrency() < 1) {
+                throw new IllegalArgumentException("The concurrency must be at least 1");
+            }
+            if (!request.isParallelProcessing()) {
+                throw new IllegalArgumentException("The listener processes its messages sequentially");
+            }
+            if (prefetchBuffers.containsKey(queueUrl)) {
+                // the buffer and its drainers are sized for the workers they were started with
+                throw new IllegalArgumentException("The concurrency of a prefetching listener cannot be changed while listening");
+            }
+        }
+        pendingSettings.merge(queueUrl, settings, ListenerSettings::merge);
+        LOG.info("Listener of " + queueUrl + " will be reconfigured on its next polling");
+        return true;
     }
 
+    public List<ListenerStatus> getListenerStatuses() {
+        return listenRequests.values().stream().map(this::describe).collect(Collectors.toList());
+    }
+
+    private ListenerStatus describe(ListenRequest request) {
+        String queueUrl = request.getQueueUrl();
+        PollingLoop loop = pollingLoops.get(queueUrl);
+        ListenerStats stats = statsOf(request);
+        PrefetchBuffer buffer = prefetchBuffers.get(queueUrl);
+        ListenerSettings settings = new ListenerSettings(request.getMaxMessagesPerPolling(), workerCount(request),
+                request.getWaitTimeSeconds(), request.getMessagesPerSecond());
+        // the injected listeners are proxies of their beans
+        String listenerClass = request.getListener() instanceof ClientProxy
+                ? ((ClientProxy) request.getListener()).arc_bean().getBeanClass().getName()
+                : request.getListener().getClass().getName();
+        return new ListenerStatus(queueName(request), queueUrl, listenerClass,
+                Objects.nonNull(loop) && loop.isPaused(),
+                request.getLanes().stream().map(ListenLane::getQueueUrl).collect(Collectors.toList()),
+                settings, pendingSettings.get(queueUrl),
+                1 + extraPollers.getOrDefault(queueUrl, List.of()).size(),
+                stats.getPollings(), stats.getEmptyPollings(), stats.getProcessed(), stats.getFailed(),
+                stats.getAverageProcessingMilliseconds(),
+                stats.getInFlight(),
+                Objects.nonNull(buffer) ? buffer.size() : 0);
+    }
+
+    private ListenerStats statsOf(ListenRequest request) {
+        return listenerStats.computeIfAbsent(request.getQueueUrl(), url -> new ListenerStats(registry, url));
+    }
+
+    private void applyPendingSettings(ListenRequest request) {
+        ListenerSettings settings = pendingSettings.remove(request.getQueueUrl());
+        if (Objects.isNull(settings)) {
+            return;
+        }
+        if (Objects.nonNull(settings.getMaxMessagesPerPolling())) {
+            request.setMaxMessagesPerPolling(settings.getMaxMessagesPerPolling());
+        }
+        if (Objects.nonNull(settings.getWaitTimeSeconds())) {
+            request.setWaitTimeSeconds(settings.getWaitTimeSeconds());
+        }
+        if (Objects.nonNull(settings.getMaxConcurrency())) {
+            request.setMaxConcurrency(settings.getMaxConcurrency());
+            resizeWorkers(request, settings.getMaxConcurrency());
+            ConcurrencyLimit limit = concurrencyLimits.get(request.getQueueUrl());
+            if (Objects.nonNull(limit)) {
+                limit.resize(settings.getMaxConcurrency());
+            }
+        }
+        if (Objects.nonNull(settings.getMessagesPerSecond())) {
+            request.setMessagesPerSecond(settings.getMessagesPerSecond());
+        }
+        // the pacing burst follows the workers, so it is rebuilt if any of them changed
+        if (Objects.nonNull(settings.getMessagesPerSecond()) || Objects.nonNull(settings.getMaxConcurrency())) {
+            createPacer(request);
+        }
+        // with adaptive control the new values are the bounds it adapts within
+        AdaptiveController controller = adaptiveControllers.get(request.getQueueUrl());
+        if (Objects.nonNull(controller)) {
+            controller.setLimits(request.getMaxMessagesPerPolling(), workerCount(request));
+        }
+        LOG.info("Listener of " + request.getQueueUrl() + " reconfigured to batches of " + request.getMaxMessagesPerPolling() + ", "
+                + workerCount(request) + " workers and " + request.getMessagesPerSecond() + " messages per second");
+    }
 
-    private void performPolling(ListenRequest request) throws MessagePollingException {
-            LOG.info("polling messages for queue " + request.getQueueUrl());
+    @PreDestroy
+    public void stopListeners() {
+        // no polling starts again, the ones in progress finish and their messages are processed while there is time
+        pollingLoops.values().forEach(PollingLoop::pause);
+        extraPollers.values().forEach(extras -> extras.forEach(PollingLoop::pause));
+        pollingSchedulers.forEach(ExecutorService::shutdown);
+        workerPools.values().forEach(ExecutorService::shutdown);
+        long deadline = System.currentTimeMillis() + shutdownTimeoutSeconds * 1000;
+        try {
+            for (ExecutorService scheduler : pollingSchedulers) {
+                scheduler.awaitTermination(remainingMilliseconds(deadline), TimeUnit.MILLISECONDS);
+            }
+            for (PrefetchBuffer buffer : prefetchBuffers.values()) {
+                buffer.awaitDrained(remainingMilliseconds(deadline));
+            }
+            for (ExecutorService workers : workerPools.values()) {
+                workers.awaitTermination(remainingMilliseconds(deadline), TimeUnit.MILLISECONDS);
+            }
+            for (ConcurrencyLimit limit : concurrencyLimits.values()) {
+                limit.awaitIdle(remainingMilliseconds(deadline));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pollingSchedulers.forEach(ExecutorService::shutdownNow);
+        workerPools.values().forEach(ExecutorService::shutdownNow);
+        drainerPools.forEach(ExecutorService::shutdownNow);
+        virtualThreadExecutor.ifPresent(ExecutorService::shutdownNow);
+        // the prefetched messages not processed in time go back to their queue, where another instance receives them
+        prefetchBuffers.forEach((queueUrl, buffer) -> {
+            List<QueueMessage> remaining = buffer.drain();
+            if (!remaining.isEmpty()) {
+                LOG.warn("Returning " + remaining.size() + " prefetched messages of " + queueUrl + " not processed before stopping");
+                remaining.forEach(queueConsumerService::release);
+            }
+        });
+    }
+
+    private long remainingMilliseconds(long deadline) {
+        return Math.max(0, deadline - System.currentTimeMillis());
+    }
+
+    // returns if messages were received, so the loop knows if it has to back off
+    private boolean performPolling(ListenRequest request) throws MessagePollingException {
+            applyPendingSettings(request);
+            // we choose which of the queues of the listener is polled this time
+            LaneScheduler scheduler = laneSchedulers.computeIfAbsent(request.getQueueUrl(), url -> new LaneScheduler(request.getLanes()));
+            ListenLane lane = scheduler.next();
+            LOG.info("polling messages for queue " + lane.getQueueUrl());
+            AdaptiveController controller = adaptiveControllers.get(request.getQueueUrl());
+            int batch = Objects.nonNull(controller) ? controller.getBatchSize() : request.getMaxMessagesPerPolling();
+            PrefetchBuffer buffer = prefetchBuffers.get(request.getQueueUrl());
+            ConcurrencyLimit limit = concurrencyLimitOf(request);
+            try {
+                if (Objects.nonNull(buffer)) {
+                    // in pipelined mode we wait until the workers can take a whole batch in time
+                    buffer.reserve(batch);
+                } else if (Objects.nonNull(limit)) {
+                    // on virtual threads we receive as many messages as can start processing now
+                    batch = limit.reserve(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
             // we poll messages from the queue
-            List<QueueMessage> messages = queueConsumerService.pollMessages(request.getQueueUrl(),
-                    request.getMaxMessagesPerPolling());
+            List<QueueMessage> messages = List.of();
+            ListenerStats stats = statsOf(request);
+            long pollingStart = System.nanoTime();
+            try {
+                // a listener without its own wait time waits the one of the adapter
+                messages = Objects.nonNull(request.getWaitTimeSeconds())
+                        ? queueConsumerService.pollMessages(lane.getQueueUrl(), batch, request.getWaitTimeSeconds())
+                        : queueConsumerService.pollMessages(lane.getQueueUrl(), batch);
+                stats.recordPolling(messages.size(), System.nanoTime() - pollingStart);
+                if (Objects.nonNull(buffer)) {
+                    // the workers start with them while we poll again
+                    addToBuffer(buffer, messages, batch, request);
+                }
+            } catch (MessagePollingException | RuntimeException e) {
+                stats.recordPollingFailure(System.nanoTime() - pollingStart);
+                if (Objects.nonNull(buffer)) {
+                    buffer.add(List.of(), batch);
+                } else if (Objects.nonNull(limit)) {
+                    limit.release(batch);
+                }
+                if (scheduler.size() == 1) {
+                    throw e;
+                }
+                // a failing lane does not stop the other lanes of the listener
+                LOG.error("Polling for " + lane.getQueueUrl() + " failed, retrying in " + FAILING_SUSPENSION + " milliseconds", e);
+                scheduler.suspend(lane, FAILING_SUSPENSION);
+                return false;
+            }
+            // a lane that received messages probably has more, so the lanes with lower priority wait
+            scheduler.report(lane, !messages.isEmpty());
+            if (Objects.nonNull(controller)) {
+                controller.recordPolling(messages.size());
+            }
+            if (Objects.nonNull(buffer)) {
+                return !messages.isEmpty();
+            }
             if (messages.isEmpty()) {
-                LOG.info("No messages received for queue" + request.getQueueUrl());
+                if (Objects.nonNull(limit)) {
+                    limit.release(batch);
+                }
+                LOG.info("No messages received for queue" + lane.getQueueUrl());
             } else {
                 // if we receive a message, we start processing
                 LOG.info("Received " + messages.size() + " messages");
                 // we configure a consumer for the messages we receive
                 Consumer<QueueMessage> consumer = message -> {
-                    onMessage(message, request.getListener(), request.getMinExecutionMilliseconds());
+                    processMessage(message, request);
                 };
-                // if we configured parallel processing, we use it
-                if (request.isParallelProcessing()) {
-                    messages.parallelStream().forEach(consumer);
+                if (request.getListener() instanceof IBatchListener) {
+                    // the listener receives the whole polling at once
+                    processBatch(messages, request);
+                } else if (Objects.nonNull(limit)) {
+                    // blocking listeners do not hold a carrier thread while they wait, and we poll again without waiting for them
+                    processOnVirtualThreads(messages, batch, limit, request);
+                } else if (request.isParallelProcessing()) {
+                    // if we configured parallel processing, the listener uses its own workers
+                    processOnWorkers(messages, consumer, request);
                 } else {
                     // if not, the messages will be processed sequentially
-                    messages.stream().forEach(consumer);
+                    messages.stream().forEach(message -> {
+                        awaitPacing(request);
+                        consumer.accept(message);
+                    });
                 }
             }
-        
+            return !messages.isEmpty();
+    }
+
+    private void processMessage(QueueMessage message, ListenRequest request) {
+        long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        ListenerStats stats = statsOf(request);
+        stats.startProcessing(1);
+        message.getSentTimestamp().ifPresent(stats::recordQueueTime);
+        try {
+            onMessage(message, request);
+        } catch (RuntimeException e) {
+            stats.recordProcessing(System.nanoTime() - startNanos, true);
+            throw e;
+        }
+        stats.recordProcessing(System.nanoTime() - startNanos, false);
+        // a message whose listener failed is not deleted, so it is received again once its visibility timeout expires
+        queueConsumerService.acknowledge(message);
+        // the adaptive control sizes the workers with the processing latency
+        AdaptiveController controller = adaptiveControllers.get(request.getQueueUrl());
+        if (Objects.nonNull(controller)) {
+            controller.recordProcessing(System.currentTimeMillis() - start);
+        }
+    }
+
+    private void processBatch(List<QueueMessage> messages, ListenRequest request) {
+        List<QueueMessage> accepted = new ArrayList<>();
+        List<BatchMessage> batch = new ArrayList<>();
+        Long earliestDeadline = null;
+        for (QueueMessage message : messages) {
+            Optional<Long> deadline = extractDeadline(message);
+            if (isExpired(deadline, request)) {
+                queueConsumerService.acknowledge(message);
+                continue;
+            }
+            // the batch is handed over once the pacing lets all its messages through
+            awaitPacing(request);
+            if (deadline.isPresent() && (Objects.isNull(earliestDeadline) || deadline.get() < earliestDeadline)) {
+                earliestDeadline = deadline.get();
+            }
+            accepted.add(message);
+            batch.add(new BatchMessage(message.getMessage(), message.getAttributes()));
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        boolean failure = false;
+        ListenerStats stats = statsOf(request);
+        stats.startProcessing(batch.size());
+        accepted.forEach(message -> message.getSentTimestamp().ifPresent(stats::recordQueueTime));
+        // the time budget of the batch is the one of its most urgent message
+        ListenerContext.setDeadline(earliestDeadline);
+        try {
+            ((IBatchListener) request.getListener()).process(batch);
+        } catch (Exception e) {
+            failure = true;
+            LOG.error("Error processing batch of queue " + request.getQueueUrl(), e);
+        } finally {
+            ListenerContext.clear();
+        }
+        // the adaptive control and the stats see the batch as messages taking their share of its time
+        long latency = (System.currentTimeMillis() - start) / batch.size();
+        long latencyNanos = (System.nanoTime() - startNanos) / batch.size();
+        for (int i = 0; i < batch.size(); i++) {
+            stats.recordProcessing(latencyNanos, failure);
+        }
+        AdaptiveController controller = adaptiveControllers.get(request.getQueueUrl());
+        if (Objects.nonNull(controller)) {
+            batch.forEach(message -> controller.recordProcessing(latency));
+        }
+        // the responses set before a failure are still sent, and only those messages are deleted after a failure
+        for (int i = 0; i < batch.size(); i++) {
+            Optional<String> response = batch.get(i).getResponse();
+            if (response.isPresent()) {
+                sendResponse(accepted.get(i), response.get(), request);
+            }
+            if (!failure || response.isPresent()) {
+                queueConsumerService.acknowledge(accepted.get(i));
+            }
+        }
+    }
+
+    private void addToBuffer(PrefetchBuffer buffer, List<QueueMessage> messages, int reserved, ListenRequest request) {
+        if (!pacers.containsKey(request.getQueueUrl())) {
+            buffer.add(messages, reserved);
+            return;
+        }
+        // the room of the messages not received is freed at once, the received ones are handed over at the pace of the listener
+        buffer.add(List.of(), reserved - messages.size());
+        for (QueueMessage message : messages) {
+            awaitPacing(request);
+            buffer.add(List.of(message), 1);
+        }
+    }
+
+    // the poller waits until the pacing of the listener lets another message through, so the workers never wait for it
+    private void awaitPacing(ListenRequest request) {
+        TokenBucket pacer = pacers.get(request.getQueueUrl());
+        if (Objects.isNull(pacer)) {
+            return;
+        }
+        long waitNanos = pacer.reserve();
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                // the application is stopping, the remaining messages are handed over without pacing
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private int workerCount(ListenRequest request) {
+        // sequential listeners process a message at a time
+        return !request.isParallelProcessing() ? 1
+                : request.getMaxConcurrency() > 0 ? request.getMaxConcurrency() : request.getMaxMessagesPerPolling();
+    }
+
+    private void processOnWorkers(List<QueueMessage> messages, Consumer<QueueMessage> consumer, ListenRequest request) {
+        // each listener has its own workers, so a slow listener cannot take the threads of the others
+        ThreadPoolExecutor workers = workerPools.computeIfAbsent(request.getQueueUrl(), url -> createWorkerPool(request));
+        List<Future<?>> tasks = new ArrayList<>();
+        for (QueueMessage message : messages) {
+            awaitPacing(request);
+            tasks.add(workers.submit(() -> consumer.accept(message)));
+        }
+        // the polling finishes when all its messages are processed
+        awaitTasks(tasks, request);
+    }
+
+    private ThreadPoolExecutor createWorkerPool(ListenRequest request) {
+        int concurrency = workerCount(request);
+        int queueCapacity = request.getQueueCapacity() > 0 ? request.getQueueCapacity() : request.getMaxMessagesPerPolling();
+        Counter saturations = registry.counter("listener.workers.saturated", "queue", request.getQueueUrl());
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), namedThreads("listener-" + queueName(request)),
+                (task, executor) -> {
+                    // when the workers and their queue are full, the poller processes the message itself, so it stops polling meanwhile
+                    saturations.increment();
+                    if (!executor.isShutdown()) {
+                        task.run();
+                    } else if (task instanceof Future) {
+                        // the application is stopping, nobody has to wait for it
+                        ((Future<?>) task).cancel(false);
+                    }
+                });
+        workers.allowCoreThreadTimeOut(true);
+        // pool size, active workers, queued messages and completed tasks
+        new ExecutorServiceMetrics(workers, "listener.workers", Tags.of("queue", request.getQueueUrl())).bindTo(registry);
+        LOG.info("Listener of " + request.getQueueUrl() + " will process messages with " + concurrency + " workers");
+        return workers;
+    }
+
+    private void awaitTasks(List<Future<?>> tasks, ListenRequest request) {
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (Exception e) {
+                LOG.error("Error processing message of queue " + request.getQueueUrl(), e);
+            }
+        }
+    }
+
+    // only parallel listeners processing message by message use virtual threads, the others keep their own threads
+    private ConcurrencyLimit concurrencyLimitOf(ListenRequest request) {
+        if (virtualThreadExecutor.isEmpty() || !request.isParallelProcessing() || request.getListener() instanceof IBatchListener
+                || prefetchBuffers.containsKey(request.getQueueUrl())) {
+            return null;
+        }
+        return concurrencyLimits.computeIfAbsent(request.getQueueUrl(), url -> new ConcurrencyLimit(workerCount(request)));
+    }
+
+    private void processOnVirtualThreads(List<QueueMessage> messages, int reserved, ConcurrencyLimit limit, ListenRequest request) {
+        // the room reserved for the messages not received is freed at once
+        if (messages.size() < reserved) {
+            limit.release(reserved - messages.size());
+        }
+        for (int i = 0; i < messages.size(); i++) {
+            QueueMessage message = messages.get(i);
+            awaitPacing(request);
+            if (i >= reserved) {
+                limit.acquire();
+            }
+            // the polling returns once the messages started, each one frees its room when it finishes
+            try {
+                virtualThreadExecutor.get().execute(() -> {
+                    try {
+                        processMessage(message, request);
+                    } catch (Exception e) {
+                        LOG.error("Error processing message of queue " + request.getQueueUrl(), e);
+                    } finally {
+                        limit.release(1);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the application is stopping, the message is received again after its visibility timeout
+                limit.release(1);
+            }
+        }
     }
 
-    private void onMessage(QueueMessage message, IListener listener, int minProcessingMilliseconds) {
-        Long startExecution = System.currentTimeMillis();
-        // we invoke the method
-        Optional<String> response = listener.process(message.getMessage());
+    private Optional<ExecutorService> createVirtualThreadExecutor() {
+        try {
+            // virtual threads only exist from java 21, so the factory is looked up when running on it
+            MethodHandle factory = MethodHandles.publicLookup().findStatic(Executors.class,
+                    "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+            LOG.info("Listeners will process messages on virtual threads");
+            return Optional.of((ExecutorService) factory.invoke());
+        } catch (Throwable e) {
+            LOG.warn("Virtual threads require java 21 or newer, listeners will use platform threads");
+            return Optional.empty();
+        }
+    }
+
+    private void onMessage(QueueMessage message, ListenRequest request) {
+        IListener listener = request.getListener();
+        Optional<Long> deadline = extractDeadline(message);
+        if (isExpired(deadline, request)) {
+            return;
+        }
+        // the sender asked for the response in chunks and the listener is able to produce them
+        boolean streamed = listener instanceof IStreamingListener && "true".equals(message.getAttributes().get("Streaming"));
+        // we invoke the method, letting it know its remaining time budget
+        ListenerContext.setDeadline(deadline.orElse(null));
+        Optional<String> response = Optional.empty();
+        try {
+            if (streamed) {
+                // the chunks are sent while the listener produces them
+                streamResponse((IStreamingListener) listener, message);
+            } else {
+                response = listener.process(message.getMessage());
+            }
+        } finally {
+            ListenerContext.clear();
+        }
         // if the response was not null we send it to the source queue according to its signature
         if (response.isPresent()) {
-            String sourceQueueUrl = message.getAttributes().get("ResponseQueueUrl");
-            String signature = message.getAttributes().get("Signature");
-            if (Objects.nonNull(sourceQueueUrl) && Objects.nonNull(signature)) {
+            sendResponse(message, response.get(), request);
+        }
+    }
+
+    private void sendResponse(QueueMessage message, String response, ListenRequest request) {
+        String sourceQueueUrl = message.getAttributes().get("ResponseQueueUrl");
+        String signature = message.getAttributes().get("Signature");
+        if (Objects.nonNull(sourceQueueUrl) && Objects.nonNull(signature) && request.isBatchResponses()) {
+            // the worker moves on, the response is sent with the others going to the same queue
+            responseBatchSender.send(sourceQueueUrl, response, signature);
+        } else if (Objects.nonNull(sourceQueueUrl) && Objects.nonNull(signature)) {
+            try {
+                queueConsumerService.sendAnswer(sourceQueueUrl, response, signature);
+            } catch (Exception e) {
+                LOG.error("Error sending message");
+                e.printStackTrace();
+            }
+        } else {
+            LOG.error("ResponseQueueUrl or Signature not found in message attributes");
+        }
+    }
+
+    // if the sender already stopped waiting, the response would never be read
+    private boolean isExpired(Optional<Long> deadline, ListenRequest request) {
+        if (deadline.isPresent() && deadline.get() < System.currentTimeMillis()) {
+            LOG.warn("Discarding expired request of queue " + request.getQueueUrl());
+            registry.counter("listener.messages.expired", "queue", request.getQueueUrl()).increment();
+            return true;
+        }
+        return false;
+    }
+
+    private void streamResponse(IStreamingListener listener, QueueMessage message) {
+        String sourceQueueUrl = message.getAttributes().get("ResponseQueueUrl");
+        String signature = message.getAttributes().get("Signature");
+        if (Objects.isNull(sourceQueueUrl) || Objects.isNull(signature)) {
+            LOG.error("ResponseQueueUrl or Signature not found in message attributes");
+            return;
+        }
+        // each chunk is sent as soon as the listener emits it, so the sender can forward it before the whole result exists
+        int[] sequence = { 0 };
+        boolean[] failed = { false };
+        try {
+            listener.process(message.getMessage(), chunk -> {
+                if (failed[0]) {
+                    // after a lost chunk the sender cannot rebuild the response, the remaining ones are dropped
+                    throw new StreamInterruptedException("Response " + signature + " was already interrupted", null);
+                }
                 try {
-                    queueConsumerService.sendAnswer(sourceQueueUrl, response.get(), signature);
+                    queueConsumerService.sendAnswerChunk(sourceQueueUrl, chunk, signature, sequence[0]);
                 } catch (Exception e) {
-                    LOG.error("Error sending message");
-                    e.printStackTrace();
+                    failed[0] = true;
+                    throw new StreamInterruptedException("Error sending chunk " + sequence[0] + " of response " + signature, e);
                 }
-            } else {
-                LOG.error("ResponseQueueUrl or Signature not found in message attributes");
-            }
-        }
-        // if the execution time was lower than the min expected, sleep
-        Long currentTime = System.currentTimeMillis();
-        if (currentTime - startExecution < minProcessingMilliseconds) {
-            LOG.infov("Waiting for {0} ms",
-                    minProcessingMilliseconds - (currentTime - startExecution));
+                // the number is only used once its chunk was sent, so the sequence has no gaps
+                sequence[0]++;
+            });
+        } catch (Exception e) {
+            failed[0] = true;
+            LOG.error("Error streaming response " + signature, e);
+        } finally {
+            // the end marker is always sent, so the sender does not wait until the timeout for chunks that will never come,
+            // and it tells whether the chunks before it are the whole response
             try {
-                Thread.sleep(minProcessingMilliseconds - (currentTime - startExecution));
-            } catch (InterruptedException e) {
-                LOG.error("Interrupted while waiting for minimum execution time");
-                e.printStackTrace();
+                queueConsumerService.sendEndOfAnswer(sourceQueueUrl, signature, sequence[0], failed[0]);
+            } catch (Exception e) {
+                LOG.error("Error sending end of response " + signature, e);
             }
         }
     }
 
-    private String cleanClassName(String proxyClassName) {
-        // I dont feel proud for this implementation, but it works
-        return proxyClassName.replaceAll("_ClientProxy", "");
+    private Optional<Long> extractDeadline(QueueMessage message) {
+        String deadline = message.getAttributes().get("Deadline");
+        if (Objects.isNull(deadline)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Long.valueOf(deadline));
+        } catch (NumberFormatException e) {
+            LOG.error("Invalid deadline received: " + deadline);
+            return Optional.empty();
+        }
+    }
+
+    private String queueName(ListenRequest request) {
+        return request.getQueueUrl().substring(request.getQueueUrl().lastIndexOf('/') + 1);
+    }
+
+    private ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 }
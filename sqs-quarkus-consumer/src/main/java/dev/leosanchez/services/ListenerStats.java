@@ -0,0 +1,106 @@
+package dev.leosanchez.services;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+// what a listener did since it started, published to the registry and summarized for the admin endpoint
+// the times are published as histograms, so the monitoring computes the percentiles across all the instances
+// (percentiles computed in each instance cannot be averaged)
+public class ListenerStats {
+
+    // the buckets of the service level objectives, also published as the count of times under each of them
+    private static final Duration[] SLO_BUCKETS = { Duration.ofMillis(10), Duration.ofMillis(50), Duration.ofMillis(100),
+            Duration.ofMillis(500), Duration.ofSeconds(1), Duration.ofSeconds(5), Duration.ofSeconds(20) };
+
+    private final Counter receivedPollings;
+    private final Counter emptyPollings;
+    private final Counter failedPollings;
+    private final Timer pollingTime;
+    private final Counter processed;
+    private final Counter failed;
+    private final Timer processingTime;
+    private final Timer queueTime;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public ListenerStats(MeterRegistry registry, String queueUrl) {
+        Tags tags = Tags.of("queue", queueUrl);
+        // the ratio of empty pollings is the rate of the empty ones over the rate of all of them
+        receivedPollings = registry.counter("listener.pollings", tags.and("result", "received"));
+        emptyPollings = registry.counter("listener.pollings", tags.and("result", "empty"));
+        failedPollings = registry.counter("listener.pollings", tags.and("result", "failed"));
+        pollingTime = Timer.builder("listener.polling.duration")
+                .description("The round trip of a receive, including the wait of long polling")
+                .tags(tags).publishPercentileHistogram().serviceLevelObjectives(SLO_BUCKETS).register(registry);
+        // the rate of this counter is the throughput of the listener
+        processed = registry.counter("listener.messages.processed", tags);
+        failed = registry.counter("listener.messages.failed", tags);
+        processingTime = Timer.builder("listener.processing.duration")
+                .description("The time the listener takes with a message, including sending its response")
+                .tags(tags).publishPercentileHistogram().serviceLevelObjectives(SLO_BUCKETS).register(registry);
+        queueTime = Timer.builder("listener.queue.duration")
+                .description("The time since the queue received a message until its processing starts, prefetching included")
+                .tags(tags).publishPercentileHistogram().serviceLevelObjectives(SLO_BUCKETS).register(registry);
+        Gauge.builder("listener.messages.in_flight", inFlight, AtomicInteger::get)
+                .description("The messages being processed")
+                .tags(tags).register(registry);
+    }
+
+    public void recordPolling(int received, long nanos) {
+        (received == 0 ? emptyPollings : receivedPollings).increment();
+        pollingTime.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPollingFailure(long nanos) {
+        failedPollings.increment();
+        pollingTime.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // the clocks of the queue and ours may differ a little, so a message never waited less than nothing
+    public void recordQueueTime(long sentTimestamp) {
+        queueTime.record(Math.max(0, System.currentTimeMillis() - sentTimestamp), TimeUnit.MILLISECONDS);
+    }
+
+    public void startProcessing(int messages) {
+        inFlight.addAndGet(messages);
+    }
+
+    public void recordProcessing(long nanos, boolean failure) {
+        inFlight.decrementAndGet();
+        processed.increment();
+        processingTime.record(nanos, TimeUnit.NANOSECONDS);
+        if (failure) {
+            failed.increment();
+        }
+    }
+
+    public long getPollings() {
+        return (long) (receivedPollings.count() + emptyPollings.count() + failedPollings.count());
+    }
+
+    public long getEmptyPollings() {
+        return (long) emptyPollings.count();
+    }
+
+    public long getProcessed() {
+        return (long) processed.count();
+    }
+
+    public long getFailed() {
+        return (long) failed.count();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public double getAverageProcessingMilliseconds() {
+        return processingTime.mean(TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,127 @@
+package dev.leosanchez.services;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.logging.Logger;
+
+// polls a listener again once the previous polling is processed, waiting longer each time its queues are empty
+// nothing runs between pollings, so an idle listener does not use cpu
+public class PollingLoop {
+
+    // a simple logger
+    private static final Logger LOG = Logger.getLogger(PollingLoop.class);
+
+    private final String name;
+    private final ScheduledExecutorService scheduler;
+    // performs a polling and returns if messages were received
+    private final Callable<Boolean> polling;
+    // the number of pollings before the loop finishes, null to poll until the application stops
+    private final Integer pollingQuantity;
+    private final long initialBackoffMilliseconds;
+    private final long maxBackoffMilliseconds;
+    private final long failureDelayMilliseconds;
+
+    // completed once the loop performed all its pollings
+    private final CompletableFuture<Void> finished = new CompletableFuture<>();
+    private final AtomicBoolean paused = new AtomicBoolean(false);
+    // if there is a polling scheduled or in progress, so the loop is never scheduled twice
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    // only modified by the polling in progress
+    private long currentBackoffMilliseconds = 0;
+    private int pollings = 0;
+
+    public PollingLoop(String name, ScheduledExecutorService scheduler, Callable<Boolean> polling, Integer pollingQuantity,
+            long initialBackoffMilliseconds, long maxBackoffMilliseconds, long failureDelayMilliseconds) {
+        this.name = name;
+        this.scheduler = scheduler;
+        this.polling = polling;
+        this.pollingQuantity = pollingQuantity;
+        this.initialBackoffMilliseconds = initialBackoffMilliseconds;
+        this.maxBackoffMilliseconds = maxBackoffMilliseconds;
+        this.failureDelayMilliseconds = failureDelayMilliseconds;
+    }
+
+    public void start() {
+        schedule(0);
+    }
+
+    // the polling in progress finishes processing its messages, but no other polling starts until resumed
+    public void pause() {
+        LOG.info("Pausing listener " + name);
+        paused.set(true);
+    }
+
+    public void resume() {
+        LOG.info("Resuming listener " + name);
+        paused.set(false);
+        schedule(0);
+    }
+
+    // the loop finishes after the polling in progress
+    public void stop() {
+        paused.set(true);
+        finished.complete(null);
+    }
+
+    public boolean isPaused() {
+        return paused.get();
+    }
+
+    public void awaitFinish() {
+        finished.join();
+    }
+
+    private void schedule(long delayMilliseconds) {
+        if (finished.isDone() || !scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            scheduler.schedule(this::poll, delayMilliseconds, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the application is stopping
+            scheduled.set(false);
+            finished.complete(null);
+        }
+    }
+
+    private void poll() {
+        // paused while waiting for its turn
+        if (paused.get()) {
+            scheduled.set(false);
+            // a resume received meanwhile could not schedule it
+            if (!paused.get()) {
+                schedule(0);
+            }
+            return;
+        }
+        long delayMilliseconds;
+        try {
+            boolean received = polling.call();
+            // we poll right away while there are messages, and back off while the queues are empty
+            currentBackoffMilliseconds = received ? 0
+                    : currentBackoffMilliseconds == 0 ? initialBackoffMilliseconds
+                    : Math.min(maxBackoffMilliseconds, currentBackoffMilliseconds * 2);
+            delayMilliseconds = currentBackoffMilliseconds;
+        } catch (Exception e) {
+            LOG.error("Polling for " + name + " failed, retrying in " + failureDelayMilliseconds + " milliseconds", e);
+            delayMilliseconds = failureDelayMilliseconds;
+        }
+        pollings++;
+        scheduled.set(false);
+        if (Objects.nonNull(pollingQuantity) && pollings >= pollingQuantity) {
+            finished.complete(null);
+            return;
+        }
+        // a resume received meanwhile already scheduled the next polling
+        if (!paused.get()) {
+            schedule(delayMilliseconds);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package dev.leosanchez.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import dev.leosanchez.common.dto.QueueMessage;
+
+// the messages received ahead of demand for a listener, so its workers do not wait for the next polling
+// the poller only receives a batch when it fits below the watermark, so no message waits longer than allowed
+public class PrefetchBuffer {
+
+    private final BlockingQueue<QueueMessage> messages = new LinkedBlockingQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    // the maximum number of messages buffered or being processed
+    private final int capacity;
+    // the workers draining the buffer
+    private final int workers;
+    // the maximum time a message should wait in the buffer before being processed
+    private final long maxBufferedMilliseconds;
+
+    // the messages buffered or being processed, including the ones of the polling in progress
+    private int inPipeline = 0;
+    // moving average of the processing time of a message
+    private double averageProcessingMilliseconds = 0;
+
+    public PrefetchBuffer(int capacity, int workers, long maxBufferedMilliseconds) {
+        this.capacity = capacity;
+        this.workers = workers;
+        this.maxBufferedMilliseconds = maxBufferedMilliseconds;
+    }
+
+    // blocks the poller until a whole batch fits below the watermark, and reserves its room
+    public void reserve(int batch) throws InterruptedException {
+        lock.lock();
+        try {
+            // an empty pipeline always accepts a batch, otherwise a small watermark would stop the listener
+            while (inPipeline > 0 && inPipeline + batch > watermark()) {
+                changed.await();
+            }
+            inPipeline += batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // adds the received messages and frees the room reserved for the ones not received
+    public void add(List<QueueMessage> received, int reserved) {
+        lock.lock();
+        try {
+            inPipeline -= reserved - received.size();
+            messages.addAll(received);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public QueueMessage take() throws InterruptedException {
+        return messages.take();
+    }
+
+    public void done(long processingMilliseconds) {
+        lock.lock();
+        try {
+            inPipeline--;
+            averageProcessingMilliseconds = averageProcessingMilliseconds == 0 ? processingMilliseconds
+                    : averageProcessingMilliseconds * 0.9 + processingMilliseconds * 0.1;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // waits until every message received was processed, returns false on timeout
+    public boolean awaitDrained(long timeoutMilliseconds) throws InterruptedException {
+        lock.lock();
+        try {
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMilliseconds);
+            while (inPipeline > 0) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = changed.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // removes the messages no worker took, so they can be returned to their queue
+    public List<QueueMessage> drain() {
+        lock.lock();
+        try {
+            List<QueueMessage> remaining = new ArrayList<>();
+            messages.drainTo(remaining);
+            inPipeline -= remaining.size();
+            changed.signalAll();
+            return remaining;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        return messages.size();
+    }
+
+    public int getWatermark() {
+        lock.lock();
+        try {
+            return watermark();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int watermark() {
+        if (averageProcessingMilliseconds == 0) {
+            return capacity;
+        }
+        // the messages the workers can process within the allowed time
+        double processable = workers * maxBufferedMilliseconds / Math.max(1, averageProcessingMilliseconds);
+        return (int) Math.max(1, Math.min(capacity, processable));
+    }
+}
@@ -1,8 +1,11 @@
 package dev.leosanchez.services;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
@@ -14,6 +17,8 @@ import dev.leosanchez.common.adapters.queueadapter.IQueueAdapter;
 import dev.leosanchez.common.exceptions.MessagePollingException;
 import dev.leosanchez.common.exceptions.MessageRemovalException;
 import dev.leosanchez.common.exceptions.MessageSendingException;
+import dev.leosanchez.common.exceptions.MessageVisibilityException;
+import dev.leosanchez.common.exceptions.QueueRetrievalException;
 
 @ApplicationScoped
 public class QueueConsumerService {
@@ -23,20 +28,61 @@ public class QueueConsumerService {
     @Inject
     IQueueAdapter queueAdapter;
 
+    // the queue of each message received and not acknowledged yet, by its receipt handle
+    private final Map<String, String> unacknowledged = new ConcurrentHashMap<>();
+
+    // the messages stay in the queue, hidden by its visibility timeout, until they are acknowledged
     public List<QueueMessage> pollMessages(String queueUrl, int maxNumberOfMessages) throws MessagePollingException {
-        List<QueueMessage> messages = queueAdapter.receiveMessages(queueUrl, maxNumberOfMessages);
+        return trackReceived(queueUrl, queueAdapter.receiveMessages(queueUrl, maxNumberOfMessages));
+    }
+
+    // waits for messages the given time instead of the one configured for the adapter
+    public List<QueueMessage> pollMessages(String queueUrl, int maxNumberOfMessages, int waitTimeSeconds) throws MessagePollingException {
+        return trackReceived(queueUrl, queueAdapter.receiveMessages(queueUrl, maxNumberOfMessages, waitTimeSeconds));
+    }
+
+    private List<QueueMessage> trackReceived(String queueUrl, List<QueueMessage> messages) {
         messages.forEach(message -> {
             LOG.info("Received message " + message.getMessage());
-            // we delete the message
-            try{
-                queueAdapter.deleteMessage(queueUrl, message.getReceiptHandle());
-            } catch (MessageRemovalException e) {
-                throw new RuntimeException(e);
+            if (Objects.nonNull(message.getReceiptHandle())) {
+                unacknowledged.put(message.getReceiptHandle(), queueUrl);
             }
         });
         return messages;
     }
 
+    // deletes a message once it was processed, a message never acknowledged is received again after its visibility timeout
+    public void acknowledge(QueueMessage message) {
+        String queueUrl = Objects.nonNull(message.getReceiptHandle()) ? unacknowledged.remove(message.getReceiptHandle()) : null;
+        if (Objects.isNull(queueUrl)) {
+            return;
+        }
+        try {
+            queueAdapter.deleteMessage(queueUrl, message.getReceiptHandle());
+        } catch (MessageRemovalException e) {
+            // it was processed, but it will be received again
+            LOG.error("Message " + message.getReceiptHandle() + " of " + queueUrl + " could not be acknowledged", e);
+        }
+    }
+
+    // a message that will not be processed is made visible again, so it is received right away instead of after its timeout
+    public void release(QueueMessage message) {
+        String queueUrl = Objects.nonNull(message.getReceiptHandle()) ? unacknowledged.remove(message.getReceiptHandle()) : null;
+        if (Objects.isNull(queueUrl)) {
+            return;
+        }
+        try {
+            queueAdapter.changeMessageVisibility(queueUrl, message.getReceiptHandle(), 0);
+        } catch (MessageVisibilityException e) {
+            LOG.error("Message " + message.getReceiptHandle() + " of " + queueUrl + " could not be released", e);
+        }
+    }
+
+    public Long getBacklog(String queueUrl) throws QueueRetrievalException {
+        // approximate, as reported by the queue provider
+        return queueAdapter.getApproximateNumberOfMessages(queueUrl);
+    }
+
     public void sendAnswer(String sourceQueueUrl, String responseMessage, String signature)  throws MessageSendingException{
         LOG.info("Sending message " + responseMessage);
         Map<String, String> attributes = new HashMap<>() {
@@ -48,4 +94,44 @@ public class QueueConsumerService {
         queueAdapter.sendMessageWithAttributes(sourceQueueUrl, responseMessage, attributes);
     }
 
+    // returns the indexes of the responses that could not be sent
+    public List<Integer> sendAnswers(String sourceQueueUrl, List<String> responseMessages, List<String> signatures) throws MessageSendingException {
+        LOG.info("Sending " + responseMessages.size() + " messages to " + sourceQueueUrl);
+        List<Map<String, String>> attributes = new ArrayList<>();
+        for (String signature : signatures) {
+            Map<String, String> messageAttributes = new HashMap<>();
+            messageAttributes.put("Signature", signature);
+            attributes.add(messageAttributes);
+        }
+        return queueAdapter.sendMessageBatchWithAttributes(sourceQueueUrl, responseMessages, attributes);
+    }
+
+    public void sendAnswerChunk(String sourceQueueUrl, String chunk, String signature, int sequence) throws MessageSendingException {
+        LOG.info("Sending chunk " + sequence + " of response " + signature);
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put("Signature", signature);
+        // the queue does not guarantee the order, so the sender sorts the chunks by this number
+        attributes.put("Sequence", String.valueOf(sequence));
+        queueAdapter.sendMessageWithAttributes(sourceQueueUrl, chunk, attributes);
+    }
+
+    public void sendEndOfAnswer(String sourceQueueUrl, String signature, int chunks) throws MessageSendingException {
+        sendEndOfAnswer(sourceQueueUrl, signature, chunks, false);
+    }
+
+    public void sendEndOfAnswer(String sourceQueueUrl, String signature, int chunks, boolean failed) throws MessageSendingException {
+        LOG.info("Sending end of response " + signature + " after " + chunks + " chunks");
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put("Signature", signature);
+        // the end marker carries the number of chunks, so the sender knows when all of them arrived
+        attributes.put("Sequence", String.valueOf(chunks));
+        attributes.put("End", "true");
+        if (failed) {
+            // the response was interrupted, the chunks sent are not the whole of it
+            attributes.put("Error", "true");
+        }
+        // the body of the end marker is ignored, but sqs does not accept empty messages
+        queueAdapter.sendMessageWithAttributes(sourceQueueUrl, "END", attributes);
+    }
+
 }
@@ -0,0 +1,161 @@
+package dev.leosanchez.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// groups the responses by the queue they go to and sends them in batches, so the workers do not wait for each send
+@ApplicationScoped
+public class ResponseBatchSender {
+
+    // just a logger
+    private static final Logger LOG = Logger.getLogger(ResponseBatchSender.class);
+
+    // a batch is sent as soon as it has this number of responses (sqs accepts up to 10 per request)
+    @ConfigProperty(name = "listener.responses.batch-size", defaultValue = "10")
+    Integer batchSize;
+
+    // the maximum time a response waits for others going to the same queue
+    @ConfigProperty(name = "listener.responses.linger-milliseconds", defaultValue = "20")
+    Long lingerMilliseconds;
+
+    @Inject
+    QueueConsumerService queueConsumerService;
+
+    @Inject
+    MeterRegistry registry;
+
+    // the responses not sent yet, by the url of the queue they go to
+    private final Map<String, PendingResponses> pending = new HashMap<>();
+    private ScheduledExecutorService sender;
+    private Counter batches;
+    private Counter failures;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        sender = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "response-sender-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        batches = registry.counter("listener.responses.batches");
+        failures = registry.counter("listener.responses.failed");
+    }
+
+    // returns right away, the response is sent with the next batch of its queue
+    public void send(String queueUrl, String response, String signature) {
+        PendingResponses full = null;
+        synchronized (pending) {
+            PendingResponses responses = pending.get(queueUrl);
+            if (Objects.isNull(responses)) {
+                responses = new PendingResponses();
+                pending.put(queueUrl, responses);
+                // the first response of a batch starts its linger time
+                PendingResponses lingering = responses;
+                schedule(() -> flush(queueUrl, lingering), lingerMilliseconds);
+            }
+            responses.add(response, signature);
+            if (responses.size() >= batchSize) {
+                pending.remove(queueUrl);
+                full = responses;
+            }
+        }
+        if (Objects.nonNull(full)) {
+            PendingResponses batch = full;
+            schedule(() -> sendBatch(queueUrl, batch), 0);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        // the responses waiting for their batch are sent before stopping
+        List<Map.Entry<String, PendingResponses>> remaining;
+        synchronized (pending) {
+            remaining = new ArrayList<>(pending.entrySet());
+            pending.clear();
+        }
+        remaining.forEach(entry -> sendBatch(entry.getKey(), entry.getValue()));
+        sender.shutdown();
+    }
+
+    private void flush(String queueUrl, PendingResponses lingering) {
+        synchronized (pending) {
+            // the batch may have been sent already because it was full
+            if (pending.get(queueUrl) != lingering) {
+                return;
+            }
+            pending.remove(queueUrl);
+        }
+        sendBatch(queueUrl, lingering);
+    }
+
+    private void schedule(Runnable task, long delayMilliseconds) {
+        try {
+            sender.schedule(task, delayMilliseconds, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the application is stopping, so the caller sends it without waiting for others
+            task.run();
+        }
+    }
+
+    private void sendBatch(String queueUrl, PendingResponses batch) {
+        batches.increment();
+        List<Integer> failed;
+        try {
+            failed = queueConsumerService.sendAnswers(queueUrl, batch.responses, batch.signatures);
+        } catch (Exception e) {
+            LOG.error("Batch of " + batch.size() + " responses could not be sent to " + queueUrl, e);
+            failed = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                failed.add(i);
+            }
+        }
+        // the responses the batch could not carry are sent one by one, so a single failure does not lose the others
+        for (Integer index : failed) {
+            sendAlone(queueUrl, batch.responses.get(index), batch.signatures.get(index));
+        }
+    }
+
+    private void sendAlone(String queueUrl, String response, String signature) {
+        try {
+            queueConsumerService.sendAnswer(queueUrl, response, signature);
+        } catch (Exception e) {
+            // the workers already moved on, so the failures are only reported
+            failures.increment();
+            LOG.error("Response " + signature + " could not be sent to " + queueUrl, e);
+        }
+    }
+
+    private static class PendingResponses {
+        private final List<String> responses = new ArrayList<>();
+        private final List<String> signatures = new ArrayList<>();
+
+        private void add(String response, String signature) {
+            responses.add(response);
+            signatures.add(signature);
+        }
+
+        private int size() {
+            return responses.size();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package dev.leosanchez.services;
+
+// paces the messages of a listener to a rate, letting a burst of them through after it was idle
+// a message never waits for a token on its worker, the poller asks how long to wait before handing it over
+public class TokenBucket {
+
+    // the time between two tokens at the configured rate
+    private final long intervalNanos;
+    // the tokens accumulated while idle
+    private final int burst;
+
+    // the time at which the next token is due if no burst is left (the theoretical arrival time)
+    private long nextTokenNanos;
+
+    public TokenBucket(double tokensPerSecond, int burst) {
+        this.intervalNanos = (long) (1_000_000_000L / tokensPerSecond);
+        this.burst = Math.max(1, burst);
+        this.nextTokenNanos = System.nanoTime();
+    }
+
+    // reserves a token and returns the nanoseconds to wait before using it, 0 if it can be used right away
+    public synchronized long reserve() {
+        long now = System.nanoTime();
+        // the tokens not used while idle are lost beyond the burst
+        long start = Math.max(nextTokenNanos, now);
+        nextTokenNanos = start + intervalNanos;
+        return Math.max(0, start - now - (burst - 1) * intervalNanos);
+    }
+
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+}
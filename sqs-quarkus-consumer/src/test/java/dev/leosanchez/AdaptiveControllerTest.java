@@ -0,0 +1,54 @@
+package dev.leosanchez;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.leosanchez.services.AdaptiveController;
+
+public class AdaptiveControllerTest {
+
+    @Test
+    public void testScaleUpWithBacklog() {
+        // up to four pollers, batches of ten and ten workers
+        AdaptiveController controller = new AdaptiveController(4, 10, 10, 1000);
+        // every polling receives a full batch, and each message takes 100 ms
+        for (int i = 0; i < 10; i++) {
+            controller.recordPolling(10);
+            controller.recordProcessing(100);
+        }
+        controller.adjust(1000);
+        // the backlog is bigger than a round of pollings, so we add a poller
+        Assertions.assertEquals(2, controller.getPollers());
+        // the workers are bounded by the configured ones
+        Assertions.assertEquals(10, controller.getWorkers());
+    }
+
+    @Test
+    public void testScaleDownWhenIdle() {
+        AdaptiveController controller = new AdaptiveController(4, 10, 10, 1000);
+        controller.recordPolling(10);
+        controller.recordProcessing(100);
+        controller.adjust(1000);
+        controller.recordPolling(10);
+        controller.adjust(1000);
+        Assertions.assertEquals(3, controller.getPollers());
+        // most receives are empty and nothing is waiting
+        for (int i = 0; i < 10; i++) {
+            controller.recordPolling(0);
+        }
+        controller.adjust(0);
+        Assertions.assertEquals(1, controller.getPollers());
+        Assertions.assertEquals(1, controller.getWorkers());
+    }
+
+    @Test
+    public void testBatchSizeShrinksWithSlowProcessing() {
+        // a sequential listener whose messages take a second each
+        AdaptiveController controller = new AdaptiveController(1, 10, 1, 2000);
+        controller.recordPolling(10);
+        controller.recordProcessing(1000);
+        controller.adjust(0);
+        // the last message of a batch of ten would wait ten seconds, so the batch is halved
+        Assertions.assertEquals(5, controller.getBatchSize());
+    }
+}
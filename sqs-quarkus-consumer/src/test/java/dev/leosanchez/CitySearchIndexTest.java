@@ -0,0 +1,179 @@
+package dev.leosanchez;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.leosanchez.DTO.CityMatch;
+import dev.leosanchez.repositories.CitySearchIndex;
+import dev.leosanchez.repositories.CoordinatesTable;
+
+public class CitySearchIndexTest {
+
+    @Test
+    public void testIgnoresCaseAccentsAndSpaces() {
+        CitySearchIndex index = new CitySearchIndex();
+        index.add("Concepción");
+        index.add("Santiago");
+
+        List<CityMatch> matches = index.search("  CONCEPCION ", 5);
+
+        Assertions.assertEquals(1, matches.size());
+        Assertions.assertEquals("Concepción", matches.get(0).getName());
+        Assertions.assertEquals("exact", matches.get(0).getMatch());
+        Assertions.assertEquals("san pedro de atacama", CitySearchIndex.normalize("San  Pedro de\tAtacama"));
+    }
+
+    @Test
+    public void testRanksExactThenPrefixThenTypos() {
+        CitySearchIndex index = new CitySearchIndex();
+        // the table feeds the index as the repository does
+        CoordinatesTable table = new CoordinatesTable((name, existed, previousLat, previousLon, lat, lon) -> {
+            if (!existed) {
+                index.add(name);
+            }
+        });
+        table.put("San Antonio", -33.59, -71.61);
+        table.put("Santa Cruz", -34.64, -71.36);
+        table.put("Santiago", -33.45, -70.67);
+        table.put("Santiago de Compostela", 42.88, -8.54);
+        table.put("Santo Domingo", -33.63, -71.63);
+        // moving a place does not index it twice
+        table.put("Santiago", -33.44, -70.66);
+
+        List<CityMatch> matches = index.search("santiago", 5);
+
+        Assertions.assertEquals(List.of("Santiago", "Santiago de Compostela"),
+                matches.stream().map(CityMatch::getName).collect(Collectors.toList()));
+        Assertions.assertEquals(List.of("exact", "prefix"),
+                matches.stream().map(CityMatch::getMatch).collect(Collectors.toList()));
+
+        // the shortest names starting with the text come first, up to the limit
+        Assertions.assertEquals(List.of("Santiago", "Santa Cruz", "San Antonio"),
+                index.search("san", 3).stream().map(CityMatch::getName).collect(Collectors.toList()));
+
+        // a swap of two letters and a missing one are typos
+        List<CityMatch> typos = index.search("Satniago", 5);
+        Assertions.assertEquals("Santiago", typos.get(0).getName());
+        Assertions.assertEquals("fuzzy", typos.get(0).getMatch());
+        Assertions.assertEquals(1, typos.get(0).getEdits());
+        Assertions.assertEquals("Santo Domingo", index.search("Santo Domngo", 5).get(0).getName());
+
+        Assertions.assertTrue(index.search("Valparaiso", 5).isEmpty());
+        Assertions.assertTrue(index.search(" ", 5).isEmpty());
+    }
+
+    @Test
+    public void testTyposMatchEveryCloseName() {
+        CitySearchIndex index = new CitySearchIndex();
+        Random random = new Random(42);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            String name = randomWord(random, 5 + random.nextInt(8));
+            names.add(name);
+            index.add(name);
+        }
+        for (int i = 0; i < 200; i++) {
+            String name = names.get(random.nextInt(names.size()));
+            String query = typo(random, typo(random, name));
+            // each typo changes up to four trigrams, so a query with few distinct ones allows fewer typos
+            int maxEdits = Math.min(query.length() >= 6 ? 2 : 1, (trigrams(query) - 1) / 4);
+            // the names sharing the beginning of the query are prefix matches, not typos
+            Set<String> expected = names.stream()
+                    .filter(candidate -> !candidate.startsWith(query) && edits(query, candidate) <= maxEdits)
+                    .collect(Collectors.toCollection(TreeSet::new));
+
+            Set<String> found = index.search(query, 1000).stream()
+                    .filter(match -> match.getMatch().equals("fuzzy"))
+                    .map(CityMatch::getName)
+                    .collect(Collectors.toCollection(TreeSet::new));
+
+            Assertions.assertEquals(expected, found, "typos of " + query);
+        }
+    }
+
+    @Test
+    public void testSwapSharingOneTrigram() {
+        CitySearchIndex index = new CitySearchIndex();
+        index.add("abcde");
+
+        // the swap changes four of the five trigrams, the name is only found through the most common one
+        List<CityMatch> matches = index.search("abdce", 5);
+
+        Assertions.assertEquals(1, matches.size());
+        Assertions.assertEquals("abcde", matches.get(0).getName());
+        Assertions.assertEquals("fuzzy", matches.get(0).getMatch());
+        Assertions.assertEquals(1, matches.get(0).getEdits());
+    }
+
+    @Test
+    public void testNormalizesWithoutDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        try {
+            // the turkish dotted capital i would not match the names indexed with another locale
+            Locale.setDefault(new Locale("tr", "TR"));
+            Assertions.assertEquals("iquique", CitySearchIndex.normalize("IQUIQUE"));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    private static int trigrams(String word) {
+        String padded = " " + word + " ";
+        Set<String> trigrams = new TreeSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams.size();
+    }
+
+    private static String randomWord(Random random, int length) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(6)));
+        }
+        return word.toString();
+    }
+
+    // removes, changes, adds or swaps a letter
+    private static String typo(Random random, String word) {
+        int at = random.nextInt(word.length() - 1);
+        char letter = (char) ('a' + random.nextInt(6));
+        switch (random.nextInt(4)) {
+            case 0:
+                return word.substring(0, at) + word.substring(at + 1);
+            case 1:
+                return word.substring(0, at) + letter + word.substring(at + 1);
+            case 2:
+                return word.substring(0, at) + letter + word.substring(at);
+            default:
+                return word.substring(0, at) + word.charAt(at + 1) + word.charAt(at) + word.substring(at + 2);
+        }
+    }
+
+    // the full distance with swaps of adjacent letters, to compare with the bounded one of the index
+    private static int edits(String a, String b) {
+        int[][] distance = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            for (int j = 0; j <= b.length(); j++) {
+                if (i == 0 || j == 0) {
+                    distance[i][j] = i + j;
+                    continue;
+                }
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                distance[i][j] = Math.min(Math.min(distance[i - 1][j] + 1, distance[i][j - 1] + 1), distance[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    distance[i][j] = Math.min(distance[i][j], distance[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return distance[a.length()][b.length()];
+    }
+}
@@ -0,0 +1,81 @@
+package dev.leosanchez;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.leosanchez.DTO.Place;
+import dev.leosanchez.repositories.CoordinatesGrid;
+import dev.leosanchez.repositories.CoordinatesTable;
+
+public class CoordinatesGridTest {
+
+    @Test
+    public void testNearestMatchesEveryDistance() {
+        CoordinatesGrid grid = new CoordinatesGrid(1);
+        CoordinatesTable table = new CoordinatesTable(grid);
+        Random random = new Random(42);
+        double[][] places = new double[5000][];
+        for (int i = 0; i < places.length; i++) {
+            places[i] = new double[] { random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180 };
+            table.put("Place " + i, places[i][0], places[i][1]);
+        }
+        // the points include the poles and both sides of the antimeridian
+        double[][] points = { { -33.45, -70.67 }, { 89.9, 10 }, { -90, 0 }, { 0, 179.99 }, { 12.5, -180 }, { 45, 0 } };
+        for (double[] point : points) {
+            List<Place> nearest = grid.nearest(point[0], point[1], 10);
+            List<Integer> expected = IntStream.range(0, places.length).boxed()
+                    .sorted(Comparator.comparingDouble(i -> CoordinatesGrid.distance(point[0], point[1], places[i][0], places[i][1])))
+                    .limit(10).collect(Collectors.toList());
+            Assertions.assertEquals(10, nearest.size());
+            for (int i = 0; i < 10; i++) {
+                Assertions.assertEquals("Place " + expected.get(i), nearest.get(i).getName());
+            }
+        }
+    }
+
+    @Test
+    public void testMovedPlaceFoundOnlyAtItsLastCoordinates() {
+        CoordinatesGrid grid = new CoordinatesGrid(0.25);
+        CoordinatesTable table = new CoordinatesTable(grid);
+        table.put("Santiago", -33.447487, -70.673676);
+        table.put("Coquimbo", -30.657041, -71.8844573);
+        // far from where it was, and then a little inside the same cell
+        table.put("Santiago", 10, 10);
+        table.put("Santiago", 10.01, 10.01);
+        List<Place> nearest = grid.nearest(-33.4, -70.6, 1);
+        Assertions.assertEquals("Coquimbo", nearest.get(0).getName());
+        Assertions.assertEquals(328, nearest.get(0).getDistance(), 5);
+        Assertions.assertEquals(2, grid.nearest(-33.4, -70.6, 5).size());
+        List<Place> within = grid.within(9, 9, 11, 11, 10);
+        Assertions.assertEquals(1, within.size());
+        Assertions.assertEquals(10.01, within.get(0).getLat());
+        Assertions.assertTrue(grid.within(-34, -71, -33, -70, 10).isEmpty());
+    }
+
+    @Test
+    public void testWithinBox() {
+        CoordinatesGrid grid = new CoordinatesGrid(0.5);
+        CoordinatesTable table = new CoordinatesTable(grid);
+        for (int lat = -80; lat <= 80; lat += 2) {
+            for (int lon = -180; lon < 180; lon += 2) {
+                table.put(lat + "," + lon, lat, lon);
+            }
+        }
+        Set<String> found = grid.within(-10, -10, 10, 10, 1000).stream().map(Place::getName).collect(Collectors.toSet());
+        Assertions.assertEquals(11 * 11, found.size());
+        Assertions.assertTrue(found.contains("-10,10"));
+        // a box crossing the antimeridian, from 176 east to 176 west
+        found = grid.within(0, 176, 4, -176, 1000).stream().map(Place::getName).collect(Collectors.toSet());
+        Assertions.assertEquals(Set.of("0,176", "0,178", "0,-180", "0,-178", "0,-176", "2,176", "2,178", "2,-180", "2,-178", "2,-176",
+                "4,176", "4,178", "4,-180", "4,-178", "4,-176"), found);
+        // the whole world, cut at the limit
+        Assertions.assertEquals(100, grid.within(-90, -180, 90, 180, 100).size());
+    }
+}
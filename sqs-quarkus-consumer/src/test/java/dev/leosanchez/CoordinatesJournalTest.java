@@ -0,0 +1,159 @@
+package dev.leosanchez;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.leosanchez.repositories.CoordinatesJournal;
+import dev.leosanchez.repositories.CoordinatesTable;
+
+public class CoordinatesJournalTest {
+
+    private Path directory;
+
+    @BeforeEach
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("coordinates");
+    }
+
+    @AfterEach
+    public void removeDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void testRestoredAfterRestart() throws Exception {
+        CoordinatesJournal journal = new CoordinatesJournal(directory, new CoordinatesTable(), Long.MAX_VALUE, 0);
+        journal.open();
+        journal.append("Punta Arenas", -53.16, -70.91);
+        journal.append("Valparaiso", -33.05, -71.61);
+        journal.appendAll(Map.of("Antofagasta", new double[] { -23.65, -70.4 }, "Valparaiso", new double[] { -33.04, -71.6 }));
+        journal.close();
+
+        CoordinatesTable restored = new CoordinatesTable();
+        journal = new CoordinatesJournal(directory, restored, Long.MAX_VALUE, 0);
+        journal.open();
+        journal.close();
+        double[] found = new double[2];
+        Assertions.assertEquals(3, restored.size());
+        Assertions.assertTrue(restored.get("Valparaiso", found));
+        Assertions.assertEquals(-33.04, found[0]);
+        Assertions.assertTrue(restored.get("Antofagasta", found));
+        Assertions.assertEquals(-70.4, found[1]);
+    }
+
+    @Test
+    public void testSnapshotReplacesLogs() throws Exception {
+        // every sync of the log is followed by a snapshot
+        CoordinatesJournal journal = new CoordinatesJournal(directory, new CoordinatesTable(), 1, 0);
+        journal.open();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] writers = new Future<?>[4];
+            for (int w = 0; w < writers.length; w++) {
+                int writer = w;
+                writers[w] = executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        journal.append("Place " + (i % 50), writer, i);
+                    }
+                });
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        journal.close();
+        List<String> files = list();
+        Assertions.assertTrue(files.stream().anyMatch(file -> file.endsWith(".snapshot")));
+        Assertions.assertTrue(files.stream().filter(file -> file.endsWith(".snapshot")).count() <= 2);
+
+        CoordinatesTable restored = new CoordinatesTable();
+        CoordinatesJournal reopened = new CoordinatesJournal(directory, restored, Long.MAX_VALUE, 0);
+        reopened.open();
+        reopened.close();
+        Assertions.assertEquals(50, restored.size());
+        double[] found = new double[2];
+        // each place keeps the last coordinates written by its writers
+        Assertions.assertTrue(restored.get("Place 49", found));
+        Assertions.assertEquals(499, found[1]);
+    }
+
+    @Test
+    public void testIncompleteRecordDiscarded() throws Exception {
+        CoordinatesJournal journal = new CoordinatesJournal(directory, new CoordinatesTable(), Long.MAX_VALUE, 0);
+        journal.open();
+        journal.append("Santiago", -33.447487, -70.673676);
+        journal.close();
+        // a crash in the middle of a write leaves part of a record at the end of the log
+        Path log = directory.resolve(list().stream().filter(file -> file.endsWith(".log")).findFirst().get());
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 0, 0, 0, 8, 'C', 'o', 'q' }));
+        }
+
+        CoordinatesTable restored = new CoordinatesTable();
+        journal = new CoordinatesJournal(directory, restored, Long.MAX_VALUE, 0);
+        journal.open();
+        journal.append("Coquimbo", -30.657041, -71.8844573);
+        journal.close();
+        restored = new CoordinatesTable();
+        journal = new CoordinatesJournal(directory, restored, Long.MAX_VALUE, 0);
+        journal.open();
+        journal.close();
+        double[] found = new double[2];
+        Assertions.assertEquals(2, restored.size());
+        Assertions.assertTrue(restored.get("Santiago", found));
+        Assertions.assertEquals(-33.447487, found[0]);
+        Assertions.assertTrue(restored.get("Coquimbo", found));
+    }
+
+    @Test
+    public void testFailedWriteNotApplied() throws Exception {
+        CoordinatesTable table = new CoordinatesTable();
+        CoordinatesJournal journal = new CoordinatesJournal(directory, table, Long.MAX_VALUE, 0);
+        journal.open();
+        journal.append("Santiago", -33.447487, -70.673676);
+        // the log is closed under the journal, as if the disk had failed
+        Field log = CoordinatesJournal.class.getDeclaredField("log");
+        log.setAccessible(true);
+        ((FileChannel) log.get(journal)).close();
+
+        Assertions.assertThrows(UncheckedIOException.class, () -> journal.append("Coquimbo", -30.657041, -71.8844573));
+        Assertions.assertThrows(UncheckedIOException.class, () -> journal.appendAll(Map.of("Arica", new double[] { -18.47, -70.3 })));
+        journal.close();
+        // the places reported as not stored are not served either
+        double[] found = new double[2];
+        Assertions.assertEquals(1, table.size());
+        Assertions.assertTrue(table.get("Santiago", found));
+        Assertions.assertFalse(table.get("Coquimbo", found));
+    }
+
+    private List<String> list() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -2,6 +2,7 @@ package dev.leosanchez;
 
 
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 
@@ -31,6 +32,11 @@ public class CoordinatesServiceTest {
         Assertions.assertNull(coordinates);
     }
 
+    @Test
+    public void testNullCityCoordinates() {
+        Assertions.assertNull(service.getCoordinates(null));
+    }
+
     @Test
     public void testCoordinatesInsertion() {
         service.addCoordinates("Punta Arenas", -53.7873884,-53.7873884);
@@ -39,4 +45,13 @@ public class CoordinatesServiceTest {
         Assertions.assertEquals(-53.7873884, coordinates.get(0));
         Assertions.assertEquals(-53.7873884, coordinates.get(1));
     }
+
+    @Test
+    public void testBulkCoordinatesInsertion() {
+        service.addCoordinatesInBulk(Map.of(
+            "Valparaiso", List.of(-33.047238, -71.612688),
+            "Antofagasta", List.of(-23.65, -70.4)));
+        Assertions.assertEquals(-33.047238, service.getCoordinates("Valparaiso").get(0));
+        Assertions.assertEquals(-70.4, service.getCoordinates("Antofagasta").get(1));
+    }
 }
@@ -0,0 +1,91 @@
+package dev.leosanchez;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.leosanchez.repositories.CoordinatesTable;
+
+public class CoordinatesTableTest {
+
+    @Test
+    public void testPutAndGet() {
+        CoordinatesTable table = new CoordinatesTable();
+        double[] found = new double[2];
+        Assertions.assertFalse(table.get("Santiago", found));
+        table.put("Santiago", -33.447487, -70.673676);
+        Assertions.assertTrue(table.get("Santiago", found));
+        Assertions.assertEquals(-33.447487, found[0]);
+        Assertions.assertEquals(-70.673676, found[1]);
+        // a place added again is updated, not duplicated
+        table.put("Santiago", -33.45, -70.66);
+        Assertions.assertTrue(table.get("Santiago", found));
+        Assertions.assertEquals(-33.45, found[0]);
+        Assertions.assertEquals(1, table.size());
+    }
+
+    @Test
+    public void testGrowsKeepingPlaces() {
+        CoordinatesTable table = new CoordinatesTable();
+        Map<String, double[]> places = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            places.put("Place " + i, new double[] { i, -i });
+        }
+        table.putAll(places);
+        for (int i = 5000; i < 10000; i++) {
+            table.put("Place " + i, i, -i);
+        }
+        Assertions.assertEquals(10000, table.size());
+        double[] found = new double[2];
+        for (int i = 0; i < 10000; i++) {
+            Assertions.assertTrue(table.get("Place " + i, found));
+            Assertions.assertEquals(i, found[0]);
+            Assertions.assertEquals(-i, found[1]);
+        }
+        Assertions.assertFalse(table.get("Place 10000", found));
+    }
+
+    @Test
+    public void testReadersNeverSeeTornCoordinates() throws Exception {
+        CoordinatesTable table = new CoordinatesTable();
+        table.put("Moving", 0, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch done = new CountDownLatch(1);
+        try {
+            // the writer keeps both coordinates equal and grows the table meanwhile, so a reader mixing two writes would notice
+            Future<?> writer = executor.submit(() -> {
+                for (int i = 1; i <= 200000; i++) {
+                    table.put("Moving", i, i);
+                    if (i % 20 == 0) {
+                        table.put("Other " + i, i, i);
+                    }
+                }
+                done.countDown();
+            });
+            Future<?>[] readers = new Future<?>[3];
+            for (int r = 0; r < readers.length; r++) {
+                readers[r] = executor.submit(() -> {
+                    double[] found = new double[2];
+                    while (done.getCount() > 0) {
+                        Assertions.assertTrue(table.get("Moving", found));
+                        Assertions.assertEquals(found[0], found[1]);
+                    }
+                });
+            }
+            writer.get(30, TimeUnit.SECONDS);
+            for (Future<?> reader : readers) {
+                reader.get(30, TimeUnit.SECONDS);
+            }
+            Assertions.assertEquals(10001, table.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package dev.leosanchez;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.inject.Inject;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import dev.leosanchez.DTO.ListenRequest;
+import dev.leosanchez.DTO.ListenerStatus;
+import dev.leosanchez.common.dto.QueueMessage;
+import dev.leosanchez.listeners.IListener;
+import dev.leosanchez.services.ListenerLauncherService;
+import dev.leosanchez.services.QueueConsumerService;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.quarkus.test.junit.mockito.InjectMock;
+
+@QuarkusTest
+@TestProfile(ListenerAdaptiveTest.TestProfile.class)
+public class ListenerAdaptiveTest {
+
+    public static class TestProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("listener.adaptive.enabled", "true",
+                    "listener.adaptive.interval-seconds", "1",
+                    "listener.adaptive.max-pollers", "3");
+        }
+    }
+
+    @Inject
+    ListenerLauncherService listenerLauncher;
+
+    @InjectMock
+    QueueConsumerService queueConsumerService;
+
+    @Test
+    public void testConcurrentPollers() throws Exception {
+        // both queues always have a big backlog, so the adaptive control adds pollers where it can
+        Mockito.when(queueConsumerService.getBacklog(Mockito.anyString())).thenReturn(1000L);
+        Counters parallel = new Counters();
+        Counters sequential = new Counters();
+        mockQueue("ParallelAdaptiveMock", parallel);
+        mockQueue("SequentialAdaptiveMock", sequential);
+        ListenRequest parallelRequest = new ListenRequest(listener(parallel), "ParallelAdaptiveMock", true, 10, 0, 4);
+        ListenRequest sequentialRequest = new ListenRequest(listener(sequential), "SequentialAdaptiveMock", false, 10, 0);
+
+        listenerLauncher.orchestrateListeners(List.of(parallelRequest, sequentialRequest), null);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (findStatus("ParallelAdaptiveMock").getPollers() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        listenerLauncher.pauseListener("ParallelAdaptiveMock");
+        listenerLauncher.pauseListener("SequentialAdaptiveMock");
+        // the pollings in progress finish with their messages
+        Thread.sleep(1000);
+
+        // the pollers of the parallel listener poll at the same time, and every message they receive is processed once
+        Assertions.assertEquals(3, findStatus("ParallelAdaptiveMock").getPollers());
+        Assertions.assertTrue(parallel.maxConcurrentPollings.get() > 1);
+        Assertions.assertEquals(parallel.received.get(), parallel.processed.get());
+        // a sequential listener is not adapted, so it never polls concurrently
+        Assertions.assertEquals(1, findStatus("SequentialAdaptiveMock").getPollers());
+        Assertions.assertEquals(1, sequential.maxConcurrentPollings.get());
+        Assertions.assertEquals(sequential.received.get(), sequential.processed.get());
+    }
+
+    private void mockQueue(String queueUrl, Counters counters) throws Exception {
+        Mockito.when(queueConsumerService.pollMessages(Mockito.eq(queueUrl), Mockito.anyInt())).thenAnswer(invocation -> {
+            int size = invocation.getArgument(1);
+            int concurrent = counters.concurrentPollings.incrementAndGet();
+            counters.maxConcurrentPollings.accumulateAndGet(concurrent, Math::max);
+            try {
+                Thread.sleep(20);
+            } finally {
+                counters.concurrentPollings.decrementAndGet();
+            }
+            counters.received.addAndGet(size);
+            return IntStream.range(0, size)
+                    .mapToObj(i -> new QueueMessage("Hola", queueUrl + "_" + i, Map.of()))
+                    .collect(Collectors.toList());
+        });
+    }
+
+    private IListener listener(Counters counters) {
+        IListener listener = Mockito.mock(IListener.class);
+        Mockito.when(listener.process(Mockito.anyString())).thenAnswer(invocation -> {
+            Thread.sleep(1);
+            counters.processed.incrementAndGet();
+            return Optional.empty();
+        });
+        return listener;
+    }
+
+    private ListenerStatus findStatus(String queueUrl) {
+        return listenerLauncher.getListenerStatuses().stream()
+            .filter(status -> status.getQueueUrl().equals(queueUrl)).findFirst().get();
+    }
+
+    private static class Counters {
+        private final AtomicInteger received = new AtomicInteger();
+        private final AtomicInteger processed = new AtomicInteger();
+        private final AtomicInteger concurrentPollings = new AtomicInteger();
+        private final AtomicInteger maxConcurrentPollings = new AtomicInteger();
+    }
+}
@@ -0,0 +1,81 @@
+package dev.leosanchez;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import dev.leosanchez.DTO.ListenerSettings;
+import dev.leosanchez.services.ListenerLauncherService;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.quarkus.test.junit.mockito.InjectMock;
+import io.restassured.http.ContentType;
+
+@QuarkusTest
+@TestProfile(ListenerAdminResourceEnabledTest.TestProfile.class)
+public class ListenerAdminResourceEnabledTest {
+
+    public static class TestProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("listener.admin.enabled", "true");
+        }
+    }
+
+    @InjectMock
+    ListenerLauncherService listenerLauncher;
+
+    @Test
+    public void testPauseAndResume() {
+        Mockito.when(listenerLauncher.getListenerStatuses()).thenReturn(List.of(ListenerAdminResourceTest.status(false)));
+        Mockito.when(listenerLauncher.pauseListener(Mockito.anyString())).thenReturn(true);
+        Mockito.when(listenerLauncher.resumeListener(Mockito.anyString())).thenReturn(true);
+
+        given().when().post("/admin/listeners/TwoWaysQueue/pause").then().statusCode(204);
+        given().when().post("/admin/listeners/TwoWaysQueue/resume").then().statusCode(204);
+        given().when().post("/admin/listeners/UnknownQueue/pause").then().statusCode(404);
+
+        Mockito.verify(listenerLauncher).pauseListener("http://localhost/queue/TwoWaysQueue");
+        Mockito.verify(listenerLauncher).resumeListener("http://localhost/queue/TwoWaysQueue");
+    }
+
+    @Test
+    public void testSettingsOfRunningListener() {
+        Mockito.when(listenerLauncher.getListenerStatuses()).thenReturn(List.of(ListenerAdminResourceTest.status(false)));
+
+        given().contentType(ContentType.JSON).body("{\"batchSize\": 5, \"messagesPerSecond\": 2.5}")
+            .when().put("/admin/listeners/TwoWaysQueue/settings")
+            .then().statusCode(202).body("appliedOn", equalTo("nextPolling"));
+
+        Mockito.verify(listenerLauncher).reconfigureListener(Mockito.eq("http://localhost/queue/TwoWaysQueue"),
+            Mockito.argThat((ListenerSettings settings) -> settings.getMaxMessagesPerPolling() == 5
+                && settings.getMessagesPerSecond() == 2.5 && settings.getMaxConcurrency() == null));
+    }
+
+    @Test
+    public void testSettingsOfPausedListener() {
+        Mockito.when(listenerLauncher.getListenerStatuses()).thenReturn(List.of(ListenerAdminResourceTest.status(true)));
+
+        // a paused listener does not poll, so the settings wait until it is resumed
+        given().contentType(ContentType.JSON).body("{\"batchSize\": 5}")
+            .when().put("/admin/listeners/TwoWaysQueue/settings")
+            .then().statusCode(202).body("appliedOn", equalTo("resume"));
+    }
+
+    @Test
+    public void testInvalidSettings() {
+        Mockito.when(listenerLauncher.getListenerStatuses()).thenReturn(List.of(ListenerAdminResourceTest.status(false)));
+        Mockito.when(listenerLauncher.reconfigureListener(Mockito.anyString(), Mockito.any()))
+            .thenThrow(new IllegalArgumentException("The batch size must be between 1 and 10"));
+
+        given().contentType(ContentType.JSON).body("{\"batchSize\": 11}")
+            .when().put("/admin/listeners/TwoWaysQueue/settings")
+            .then().statusCode(400).body("error", equalTo("The batch size must be between 1 and 10"));
+    }
+}
@@ -0,0 +1,55 @@
+package dev.leosanchez;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import dev.leosanchez.DTO.ListenerSettings;
+import dev.leosanchez.DTO.ListenerStatus;
+import dev.leosanchez.services.ListenerLauncherService;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.mockito.InjectMock;
+import io.restassured.http.ContentType;
+
+// the admin operations are disabled unless configured
+@QuarkusTest
+public class ListenerAdminResourceTest {
+
+    // the listeners are not launched in the test profile, so we mock what they report
+    @InjectMock
+    ListenerLauncherService listenerLauncher;
+
+    @BeforeEach
+    public void beforeEach() {
+        Mockito.when(listenerLauncher.getListenerStatuses()).thenReturn(List.of(status(false)));
+    }
+
+    @Test
+    public void testListenersListed() {
+        given().when().get("/admin/listeners/TwoWaysQueue")
+            .then().statusCode(200).body("queueUrl", equalTo("http://localhost/queue/TwoWaysQueue"));
+    }
+
+    @Test
+    public void testChangesRejected() {
+        given().when().post("/admin/listeners/TwoWaysQueue/pause").then().statusCode(403);
+        given().when().post("/admin/listeners/TwoWaysQueue/resume").then().statusCode(403);
+        given().contentType(ContentType.JSON).body("{\"batchSize\": 5}")
+            .when().put("/admin/listeners/TwoWaysQueue/settings").then().statusCode(403);
+        // nobody can stop the consumption
+        Mockito.verify(listenerLauncher, Mockito.never()).pauseListener(Mockito.anyString());
+        Mockito.verify(listenerLauncher, Mockito.never()).resumeListener(Mockito.anyString());
+        Mockito.verify(listenerLauncher, Mockito.never()).reconfigureListener(Mockito.anyString(), Mockito.any());
+    }
+
+    static ListenerStatus status(boolean paused) {
+        return new ListenerStatus("TwoWaysQueue", "http://localhost/queue/TwoWaysQueue", "CoordinateQueryListener", paused,
+            List.of("http://localhost/queue/TwoWaysQueue"), new ListenerSettings(10, 10, null, 0.0), null,
+            1, 0, 0, 0, 0, 0.0, 0, 0);
+    }
+}
@@ -5,9 +5,12 @@ import static org.mockito.ArgumentMatchers.argThat;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 import javax.inject.Inject;
 
@@ -15,12 +18,19 @@ import dev.leosanchez.common.dto.QueueMessage;
 import dev.leosanchez.common.exceptions.MessagePollingException;
 import dev.leosanchez.common.exceptions.MessageSendingException;
 
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import dev.leosanchez.DTO.BatchMessage;
+import dev.leosanchez.DTO.ListenLane;
 import dev.leosanchez.DTO.ListenRequest;
+import dev.leosanchez.DTO.ListenerSettings;
+import dev.leosanchez.DTO.ListenerStatus;
+import dev.leosanchez.listeners.IBatchListener;
 import dev.leosanchez.listeners.IListener;
+import dev.leosanchez.listeners.IStreamingListener;
 import dev.leosanchez.services.ListenerLauncherService;
 import dev.leosanchez.services.QueueConsumerService;
 import io.quarkus.test.junit.QuarkusTest;
@@ -142,6 +152,250 @@ public class ListenerLauncherTest {
         task.get();
     } 
 
+    @Test
+    public void testListenerWorkers() throws MessagePollingException {
+        // we record the threads that process the messages
+        Set<String> workerNames = ConcurrentHashMap.newKeySet();
+        IListener workerListenerMock = Mockito.mock(IListener.class);
+        Mockito.when(workerListenerMock.process(Mockito.anyString())).thenAnswer(invocation -> {
+            workerNames.add(Thread.currentThread().getName());
+            return Optional.empty();
+        });
+        // two workers and room for one waiting message
+        ListenRequest listenRequest = new ListenRequest(workerListenerMock, "EleventhMock", true, 10, 100, 2,
+            List.of(new ListenLane("EleventhMock", 0, 1)), 1);
+
+        listenerLauncher.orchestrateListeners(List.of(listenRequest), 1);
+
+        // the messages are processed by the workers of the listener, never by more than the configured ones
+        Mockito.verify(workerListenerMock, Mockito.times(3)).process(Mockito.anyString());
+        Assertions.assertTrue(workerNames.size() <= 2);
+        Assertions.assertTrue(workerNames.stream().allMatch(name -> name.startsWith("listener-EleventhMock-")));
+    }
+
+    @Test
+    public void testPrefetchPipeline() throws MessageSendingException, MessagePollingException {
+        // the poller keeps up to six messages buffered or in process while two workers drain them
+        ListenRequest listenRequest = new ListenRequest(twoWaysListenerMock, "TwelfthMock", true, 3, 0, 2,
+            List.of(new ListenLane("TwelfthMock", 0, 1)), 0, 6);
+
+        listenerLauncher.orchestrateListeners(List.of(listenRequest), 3);
+
+        // all the prefetched messages are processed and answered
+        Mockito.verify(queueConsumerService, Mockito.times(3)).pollMessages("TwelfthMock", 3);
+        Mockito.verify(queueConsumerService, Mockito.times(3)).sendAnswer(Mockito.eq("TwelfthMock/responseQueue"), Mockito.eq("Chao"), Mockito.eq("ES"));
+        Mockito.verify(queueConsumerService, Mockito.times(9)).sendAnswer(Mockito.eq("TwelfthMock/responseQueue"), Mockito.eq("Chao"), Mockito.anyString());
+    }
+
+    @Test
+    public void testExpiredRequestsDiscarded() throws MessageSendingException, MessagePollingException {
+        // the sender stopped waiting for this request a second ago
+        String deadline = String.valueOf(System.currentTimeMillis() - 1000);
+        Mockito.when(queueConsumerService.pollMessages(Mockito.eq("SeventhMock"), Mockito.anyInt())).thenReturn(List.of(
+            new QueueMessage("Hola", "ES_00000002", new HashMap<String, String>() {{
+                put("Signature", "ES");
+                put("ResponseQueueUrl", "SeventhMock/responseQueue");
+                put("Deadline", deadline);
+            }})
+        ));
+        ListenRequest listenRequest = new ListenRequest(twoWaysListenerMock, "SeventhMock", false, 10, 0);
+
+        listenerLauncher.orchestrateListeners(List.of(listenRequest), 1);
+
+        // the request is neither processed nor answered
+        Mockito.verify(twoWaysListenerMock, Mockito.never()).process(Mockito.anyString());
+        Mockito.verify(queueConsumerService, Mockito.never()).sendAnswer(Mockito.eq("SeventhMock/responseQueue"), Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test
+    public void testFailedMessagesNotAcknowledged() throws MessagePollingException {
+        // the listener fails with one of the three messages
+        IListener failingListenerMock = Mockito.mock(IListener.class);
+        Mockito.when(failingListenerMock.process(Mockito.anyString())).thenReturn(Optional.empty());
+        Mockito.when(failingListenerMock.process("Hi")).thenThrow(new IllegalStateException("Disk failure"));
+        ListenRequest listenRequest = new ListenRequest(failingListenerMock, "EighteenthMock", true, 10, 0);
+
+        listenerLauncher.orchestrateListeners(List.of(listenRequest), 1);
+
+        // the processed messages are deleted, the failed one stays in the queue to be received again
+        Mockito.verify(queueConsumerService).acknowledge(argThat(message -> message.getReceiptHandle().equals("ES_00000001")));
+        Mockito.verify(queueConsumerService).acknowledge(argThat(message -> message.getReceiptHandle().equals("IT_00000001")));
+        Mockito.verify(queueConsumerService, Mockito.never()).acknowledge(argThat(message -> message.getReceiptHandle().equals("EN_00000001")));
+    }
+
+    @Test
+    public void testStreamedResponse() throws MessageSendingException, MessagePollingException {
+        // a listener that answers in two chunks
+        IStreamingListener streamingListenerMock = Mockito.mock(IStreamingListener.class);
+        Mockito.doAnswer(invocation -> {
+            Consumer<String> emitter = invocation.getArgument(1);
+            emitter.accept("Hello");
+            emitter.accept("World");
+            return null;
+        }).when(streamingListenerMock).process(Mockito.anyString(), Mockito.any());
+        Mockito.when(queueConsumerService.pollMessages(Mockito.eq("EighthMock"), Mockito.anyInt())).thenReturn(List.of(
+            new QueueMessage("Hola", "ES_00000003", new HashMap<String, String>() {{
+                put("Signature", "ES");
+                put("ResponseQueueUrl", "EighthMock/responseQueue");
+                put("Streaming", "true");
+            }})
+        ));
+        ListenRequest listenRequest = new ListenRequest(streamingListenerMock, "EighthMock", false, 10, 0);
+
+        listenerLauncher.orchestrateListeners(List.of(listenRequest), 1);
+
+        // each chunk is sent with its sequence number, followed by the end marker with the number of chunks
+        Mockito.verify(queueConsumerService).sendAnswerChunk("EighthMock/responseQueue", "Hello", "ES", 0);
+        Mockito.verify(queueConsumerService).sendAnswerChunk("EighthMock/responseQueue", "World", "ES", 1);
+        Mockito.verify(queueConsumerService).sendEndOfAnswer("EighthMock/responseQueue", "ES", 2, false);
+        Mockito.verify(queueConsumerService, Mockito.never()).sendAnswer(Mockito.eq("EighthMock/responseQueue"), Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test
+    public void testInterruptedStreamedResponse() throws MessageSendingException, MessagePollingException {
+        // a listener that keeps emitting after a chunk could not be sent
+        IStreamingListener streamingListenerMock = Mockito.mock(IStreamingListener.class);
+        Mockito.doAnswer(invocation -> {
+            Consumer<String> emitter = invocation.getArgument(1);
+            emitter.accept("Hello");
+            try {
+                emitter.accept("World");
+            } catch (RuntimeException e) {
+                emitter.accept("Error");
+            }
+            return null;
+        }).when(streamingListenerMock).process(Mockito.anyString(), Mockito.any());
+        Mockito.doThrow(new MessageSendingException("Unavailable")).when(queueConsumerService)
+            .sendAnswerChunk("SeventeenthMock/responseQueue", "World", "ES", 1);
+        Mockito.when(queueConsumerService.pollMessages(Mockito.eq("SeventeenthMock"), Mockito.anyInt())).thenReturn(List.of(
+            new QueueMessage("Hola", "ES_00000004", new HashMap<String, String>() {{
+                put("Signature", "ES");
+                put("ResponseQueueUrl", "SeventeenthMock/responseQueue");
+                put("Streaming", "true");
+            }})
+        ));
+        ListenRequest listenRequest = new ListenRequest(streamingListenerMock, "SeventeenthMock", false, 10, 0);
+
+        listenerLauncher.orchestrateListeners(List.of(listenRequest), 1);
+
+        // the failed chunk does not use a sequence number, nothing is sent after it and the end marker reports the error
+        Mockito.verify(queueConsumerService, Mockito.never()).sendAnswerChunk(Mockito.eq("SeventeenthMock/responseQueue"), Mockito.eq("Error"), Mockito.anyString(), Mockito.anyInt());
+        Mockito.verify(queueConsumerService).sendEndOfAnswer("SeventeenthMock/responseQueue", "ES", 1, true);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBatchListener() throws MessageSendingException, MessagePollingException {
+        // a listener that answers each message of the batch with its own body
+        IBatchListener batchListenerMock = Mockito.mock(IBatchListener.class);
+        Mockito.doAnswer(invocation -> {
+            List<BatchMessage> batch = invocation.getArgument(0);
+            batch.forEach(message -> message.respond(message.getMessage()));
+            return null;
+        }).when(batchListenerMock).process(Mockito.anyList());
+        ListenRequest listenRequest = new ListenRequest(batchListenerMock, "ThirteenthMock", true, 10, 0);
+
+        listenerLauncher.orchestrateListeners(List.of(listenRequest), 1);
+
+        // the whole polling is processed in a single call, and each message gets its own response
+        Mockito.verify(batchListenerMock, Mockito.times(1)).process(Mockito.argThat((List<BatchMessage> batch) -> batch.size() == 3));
+        Mockito.verify(batchListenerMock, Mockito.never()).process(Mockito.anyString());
+        Mockito.verify(queueConsumerService).sendAnswer("ThirteenthMock/responseQueue", "Hola", "ES");
+        Mockito.verify(queueConsumerService).sendAnswer("ThirteenthMock/responseQueue", "Hi", "EN");
+        Mockito.verify(queueConsumerService).sendAnswer("ThirteenthMock/responseQueue", "Ciao", "IT");
+    }
+
+    @Test
+    public void testBatchedResponses() throws MessageSendingException, MessagePollingException {
+        ListenRequest listenRequest = new ListenRequest(twoWaysListenerMock, "FourteenthMock", true, 10, 0, 0,
+            List.of(new ListenLane("FourteenthMock", 0, 1)), 0, 0, 0.0, true);
+
+        listenerLauncher.orchestrateListeners(List.of(listenRequest), 1);
+
+        // the three responses go to the same queue, so they are sent in a single batch once the linger time passes
+        Mockito.verify(queueConsumerService, Mockito.timeout(1000).times(1)).sendAnswers(Mockito.eq("FourteenthMock/responseQueue"),
+            Mockito.eq(List.of("Chao", "Chao", "Chao")), Mockito.argThat(signatures -> signatures.containsAll(List.of("ES", "EN", "IT"))));
+        Mockito.verify(queueConsumerService, Mockito.never()).sendAnswer(Mockito.eq("FourteenthMock/responseQueue"), Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test
+    public void testFailedBatchedResponsesSentAlone() throws MessageSendingException, MessagePollingException {
+        // the batch request is rejected as a whole, e.g. because the responses are too large together
+        Mockito.when(queueConsumerService.sendAnswers(Mockito.eq("SixteenthMock/responseQueue"), Mockito.anyList(), Mockito.anyList()))
+            .thenThrow(new MessageSendingException("Batch too large"));
+        ListenRequest listenRequest = new ListenRequest(twoWaysListenerMock, "SixteenthMock", true, 10, 0, 0,
+            List.of(new ListenLane("SixteenthMock", 0, 1)), 0, 0, 0.0, true);
+
+        listenerLauncher.orchestrateListeners(List.of(listenRequest), 1);
+
+        // every response of the batch is still sent, one by one
+        Mockito.verify(queueConsumerService, Mockito.timeout(1000)).sendAnswer("SixteenthMock/responseQueue", "Chao", "ES");
+        Mockito.verify(queueConsumerService, Mockito.timeout(1000)).sendAnswer("SixteenthMock/responseQueue", "Chao", "EN");
+        Mockito.verify(queueConsumerService, Mockito.timeout(1000)).sendAnswer("SixteenthMock/responseQueue", "Chao", "IT");
+    }
+
+    @Test
+    public void testRuntimeReconfiguration() throws MessagePollingException {
+        ListenRequest listenRequest = new ListenRequest(oneWayListenerMock, "FifteenthMock", true, 10, 0, 4);
+        listenerLauncher.orchestrateListeners(List.of(listenRequest), 1);
+
+        // invalid settings are rejected right away, valid ones wait for the next polling
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> listenerLauncher.reconfigureListener("FifteenthMock", new ListenerSettings(11, null, null, null)));
+        Assertions.assertTrue(listenerLauncher.reconfigureListener("FifteenthMock", new ListenerSettings(3, 2, 5, null)));
+        Assertions.assertFalse(listenerLauncher.reconfigureListener("UnknownMock", new ListenerSettings(3, null, null, null)));
+        ListenerStatus pending = findStatus("FifteenthMock");
+        Assertions.assertEquals(10, pending.getSettings().getMaxMessagesPerPolling());
+        Assertions.assertEquals(3, pending.getPendingSettings().get().getMaxMessagesPerPolling());
+
+        listenerLauncher.orchestrateListeners(List.of(listenRequest), 1);
+
+        // the second polling used the new batch size and wait time, and found the queue empty
+        Mockito.verify(queueConsumerService, Mockito.times(1)).pollMessages("FifteenthMock", 10);
+        Mockito.verify(queueConsumerService, Mockito.times(1)).pollMessages("FifteenthMock", 3, 5);
+        ListenerStatus applied = findStatus("FifteenthMock");
+        Assertions.assertTrue(applied.getPendingSettings().isEmpty());
+        Assertions.assertEquals(3, applied.getSettings().getMaxMessagesPerPolling());
+        Assertions.assertEquals(2, applied.getSettings().getMaxConcurrency());
+        Assertions.assertEquals(2, applied.getPollings());
+        Assertions.assertEquals(1, applied.getEmptyPollings());
+        Assertions.assertEquals(3, applied.getProcessed());
+    }
+
+    private ListenerStatus findStatus(String queueUrl) {
+        return listenerLauncher.getListenerStatuses().stream()
+            .filter(status -> status.getQueueUrl().equals(queueUrl)).findFirst().get();
+    }
+
+    @Test
+    public void testPriorityLanesWithBacklog() throws MessagePollingException {
+        // both lanes always have messages, so the lane with lower priority is starved
+        ListenRequest listenRequest = new ListenRequest(twoWaysListenerMock, "NinthMock", false, 10, 0, 0, List.of(
+            new ListenLane("NinthMock", 1, 1),
+            new ListenLane("NinthMockBulk", 0, 1)
+        ));
+
+        listenerLauncher.orchestrateListeners(List.of(listenRequest), 4);
+
+        Mockito.verify(queueConsumerService, Mockito.times(4)).pollMessages("NinthMock", 10);
+        Mockito.verify(queueConsumerService, Mockito.never()).pollMessages("NinthMockBulk", 10);
+    }
+
+    @Test
+    public void testWeightedLanesWithoutBacklog() throws MessagePollingException {
+        // the interactive lane is empty, so the pollings are shared according to the weights
+        Mockito.when(queueConsumerService.pollMessages(Mockito.eq("TenthMock"), Mockito.anyInt())).thenReturn(List.of());
+        ListenRequest listenRequest = new ListenRequest(twoWaysListenerMock, "TenthMock", false, 10, 0, 0, List.of(
+            new ListenLane("TenthMock", 1, 3),
+            new ListenLane("TenthMockBulk", 0, 1)
+        ));
+
+        listenerLauncher.orchestrateListeners(List.of(listenRequest), 8);
+
+        Mockito.verify(queueConsumerService, Mockito.times(6)).pollMessages("TenthMock", 10);
+        Mockito.verify(queueConsumerService, Mockito.times(2)).pollMessages("TenthMockBulk", 10);
+    }
+
     @Test
     public void testMultipleListeners() throws MessageSendingException, MessagePollingException {
          // define multiple listen requests
@@ -0,0 +1,63 @@
+package dev.leosanchez;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.leosanchez.services.ListenerStats;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ListenerStatsTest {
+
+    @Test
+    public void testPollingsAndProcessing() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ListenerStats stats = new ListenerStats(registry, "StatsQueue");
+        stats.recordPolling(2, TimeUnit.MILLISECONDS.toNanos(20));
+        stats.recordPolling(0, TimeUnit.MILLISECONDS.toNanos(20));
+        stats.startProcessing(2);
+        Assertions.assertEquals(2, stats.getInFlight());
+        stats.recordProcessing(TimeUnit.MILLISECONDS.toNanos(10), false);
+        stats.recordProcessing(TimeUnit.MILLISECONDS.toNanos(30), true);
+
+        Assertions.assertEquals(0, stats.getInFlight());
+        Assertions.assertEquals(2, stats.getPollings());
+        Assertions.assertEquals(1, stats.getEmptyPollings());
+        Assertions.assertEquals(2, stats.getProcessed());
+        Assertions.assertEquals(1, stats.getFailed());
+        Assertions.assertEquals(20, stats.getAverageProcessingMilliseconds(), 0.001);
+        // the empty pollings are told apart by their tag, so their ratio can be computed by the monitoring
+        Assertions.assertEquals(1, registry.get("listener.pollings").tag("queue", "StatsQueue").tag("result", "empty").counter().count());
+    }
+
+    @Test
+    public void testQueueTimeHistogram() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ListenerStats stats = new ListenerStats(registry, "StatsQueue");
+        // the messages were sent between one and a hundred milliseconds ago
+        long now = System.currentTimeMillis();
+        for (int i = 1; i <= 100; i++) {
+            stats.recordQueueTime(now - i);
+        }
+        Timer queueTime = registry.get("listener.queue.duration").tag("queue", "StatsQueue").timer();
+        Assertions.assertEquals(100, queueTime.count());
+        // the buckets are published instead of percentiles, so they can be added up across instances
+        HistogramSnapshot snapshot = queueTime.takeSnapshot();
+        Assertions.assertEquals(0, snapshot.percentileValues().length);
+        Assertions.assertTrue(countUnder(snapshot, 50) >= 40 && countUnder(snapshot, 50) <= 50);
+        Assertions.assertEquals(100, countUnder(snapshot, 500));
+        // a message sent "in the future" by a clock ahead of ours did not wait at all
+        stats.recordQueueTime(System.currentTimeMillis() + 1000);
+        Assertions.assertEquals(101, queueTime.count());
+    }
+
+    private static double countUnder(HistogramSnapshot snapshot, double milliseconds) {
+        return Arrays.stream(snapshot.histogramCounts())
+                .filter(bucket -> bucket.bucket(TimeUnit.MILLISECONDS) == milliseconds)
+                .findFirst().orElseThrow().count();
+    }
+}
@@ -0,0 +1,107 @@
+package dev.leosanchez;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.inject.Inject;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import dev.leosanchez.DTO.ListenRequest;
+import dev.leosanchez.common.dto.QueueMessage;
+import dev.leosanchez.listeners.IListener;
+import dev.leosanchez.services.ListenerLauncherService;
+import dev.leosanchez.services.QueueConsumerService;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.quarkus.test.junit.mockito.InjectMock;
+
+// on java 21 each message is processed on its own virtual thread, on older versions the listeners fall back to platform threads
+@QuarkusTest
+@TestProfile(ListenerVirtualThreadsTest.TestProfile.class)
+public class ListenerVirtualThreadsTest {
+
+    public static class TestProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("listener.execution-mode", "virtual");
+        }
+    }
+
+    @Inject
+    ListenerLauncherService listenerLauncher;
+
+    @InjectMock
+    QueueConsumerService queueConsumerService;
+
+    @Test
+    public void testVirtualThreadListening() throws Exception {
+        Mockito.when(queueConsumerService.pollMessages(Mockito.eq("VirtualMock"), Mockito.anyInt())).thenReturn(
+            IntStream.range(0, 10)
+                .mapToObj(i -> new QueueMessage("Hola", "VT_" + i, Map.of("Signature", "VT_" + i, "ResponseQueueUrl", "VirtualMock/responseQueue")))
+                .collect(Collectors.toList()));
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        Set<Boolean> virtual = ConcurrentHashMap.newKeySet();
+        IListener listener = Mockito.mock(IListener.class);
+        Mockito.when(listener.process(Mockito.anyString())).thenAnswer(invocation -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            virtual.add(isVirtual(Thread.currentThread()));
+            // a blocking call, which does not hold a carrier thread on a virtual thread
+            Thread.sleep(50);
+            concurrent.decrementAndGet();
+            return Optional.of("Chao");
+        });
+        ListenRequest listenRequest = new ListenRequest(listener, "VirtualMock", true, 10, 0, 3);
+
+        listenerLauncher.orchestrateListeners(List.of(listenRequest), 1);
+
+        // every message is answered, and no more of them than the concurrency of the listener at the same time
+        Mockito.verify(queueConsumerService, Mockito.times(10)).sendAnswer(Mockito.eq("VirtualMock/responseQueue"), Mockito.eq("Chao"), Mockito.anyString());
+        Assertions.assertTrue(maxConcurrent.get() <= 3);
+        Assertions.assertEquals(Set.of(Runtime.version().feature() >= 21), virtual);
+    }
+
+    @Test
+    public void testReceivingWhileProcessing() throws Exception {
+        // the platform fallback waits for each batch, only virtual threads keep receiving meanwhile
+        Assumptions.assumeTrue(Runtime.version().feature() >= 21);
+        Mockito.when(queueConsumerService.pollMessages(Mockito.eq("ReceivingVirtualMock"), Mockito.anyInt())).thenAnswer(invocation ->
+            IntStream.range(0, Math.min(2, (int) invocation.getArgument(1)))
+                .mapToObj(i -> new QueueMessage("Hola", "RV_" + i, Map.of("Signature", "RV_" + i, "ResponseQueueUrl", "ReceivingVirtualMock/responseQueue")))
+                .collect(Collectors.toList()));
+        // each message waits for the ones of the next polling, so they only finish if both pollings process at the same time
+        CountDownLatch processing = new CountDownLatch(4);
+        IListener listener = Mockito.mock(IListener.class);
+        Mockito.when(listener.process(Mockito.anyString())).thenAnswer(invocation -> {
+            processing.countDown();
+            return processing.await(5, TimeUnit.SECONDS) ? Optional.of("Chao") : Optional.empty();
+        });
+        ListenRequest listenRequest = new ListenRequest(listener, "ReceivingVirtualMock", true, 10, 0, 6);
+
+        listenerLauncher.orchestrateListeners(List.of(listenRequest), 2);
+
+        Mockito.verify(queueConsumerService, Mockito.times(4)).sendAnswer(Mockito.eq("ReceivingVirtualMock/responseQueue"), Mockito.eq("Chao"), Mockito.anyString());
+    }
+
+    // Thread.isVirtual only exists from java 21, the project is built for java 11
+    private static boolean isVirtual(Thread thread) {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+}
@@ -70,9 +70,13 @@ public class QueueConsumerServiceTest {
 
     @Test
     public void deleteMessages() throws MessageRemovalException, MessagePollingException {
-        service.pollMessages(queueUrl, 10);
-        Mockito.verify(adapter, Mockito.atLeastOnce()).deleteMessage(Mockito.eq(queueUrl), Mockito.eq("FR_00000001"));
-        Mockito.verify(adapter, Mockito.atLeastOnce()).deleteMessage(Mockito.eq(queueUrl), Mockito.eq("EN_00000001"));
+        List<QueueMessage> messages = service.pollMessages(queueUrl, 10);
+        // the messages are only deleted once they were processed
+        Mockito.verify(adapter, Mockito.never()).deleteMessage(Mockito.anyString(), Mockito.anyString());
+        service.acknowledge(messages.get(0));
+        service.acknowledge(messages.get(0));
+        Mockito.verify(adapter, Mockito.times(1)).deleteMessage(Mockito.eq(queueUrl), Mockito.eq("FR_00000001"));
+        Mockito.verify(adapter, Mockito.never()).deleteMessage(Mockito.eq(queueUrl), Mockito.eq("EN_00000001"));
     }
 
     @Test
@@ -85,4 +89,17 @@ public class QueueConsumerServiceTest {
         );    
     }
 
+    @Test
+    public void sendAnswers() throws MessageSendingException {
+        Mockito.when(adapter.sendMessageBatchWithAttributes(Mockito.anyString(), Mockito.anyList(), Mockito.anyList())).thenReturn(List.of(1));
+        List<Integer> failed = service.sendAnswers("https://targetqueue.com/testQueue", List.of("Hello", "Bonjour"), List.of("EN", "FR"));
+        // each response keeps its own signature, and the failed ones are reported by index
+        Mockito.verify(adapter, Mockito.times(1)).sendMessageBatchWithAttributes(
+            Mockito.eq("https://targetqueue.com/testQueue"),
+            Mockito.eq(List.of("Hello", "Bonjour")),
+            Mockito.argThat((ArgumentMatcher<List<Map<String, String>>>) matcher -> matcher.get(0).get("Signature").equals("EN") && matcher.get(1).get("Signature").equals("FR"))
+        );
+        Assertions.assertEquals(List.of(1), failed);
+    }
+
 }
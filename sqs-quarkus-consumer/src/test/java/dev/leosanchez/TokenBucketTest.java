@@ -0,0 +1,38 @@
+package dev.leosanchez;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.leosanchez.services.TokenBucket;
+
+public class TokenBucketTest {
+
+    @Test
+    public void testBurstThenRate() {
+        // ten messages per second, three of them at once after being idle
+        TokenBucket bucket = new TokenBucket(10, 3);
+        Assertions.assertEquals(0, bucket.reserve());
+        Assertions.assertEquals(0, bucket.reserve());
+        Assertions.assertEquals(0, bucket.reserve());
+        // the burst is spent, so the next messages are spaced a tenth of a second
+        long fourth = TimeUnit.NANOSECONDS.toMillis(bucket.reserve());
+        long fifth = TimeUnit.NANOSECONDS.toMillis(bucket.reserve());
+        Assertions.assertTrue(fourth > 80 && fourth <= 100);
+        Assertions.assertTrue(fifth > 180 && fifth <= 200);
+    }
+
+    @Test
+    public void testBurstRecoveredWhileIdle() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(20, 2);
+        bucket.reserve();
+        bucket.reserve();
+        Assertions.assertTrue(bucket.reserve() > 0);
+        // after being idle the whole burst is available again, but not more
+        Thread.sleep(300);
+        Assertions.assertEquals(0, bucket.reserve());
+        Assertions.assertEquals(0, bucket.reserve());
+        Assertions.assertTrue(bucket.reserve() > 0);
+    }
+}
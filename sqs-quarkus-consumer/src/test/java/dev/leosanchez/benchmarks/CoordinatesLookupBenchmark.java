@@ -0,0 +1,119 @@
+package dev.leosanchez.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import dev.leosanchez.repositories.CoordinatesTable;
+
+// compares the lookups of the coordinates table against a map of boxed lists, the simplest thread safe version of the former repository
+// it is not a test, run it with the main method from the test classpath or with the jmh runner, and add -prof gc to see the allocations
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class CoordinatesLookupBenchmark {
+
+    @Param({ "1000", "1000000" })
+    int places;
+
+    private String[] names;
+    private Map<String, List<Double>> boxed;
+    private CoordinatesTable table;
+
+    @Setup
+    public void setup() {
+        names = new String[places];
+        boxed = new ConcurrentHashMap<>();
+        table = new CoordinatesTable();
+        for (int i = 0; i < places; i++) {
+            names[i] = "Place " + i;
+            double lat = -90 + 180.0 * i / places;
+            double lon = -180 + 360.0 * i / places;
+            boxed.put(names[i], List.of(lat, lon));
+            table.put(names[i], lat, lon);
+        }
+    }
+
+    // each thread keeps its own array for the results, as a listener would
+    @State(Scope.Thread)
+    public static class Reader {
+        double[] found = new double[2];
+    }
+
+    private String randomName() {
+        return names[ThreadLocalRandom.current().nextInt(names.length)];
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void readBoxed(Blackhole blackhole) {
+        List<Double> coordinates = boxed.get(randomName());
+        blackhole.consume(coordinates.get(0));
+        blackhole.consume(coordinates.get(1));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void readTable(Reader reader, Blackhole blackhole) {
+        table.get(randomName(), reader.found);
+        blackhole.consume(reader.found[0]);
+        blackhole.consume(reader.found[1]);
+    }
+
+    // three readers and a writer updating places all the time, the writer invalidates the optimistic reads of its segment
+    @Benchmark
+    @Group("mixedBoxed")
+    @GroupThreads(3)
+    public void mixedBoxedRead(Blackhole blackhole) {
+        readBoxed(blackhole);
+    }
+
+    @Benchmark
+    @Group("mixedBoxed")
+    @GroupThreads(1)
+    public void mixedBoxedWrite() {
+        boxed.put(randomName(), List.of(ThreadLocalRandom.current().nextDouble(), ThreadLocalRandom.current().nextDouble()));
+    }
+
+    @Benchmark
+    @Group("mixedTable")
+    @GroupThreads(3)
+    public void mixedTableRead(Reader reader, Blackhole blackhole) {
+        readTable(reader, blackhole);
+    }
+
+    @Benchmark
+    @Group("mixedTable")
+    @GroupThreads(1)
+    public void mixedTableWrite() {
+        table.put(randomName(), ThreadLocalRandom.current().nextDouble(), ThreadLocalRandom.current().nextDouble());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CoordinatesLookupBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,104 @@
+package dev.leosanchez.listeners.deployment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Singleton;
+
+import org.jboss.jandex.AnnotationInstance;
+import org.jboss.jandex.AnnotationTarget;
+import org.jboss.jandex.DotName;
+import org.jboss.jandex.IndexView;
+import org.jboss.logging.Logger;
+
+import dev.leosanchez.listeners.runtime.ListenerDefinition;
+import dev.leosanchez.listeners.runtime.ListenerDefinitions;
+import dev.leosanchez.listeners.runtime.ListenerDefinitionsRecorder;
+import dev.leosanchez.listeners.runtime.ListenerLaneDefinition;
+import dev.leosanchez.qualifiers.ListenerLane;
+import dev.leosanchez.qualifiers.ListenerQualifier;
+import io.quarkus.arc.deployment.SyntheticBeanBuildItem;
+import io.quarkus.deployment.annotations.BuildStep;
+import io.quarkus.deployment.annotations.ExecutionTime;
+import io.quarkus.deployment.annotations.Record;
+import io.quarkus.deployment.builditem.AdditionalIndexedClassesBuildItem;
+import io.quarkus.deployment.builditem.CombinedIndexBuildItem;
+import io.quarkus.deployment.builditem.FeatureBuildItem;
+
+// finds the listeners while the application is built, so the consumer does not look for them with reflection on startup
+public class ListenerDiscoveryProcessor {
+
+    // just a logger
+    private static final Logger LOG = Logger.getLogger(ListenerDiscoveryProcessor.class);
+
+    private static final String FEATURE = "sqs-listeners";
+
+    static final DotName LISTENER_QUALIFIER = DotName.createSimple(ListenerQualifier.class.getName());
+
+    @BuildStep
+    FeatureBuildItem feature() {
+        return new FeatureBuildItem(FEATURE);
+    }
+
+    // the annotations ship in the runtime module, which is not a bean archive, so arc is told about the qualifier
+    @BuildStep
+    AdditionalIndexedClassesBuildItem indexAnnotations() {
+        return new AdditionalIndexedClassesBuildItem(ListenerQualifier.class.getName(), ListenerLane.class.getName());
+    }
+
+    @BuildStep
+    @Record(ExecutionTime.STATIC_INIT)
+    SyntheticBeanBuildItem discoverListeners(CombinedIndexBuildItem combinedIndex, ListenerDefinitionsRecorder recorder) {
+        IndexView index = combinedIndex.getIndex();
+        List<ListenerDefinition> definitions = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        for (AnnotationInstance annotation : index.getAnnotations(LISTENER_QUALIFIER)) {
+            // the qualifier is also used on injection points, only the annotated classes are listeners
+            if (annotation.target().kind() != AnnotationTarget.Kind.CLASS) {
+                continue;
+            }
+            String beanClassName = annotation.target().asClass().name().toString();
+            String urlProperty = annotation.valueWithDefault(index, "urlProperty").asString();
+            // a listener without its queue would never be launched, the mistake is reported now instead of ignored
+            if (urlProperty.isBlank()) {
+                errors.add(beanClassName + " has no urlProperty");
+                continue;
+            }
+            ListenerDefinition definition = new ListenerDefinition();
+            definition.setBeanClassName(beanClassName);
+            definition.setUrlProperty(urlProperty);
+            definition.setOptional(annotation.valueWithDefault(index, "optional").asBoolean());
+            definition.setParallelProcessing(annotation.valueWithDefault(index, "parallelProcessing").asBoolean());
+            definition.setMaxNumberOfMessagesPerProcessing(annotation.valueWithDefault(index, "maxNumberOfMessagesPerProcessing").asInt());
+            definition.setMinProcessingMilliseconds(annotation.valueWithDefault(index, "minProcessingMilliseconds").asInt());
+            definition.setMaxConcurrency(annotation.valueWithDefault(index, "maxConcurrency").asInt());
+            definition.setQueueCapacity(annotation.valueWithDefault(index, "queueCapacity").asInt());
+            definition.setPrefetchCapacity(annotation.valueWithDefault(index, "prefetchCapacity").asInt());
+            definition.setMessagesPerSecond(annotation.valueWithDefault(index, "messagesPerSecond").asDouble());
+            definition.setBatchResponses(annotation.valueWithDefault(index, "batchResponses").asBoolean());
+            definition.setPriority(annotation.valueWithDefault(index, "priority").asInt());
+            definition.setWeight(annotation.valueWithDefault(index, "weight").asInt());
+            // sqs returns at most ten messages per receive
+            if (definition.getMaxNumberOfMessagesPerProcessing() < 1 || definition.getMaxNumberOfMessagesPerProcessing() > 10) {
+                errors.add(beanClassName + " must process between 1 and 10 messages per polling");
+            }
+            for (AnnotationInstance lane : annotation.valueWithDefault(index, "lanes").asNestedArray()) {
+                if (lane.valueWithDefault(index, "urlProperty").asString().isBlank()) {
+                    errors.add(beanClassName + " has a lane without urlProperty");
+                }
+                definition.getLanes().add(new ListenerLaneDefinition(lane.valueWithDefault(index, "urlProperty").asString(),
+                        lane.valueWithDefault(index, "priority").asInt(), lane.valueWithDefault(index, "weight").asInt()));
+            }
+            LOG.debug("Listener found: " + definition.getBeanClassName());
+            definitions.add(definition);
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException("Invalid listeners: " + String.join(", ", errors));
+        }
+        return SyntheticBeanBuildItem.configure(ListenerDefinitions.class)
+                .scope(Singleton.class)
+                .unremovable()
+                .runtimeValue(recorder.createDefinitions(definitions))
+                .done();
+    }
+}
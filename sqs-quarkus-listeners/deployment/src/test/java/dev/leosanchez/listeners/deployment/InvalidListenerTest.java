@@ -0,0 +1,46 @@
+package dev.leosanchez.listeners.deployment;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import dev.leosanchez.qualifiers.ListenerLane;
+import dev.leosanchez.qualifiers.ListenerQualifier;
+import io.quarkus.test.QuarkusUnitTest;
+
+public class InvalidListenerTest {
+
+    // a listener without its queue is a mistake reported by the build, not a listener silently ignored
+    @RegisterExtension
+    static final QuarkusUnitTest config = new QuarkusUnitTest()
+            .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+                    .addClasses(UnboundListener.class, OversizedListener.class))
+            .assertException(e -> {
+                Throwable cause = e;
+                while (!(cause instanceof IllegalStateException) && cause.getCause() != null) {
+                    cause = cause.getCause();
+                }
+                Assertions.assertTrue(cause instanceof IllegalStateException, e.toString());
+                Assertions.assertTrue(cause.getMessage().contains(UnboundListener.class.getName() + " has no urlProperty"));
+                Assertions.assertTrue(cause.getMessage().contains(OversizedListener.class.getName() + " must process between 1 and 10"));
+            });
+
+    @Test
+    public void testBuildFails() {
+        Assertions.fail("The build should have failed");
+    }
+
+    @ApplicationScoped
+    @ListenerQualifier
+    public static class UnboundListener {
+    }
+
+    @ApplicationScoped
+    @ListenerQualifier(urlProperty = "oversized.queue.url", maxNumberOfMessagesPerProcessing = 20)
+    public static class OversizedListener {
+    }
+}
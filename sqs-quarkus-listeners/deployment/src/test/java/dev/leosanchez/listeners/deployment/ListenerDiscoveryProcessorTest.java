@@ -0,0 +1,54 @@
+package dev.leosanchez.listeners.deployment;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import dev.leosanchez.listeners.runtime.ListenerDefinition;
+import dev.leosanchez.listeners.runtime.ListenerDefinitions;
+import dev.leosanchez.qualifiers.ListenerLane;
+import dev.leosanchez.qualifiers.ListenerQualifier;
+import io.quarkus.test.QuarkusUnitTest;
+
+public class ListenerDiscoveryProcessorTest {
+
+    @RegisterExtension
+    static final QuarkusUnitTest config = new QuarkusUnitTest()
+            .setArchiveProducer(() -> ShrinkWrap.create(JavaArchive.class)
+                    .addClasses(QueryListener.class, ListenerUser.class));
+
+    @Inject
+    ListenerDefinitions definitions;
+
+    @Test
+    public void testListenerRegistered() {
+        // the injection point with the qualifier is not a listener
+        Assertions.assertEquals(1, definitions.size());
+        ListenerDefinition definition = definitions.forBeanClass(QueryListener.class.getName()).get();
+        Assertions.assertEquals("query.queue.url", definition.getUrlProperty());
+        Assertions.assertFalse(definition.isParallelProcessing());
+        Assertions.assertEquals(5, definition.getMaxNumberOfMessagesPerProcessing());
+        Assertions.assertEquals(25, definition.getMessagesPerSecond());
+        Assertions.assertEquals(1, definition.getLanes().size());
+        Assertions.assertEquals("query.bulk.queue.url", definition.getLanes().get(0).getUrlProperty());
+        Assertions.assertEquals(3, definition.getLanes().get(0).getWeight());
+    }
+
+    @ApplicationScoped
+    @ListenerQualifier(urlProperty = "query.queue.url", parallelProcessing = false, maxNumberOfMessagesPerProcessing = 5,
+            messagesPerSecond = 25, lanes = { @ListenerLane(urlProperty = "query.bulk.queue.url", weight = 3) })
+    public static class QueryListener {
+    }
+
+    @ApplicationScoped
+    public static class ListenerUser {
+        @Inject
+        @ListenerQualifier
+        QueryListener listener;
+    }
+}
@@ -0,0 +1,135 @@
+package dev.leosanchez.listeners.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// the values of the @ListenerQualifier annotation of a listener, read from the index at build time
+public class ListenerDefinition {
+    // the listener class, so it can be matched with its bean
+    private String beanClassName;
+    private String urlProperty;
+    private boolean optional;
+    private boolean parallelProcessing;
+    private int maxNumberOfMessagesPerProcessing;
+    private int minProcessingMilliseconds;
+    private int maxConcurrency;
+    private int queueCapacity;
+    private int prefetchCapacity;
+    private double messagesPerSecond;
+    private boolean batchResponses;
+    private int priority;
+    private int weight;
+    private List<ListenerLaneDefinition> lanes = new ArrayList<>();
+
+    public String getBeanClassName() {
+        return beanClassName;
+    }
+
+    public void setBeanClassName(String beanClassName) {
+        this.beanClassName = beanClassName;
+    }
+
+    public String getUrlProperty() {
+        return urlProperty;
+    }
+
+    public void setUrlProperty(String urlProperty) {
+        this.urlProperty = urlProperty;
+    }
+
+    public boolean isOptional() {
+        return optional;
+    }
+
+    public void setOptional(boolean optional) {
+        this.optional = optional;
+    }
+
+    public boolean isParallelProcessing() {
+        return parallelProcessing;
+    }
+
+    public void setParallelProcessing(boolean parallelProcessing) {
+        this.parallelProcessing = parallelProcessing;
+    }
+
+    public int getMaxNumberOfMessagesPerProcessing() {
+        return maxNumberOfMessagesPerProcessing;
+    }
+
+    public void setMaxNumberOfMessagesPerProcessing(int maxNumberOfMessagesPerProcessing) {
+        this.maxNumberOfMessagesPerProcessing = maxNumberOfMessagesPerProcessing;
+    }
+
+    public int getMinProcessingMilliseconds() {
+        return minProcessingMilliseconds;
+    }
+
+    public void setMinProcessingMilliseconds(int minProcessingMilliseconds) {
+        this.minProcessingMilliseconds = minProcessingMilliseconds;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getPrefetchCapacity() {
+        return prefetchCapacity;
+    }
+
+    public void setPrefetchCapacity(int prefetchCapacity) {
+        this.prefetchCapacity = prefetchCapacity;
+    }
+
+    public double getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+
+    public void setMessagesPerSecond(double messagesPerSecond) {
+        this.messagesPerSecond = messagesPerSecond;
+    }
+
+    public boolean isBatchResponses() {
+        return batchResponses;
+    }
+
+    public void setBatchResponses(boolean batchResponses) {
+        this.batchResponses = batchResponses;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+
+    public List<ListenerLaneDefinition> getLanes() {
+        return lanes;
+    }
+
+    public void setLanes(List<ListenerLaneDefinition> lanes) {
+        this.lanes = lanes;
+    }
+}
@@ -0,0 +1,26 @@
+package dev.leosanchez.listeners.runtime;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// every listener found at build time, available as a bean so the launcher does not inspect classes at startup
+public class ListenerDefinitions {
+
+    private final Map<String, ListenerDefinition> definitions;
+
+    public ListenerDefinitions(List<ListenerDefinition> definitions) {
+        this.definitions = definitions.stream()
+                .collect(Collectors.toMap(ListenerDefinition::getBeanClassName, Function.identity()));
+    }
+
+    public Optional<ListenerDefinition> forBeanClass(String beanClassName) {
+        return Optional.ofNullable(definitions.get(beanClassName));
+    }
+
+    public int size() {
+        return definitions.size();
+    }
+}
@@ -0,0 +1,15 @@
+package dev.leosanchez.listeners.runtime;
+
+import java.util.List;
+
+import io.quarkus.runtime.RuntimeValue;
+import io.quarkus.runtime.annotations.Recorder;
+
+@Recorder
+public class ListenerDefinitionsRecorder {
+
+    // the definitions are written as bytecode at build time and only instantiated at startup
+    public RuntimeValue<ListenerDefinitions> createDefinitions(List<ListenerDefinition> definitions) {
+        return new RuntimeValue<>(new ListenerDefinitions(definitions));
+    }
+}
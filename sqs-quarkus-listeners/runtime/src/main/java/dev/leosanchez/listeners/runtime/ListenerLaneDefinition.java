@@ -0,0 +1,42 @@
+package dev.leosanchez.listeners.runtime;
+
+// an additional queue of a listener, as declared in its @ListenerLane annotation
+public class ListenerLaneDefinition {
+    private String urlProperty;
+    private int priority;
+    private int weight;
+
+    // the recorder rebuilds it at startup through the setters
+    public ListenerLaneDefinition() {
+    }
+
+    public ListenerLaneDefinition(String urlProperty, int priority, int weight) {
+        this.urlProperty = urlProperty;
+        this.priority = priority;
+        this.weight = weight;
+    }
+
+    public String getUrlProperty() {
+        return urlProperty;
+    }
+
+    public void setUrlProperty(String urlProperty) {
+        this.urlProperty = urlProperty;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+}
@@ -0,0 +1,15 @@
+package dev.leosanchez.qualifiers;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+@Retention(java.lang.annotation.RetentionPolicy.RUNTIME)
+@Target({})
+public @interface ListenerLane {
+    // the property containing the url of the queue of this lane, the lane is skipped if it is not configured
+    String urlProperty();
+    // lanes with higher priority and pending messages are polled before any lane with lower priority
+    int priority() default 0;
+    // the share of pollings this lane receives when no higher lane has pending messages
+    int weight() default 1;
+}
@@ -0,0 +1,38 @@
+package dev.leosanchez.qualifiers;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import javax.enterprise.util.Nonbinding;
+import javax.inject.Qualifier;
+
+@Qualifier
+@Retention(java.lang.annotation.RetentionPolicy.RUNTIME)
+@Target({ java.lang.annotation.ElementType.TYPE, java.lang.annotation.ElementType.FIELD })
+public @interface ListenerQualifier {
+    // here we define the metadata we want to attach to the message polling and processing
+    @Nonbinding String urlProperty() default "";
+    // if true, the listener is not launched while its urlProperty is not configured, instead of failing on startup
+    @Nonbinding boolean optional() default false;
+     // if we want to process the messages in parallel or in sequence
+    @Nonbinding boolean parallelProcessing() default true;
+    // the maximum number of messages the listener will handle per polling
+    @Nonbinding int maxNumberOfMessagesPerProcessing() default 10; 
+    // a way to ensure that each processing at least take some time, paced as a rate of one message per worker each this time
+    @Nonbinding int minProcessingMilliseconds() default 0; 
+    // the maximum number of messages dispatched per second, with a burst of one per worker (0 means no pacing, or minProcessingMilliseconds)
+    @Nonbinding double messagesPerSecond() default 0;
+    // the maximum number of messages of this listener processed at the same time by its own workers (0 means one worker per message of a polling)
+    @Nonbinding int maxConcurrency() default 0;
+    // the number of messages waiting for a free worker, beyond it the poller processes them itself and stops polling meanwhile (0 means the messages of a polling)
+    @Nonbinding int queueCapacity() default 0;
+    // if greater than 0, the listener polls ahead of its workers keeping up to this number of messages buffered or in process (0 disables it)
+    @Nonbinding int prefetchCapacity() default 0;
+    // if true, the responses are sent in batches grouped by their queue, so the workers do not wait for each send
+    @Nonbinding boolean batchResponses() default false;
+    // the priority and weight of the queue of the urlProperty among the lanes of this listener
+    @Nonbinding int priority() default 0;
+    @Nonbinding int weight() default 1;
+    // other queues handled by this listener, e.g. a bulk queue that must not delay the interactive one
+    @Nonbinding ListenerLane[] lanes() default {};
+}
@@ -0,0 +1,80 @@
+package dev.leosanchez.producer.adapters.cacheadapter;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.quarkus.arc.lookup.LookupIfProperty;
+import io.vertx.core.json.JsonObject;
+
+// caffeine evicts using W-TinyLFU, which keeps frequently queried cities even after a burst of one-off queries
+@ApplicationScoped
+@LookupIfProperty(name = "cache.provider", stringValue = "caffeine")
+public class CaffeineCacheAdapter implements ICacheAdapter {
+
+    // just a logger
+    private static final Logger LOG = Logger.getLogger(CaffeineCacheAdapter.class);
+
+    // the maximum number of entries kept in memory
+    @ConfigProperty(name = "cache.maximum-size", defaultValue = "10000")
+    Long maximumSize;
+
+    // how long an entry is considered fresh since it was written
+    @ConfigProperty(name = "cache.ttl-seconds", defaultValue = "300")
+    Long ttlSeconds;
+
+    private Cache<String, JsonObject> cache;
+
+    @PostConstruct
+    public void init() {
+        LOG.infov("Caffeine - Initializing cache with maximum size {0} and ttl of {1} seconds", maximumSize, ttlSeconds);
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Optional<JsonObject> get(String key) {
+        return Optional.ofNullable(cache.getIfPresent(key));
+    }
+
+    @Override
+    public void put(String key, JsonObject value) {
+        cache.put(key, value);
+    }
+
+    @Override
+    public void invalidate(String key) {
+        cache.invalidate(key);
+    }
+
+    @Override
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    @Override
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+}
@@ -0,0 +1,15 @@
+package dev.leosanchez.producer.adapters.cacheadapter;
+
+import java.util.Optional;
+
+import io.vertx.core.json.JsonObject;
+
+public interface ICacheAdapter {
+    public Optional<JsonObject> get(String key);
+    public void put(String key, JsonObject value);
+    public void invalidate(String key);
+    public long getHitCount();
+    public long getMissCount();
+    public long getEvictionCount();
+    public long getSize();
+}
@@ -0,0 +1,110 @@
+package dev.leosanchez.producer.adapters.cacheadapter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.quarkus.arc.lookup.LookupIfProperty;
+import io.vertx.core.json.JsonObject;
+
+@ApplicationScoped
+@LookupIfProperty(name = "cache.provider", stringValue = "lru")
+public class LruCacheAdapter implements ICacheAdapter {
+
+    // the maximum number of entries kept in memory
+    @ConfigProperty(name = "cache.maximum-size", defaultValue = "10000")
+    Long maximumSize;
+
+    // how long an entry is considered fresh since it was written
+    @ConfigProperty(name = "cache.ttl-seconds", defaultValue = "300")
+    Long ttlSeconds;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // an access ordered map, so the eldest entry is always the least recently used one
+    private final Map<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            if (size() > maximumSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    @Override
+    public Optional<JsonObject> get(String key) {
+        CacheEntry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            // expired entries are removed lazily when they are found
+            if (Objects.nonNull(entry) && entry.expiresAt < System.currentTimeMillis()) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+                entry = null;
+            }
+        }
+        if (Objects.isNull(entry)) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(entry.value);
+    }
+
+    @Override
+    public void put(String key, JsonObject value) {
+        CacheEntry entry = new CacheEntry(value, System.currentTimeMillis() + ttlSeconds * 1000);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    @Override
+    public void invalidate(String key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public long getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static class CacheEntry {
+        private final JsonObject value;
+        private final long expiresAt;
+
+        private CacheEntry(JsonObject value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
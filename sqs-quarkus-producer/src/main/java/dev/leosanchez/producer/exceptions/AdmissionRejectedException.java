@@ -0,0 +1,18 @@
+package dev.leosanchez.producer.exceptions;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+// unchecked, so it can cross the service methods and be turned into a 503 response by its mapper
+@RegisterForReflection
+public class AdmissionRejectedException extends RuntimeException {
+    private final int retryAfterSeconds;
+
+    public AdmissionRejectedException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
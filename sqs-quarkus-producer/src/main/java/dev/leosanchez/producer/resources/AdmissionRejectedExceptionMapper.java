@@ -0,0 +1,19 @@
+package dev.leosanchez.producer.resources;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+import dev.leosanchez.producer.exceptions.AdmissionRejectedException;
+
+// when there are too many requests waiting for the consumers we answer right away, asking the client to come back later
+@Provider
+public class AdmissionRejectedExceptionMapper implements ExceptionMapper<AdmissionRejectedException> {
+    @Override
+    public Response toResponse(AdmissionRejectedException exception) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, exception.getRetryAfterSeconds())
+                .build();
+    }
+}
@@ -0,0 +1,47 @@
+package dev.leosanchez.producer.resources;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Objects;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+// the http limit is raised for the bulk submissions, the other endpoints keep a small one
+// resteasy classic has no limit per endpoint, so the body is checked once the endpoint is known
+@Provider
+public class BodySizeFilter implements ContainerRequestFilter {
+
+    @ConfigProperty(name = "coordinates.max-body-size", defaultValue = "1048576")
+    Long maxBodySize;
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        if (Objects.nonNull(resourceInfo.getResourceMethod()) && resourceInfo.getResourceMethod().isAnnotationPresent(LargeBody.class)) {
+            return;
+        }
+        if (requestContext.getLength() > maxBodySize) {
+            requestContext.abortWith(Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE).build());
+            return;
+        }
+        if (!requestContext.hasEntity()) {
+            return;
+        }
+        // a chunked body declares no length, so it is read up to the limit here, before the endpoint buffers all of it
+        byte[] body = requestContext.getEntityStream().readNBytes((int) Math.min(maxBodySize, Integer.MAX_VALUE - 1) + 1);
+        if (body.length > maxBodySize) {
+            requestContext.abortWith(Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE).build());
+            return;
+        }
+        requestContext.setEntityStream(new ByteArrayInputStream(body));
+    }
+}
@@ -1,17 +1,34 @@
 package dev.leosanchez.producer.resources;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 import javax.inject.Inject;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import dev.leosanchez.producer.services.CoordinatesService;
+import io.smallrye.mutiny.Multi;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
 @Path("/coordinates")
@@ -34,6 +51,116 @@ public class CoordinatesResource {
         
     }
 
+    // endpoint for the names starting like the text or written like it, for autocompletion and typos, the best first
+    @GET
+    @Path("/suggest")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response suggest(@QueryParam("q") String text, @QueryParam("limit") @DefaultValue("5") Integer limit) {
+        try {
+            return uncachedResponse(coordinatesService.searchCities(text, limit));
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(new JsonObject().put("error", e.getMessage())).build();
+        }
+    }
+
+    // endpoint for the k places nearest to a point, the closest first with their distance in kilometers
+    @GET
+    @Path("/nearest")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response nearest(@QueryParam("lat") Double lat, @QueryParam("lon") Double lon, @QueryParam("k") @DefaultValue("10") Integer k) {
+        try {
+            return uncachedResponse(coordinatesService.queryNearest(lat, lon, k));
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(new JsonObject().put("error", e.getMessage())).build();
+        } catch (IllegalStateException e) {
+            // the deployment has no spatial queue
+            return Response.status(Response.Status.NOT_IMPLEMENTED).entity(new JsonObject().put("error", e.getMessage())).build();
+        }
+    }
+
+    // endpoint for the places within a bounding box, up to the limit
+    @GET
+    @Path("/within")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response within(@QueryParam("minLat") Double minLat, @QueryParam("minLon") Double minLon,
+            @QueryParam("maxLat") Double maxLat, @QueryParam("maxLon") Double maxLon,
+            @QueryParam("limit") @DefaultValue("100") Integer limit) {
+        try {
+            return uncachedResponse(coordinatesService.queryWithin(minLat, minLon, maxLat, maxLon, limit));
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(new JsonObject().put("error", e.getMessage())).build();
+        } catch (IllegalStateException e) {
+            // the deployment has no spatial queue
+            return Response.status(Response.Status.NOT_IMPLEMENTED).entity(new JsonObject().put("error", e.getMessage())).build();
+        }
+    }
+
+    private Response uncachedResponse(Optional<JsonObject> messageReceived) {
+        if (messageReceived.isPresent()) {
+            return Response.ok(messageReceived.get()).build();
+        } else {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+    }
+
+    // endpoint for many two way queries packed in a few messages
+    @POST
+    @Path("/search")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response bulkQuery(JsonObject body) {
+        Optional<List<String>> cities = extractCities(body);
+        if (cities.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        try {
+            List<String> query = cities.get();
+            return Response.ok(coordinatesService.queryCoordinatesInBulk(query)).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+    }
+
+    // endpoint for bulk queries answered as ndjson, each line written as soon as its result arrives
+    @POST
+    @Path("/search/stream")
+    @Produces("application/x-ndjson")
+    public Response streamedBulkQuery(JsonObject body) {
+        Optional<List<String>> cities = extractCities(body);
+        if (cities.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        try {
+            List<String> query = cities.get();
+            Multi<JsonObject> results = coordinatesService.streamCoordinatesInBulk(query);
+            StreamingOutput output = (OutputStream out) -> {
+                for (JsonObject result : results.subscribe().asIterable()) {
+                    out.write((result.encode() + "\n").getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+            };
+            return Response.ok(output).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+    }
+
+    // the cities of a bulk query, empty if they are missing or any of them is not a name
+    private Optional<List<String>> extractCities(JsonObject body) {
+        Object cities = Objects.nonNull(body) ? body.getValue("cities") : null;
+        if (!(cities instanceof JsonArray) || ((JsonArray) cities).isEmpty()) {
+            return Optional.empty();
+        }
+        List<String> names = new ArrayList<>();
+        for (Object city : (JsonArray) cities) {
+            // a null or a number would be sent as the text "null" or "42"
+            if (!(city instanceof String) || ((String) city).isBlank()) {
+                return Optional.empty();
+            }
+            names.add((String) city);
+        }
+        return Optional.of(names);
+    }
+
     // endpoint for one way commmunication
     @POST
     @Path("/submit")
@@ -46,4 +173,19 @@ public class CoordinatesResource {
             return Response.status(Response.Status.BAD_REQUEST).build();
         }
     }
+
+    // endpoint for many one way submissions, the body is read line by line as ndjson or csv (name,lat,lon)
+    @POST
+    @Path("/submit/bulk")
+    @LargeBody
+    @Consumes({ "application/x-ndjson", "text/csv" })
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response bulkPost(@Context HttpHeaders headers, InputStream body) {
+        boolean csv = "csv".equals(headers.getMediaType().getSubtype());
+        try (Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+            return Response.ok(coordinatesService.submitCoordinatesInBulk(reader, csv)).build();
+        } catch (IOException e) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+    }
 }
@@ -0,0 +1,12 @@
+package dev.leosanchez.producer.resources;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// the endpoints that read their body as a stream, the only ones allowed up to quarkus.http.limits.max-body-size
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface LargeBody {
+}
@@ -0,0 +1,120 @@
+package dev.leosanchez.producer.services;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import dev.leosanchez.producer.exceptions.AdmissionRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// limits the two way requests awaiting a response, so a slow consumer makes us reject requests instead of piling up threads
+@ApplicationScoped
+public class AdmissionControllerService {
+
+    // just a logger
+    private static final Logger LOG = Logger.getLogger(AdmissionControllerService.class);
+
+    // the initial (or fixed, if not adaptive) maximum of requests in flight
+    @ConfigProperty(name = "admission.max-in-flight", defaultValue = "64")
+    Integer maxInFlight;
+
+    // how long a request can wait for a free slot before being rejected
+    @ConfigProperty(name = "admission.max-wait-milliseconds", defaultValue = "100")
+    Long maxWaitMilliseconds;
+
+    // the value of the Retry-After header of the rejected requests
+    @ConfigProperty(name = "admission.retry-after-seconds", defaultValue = "1")
+    Integer retryAfterSeconds;
+
+    // if enabled the limit grows while the responses are fast and shrinks when they are slow or missing (AIMD)
+    @ConfigProperty(name = "admission.adaptive.enabled", defaultValue = "false")
+    Boolean adaptive;
+
+    @ConfigProperty(name = "admission.adaptive.min-limit", defaultValue = "8")
+    Integer minLimit;
+
+    @ConfigProperty(name = "admission.adaptive.max-limit", defaultValue = "512")
+    Integer maxLimit;
+
+    // responses slower than this are considered a sign of saturation of the consumers
+    @ConfigProperty(name = "admission.adaptive.target-latency-milliseconds", defaultValue = "2000")
+    Long targetLatencyMilliseconds;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotReleased = lock.newCondition();
+    private int inFlight = 0;
+    private double limit;
+    private Counter rejections;
+
+    @PostConstruct
+    public void init() {
+        limit = maxInFlight;
+        Gauge.builder("admission.in_flight", this, AdmissionControllerService::getInFlight).register(registry);
+        Gauge.builder("admission.limit", this, AdmissionControllerService::getLimit).register(registry);
+        rejections = registry.counter("admission.rejected");
+    }
+
+    // returns the number of permits taken, which must be given back on release
+    public int acquire(int permits) {
+        lock.lock();
+        try {
+            // a request bigger than the limit is admitted alone instead of never
+            int required = Math.min(permits, getLimit());
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMilliseconds);
+            while (inFlight + required > getLimit()) {
+                if (remainingNanos <= 0) {
+                    rejections.increment();
+                    LOG.warn("Rejecting request, " + inFlight + " requests already in flight");
+                    throw new AdmissionRejectedException("Too many requests in flight", retryAfterSeconds);
+                }
+                remainingNanos = slotReleased.awaitNanos(remainingNanos);
+            }
+            inFlight += required;
+            return required;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AdmissionRejectedException("Interrupted while waiting for admission", retryAfterSeconds);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(int permits, long latencyMilliseconds, boolean responded) {
+        lock.lock();
+        try {
+            inFlight -= Math.min(permits, inFlight);
+            if (adaptive) {
+                if (responded && latencyMilliseconds <= targetLatencyMilliseconds) {
+                    // additive increase, about one more slot each time a full window of requests is answered
+                    limit = Math.min(maxLimit, limit + (double) permits / limit);
+                } else {
+                    // multiplicative decrease when the consumers are slow or do not answer
+                    limit = Math.max(minLimit, limit * 0.9);
+                }
+            }
+            slotReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+}
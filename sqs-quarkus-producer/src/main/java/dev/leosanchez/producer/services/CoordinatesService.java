@@ -1,54 +1,610 @@
 package dev.leosanchez.producer.services;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
 
+import dev.leosanchez.common.codecs.JsonCodec;
+import dev.leosanchez.common.dto.CoordinatesQuery;
+import dev.leosanchez.common.dto.CoordinatesSubmission;
+import dev.leosanchez.common.dto.SpatialQuery;
+import dev.leosanchez.common.exceptions.MessageDecodingException;
 import dev.leosanchez.common.exceptions.MessageSendingException;
+import dev.leosanchez.producer.adapters.cacheadapter.ICacheAdapter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Multi;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
 @ApplicationScoped
 public class CoordinatesService {
-    
+
+    // just a logger
+    private static final Logger LOG = Logger.getLogger(CoordinatesService.class);
+
+    // the number of submissions sent in each batch request (the maximum allowed by sqs)
+    private static final int SUBMISSION_BATCH_SIZE = 10;
+
+    // the requests are encoded straight from their types, without building a json tree for each of them
+    private static final JsonCodec<CoordinatesQuery> QUERY_CODEC = JsonCodec.of(CoordinatesQuery.class);
+    private static final JsonCodec<CoordinatesSubmission> SUBMISSION_CODEC = JsonCodec.of(CoordinatesSubmission.class);
+    private static final JsonCodec<SpatialQuery> SPATIAL_CODEC = JsonCodec.of(SpatialQuery.class);
+
     @ConfigProperty(name = "twoways.queue.url")
     String twoWaysQueueUrl;
 
+    // bulk queries go to their own queue if configured, so they do not delay the single ones
+    @ConfigProperty(name = "twoways.bulk.queue.url")
+    Optional<String> twoWaysBulkQueueUrl;
+
     @ConfigProperty(name = "oneway.queue.url")
     String onewayResponseQueueUrl;
 
+    // the nearest and bounding box queries are answered by their own listener, if its queue is configured
+    @ConfigProperty(name = "spatial.queue.url")
+    Optional<String> spatialQueueUrl;
+
+    // the most places a spatial query can ask for
+    @ConfigProperty(name = "coordinates.spatial.max-results", defaultValue = "1000")
+    Integer maxSpatialResults;
+
+    // the most names a search can ask for
+    @ConfigProperty(name = "coordinates.search.max-results", defaultValue = "20")
+    Integer maxSearchResults;
+
+    // a submitted place is not cached until an answer carries its coordinates, or until this time passed in case the
+    // consumer rejected the submission
+    @ConfigProperty(name = "cache.submission-pending-seconds", defaultValue = "3600")
+    Long submissionPendingSeconds;
+
+    // how long we wait for an answer of the consumer
+    @ConfigProperty(name = "twoways.response.timeout-seconds", defaultValue = "30")
+    Integer responseTimeoutSeconds;
+
+    // how many cities are packed in a single queue message in bulk queries
+    @ConfigProperty(name = "coordinates.bulk.cities-per-message", defaultValue = "100")
+    Integer citiesPerMessage;
+
+    // the maximum number of cities accepted in a single bulk query
+    @ConfigProperty(name = "coordinates.bulk.max-cities", defaultValue = "1000")
+    Integer maxCitiesPerQuery;
+
+    // how many batches of submissions can be sent at the same time before the body reading is paused
+    @ConfigProperty(name = "coordinates.bulk.max-in-flight-batches", defaultValue = "4")
+    Integer maxInFlightBatches;
+
+    // the threads sending the batches of bulk submissions, shared by all the bulk requests
+    @ConfigProperty(name = "coordinates.bulk.sender-threads", defaultValue = "8")
+    Integer senderThreads;
+
+    // how many rejected lines are detailed in the summary of a bulk submission
+    @ConfigProperty(name = "coordinates.bulk.max-reported-errors", defaultValue = "100")
+    Integer maxReportedErrors;
+
     @Inject
     QueueProducerService queueService;
 
+    // limits the requests awaiting a response
+    @Inject
+    AdmissionControllerService admissionController;
+
+    // the cache implementation is selected through the cache.provider property
+    @Inject
+    Instance<ICacheAdapter> cacheAdapters;
+
+    @Inject
+    MeterRegistry registry;
+
+    // empty if the cache is disabled (cache.provider=none)
+    private Optional<ICacheAdapter> cache = Optional.empty();
+
+    // the sends block until sqs answers, so they do not run on the common pool
+    private ExecutorService submissionSenders;
+
+    // the latest submission of each place not yet seen in an answer. The consumer applies them some time after they
+    // are sent, so the answers obtained meanwhile carry the previous value and must not be cached
+    private final Map<String, PendingSubmission> pendingSubmissions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        submissionSenders = Executors.newFixedThreadPool(senderThreads);
+        if (cacheAdapters.isResolvable()) {
+            cache = Optional.of(cacheAdapters.get());
+            registerCacheMetrics(cache.get());
+        } else {
+            LOG.info("No cache provider configured, every query will be sent to the queue");
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        submissionSenders.shutdown();
+    }
+
     public Optional<JsonObject> queryCoordinates(String city) {
+        // we first check if we already know the answer
+        Optional<JsonObject> cached = cache.flatMap(c -> c.get(city));
+        if (cached.isPresent()) {
+            // we return a copy so the cached entry cannot be modified by the caller
+            return Optional.of(cached.get().copy());
+        }
+
         // we build the request
-        JsonObject request = new JsonObject();
-        request.put("city", city);
+        CoordinatesQuery request = new CoordinatesQuery(city);
 
+        // we wait for a free slot, or fail fast if the consumers are already saturated
+        int permits = admissionController.acquire(1);
+        long startTime = System.currentTimeMillis();
+        boolean responded = false;
         try {
         // we send the request and keep the signature
-        String signature = queueService.sendMessageForResponse(twoWaysQueueUrl, request.toString());
-        //we await the message just for 30 seconds
-        Optional<String> response = queueService.receiveResponse(signature, 30);
+        String signature = queueService.sendMessageForResponse(twoWaysQueueUrl, QUERY_CODEC.encode(request));
+        //we await the message just for the configured time
+        Optional<String> response = queueService.receiveResponse(signature, responseTimeoutSeconds);
+        responded = response.isPresent();
 
         // we parse and return the response
-        return response.isPresent()? Optional.of(new JsonObject(response.get())) : Optional.empty();
+        Optional<JsonObject> parsedResponse = response.isPresent()? Optional.of(new JsonObject(response.get())) : Optional.empty();
+        // we only keep definitive answers, errors and timeouts must be retried
+        if (parsedResponse.isPresent() && isCacheable(city, parsedResponse.get())) {
+            cache.ifPresent(c -> c.put(city, parsedResponse.get().copy()));
+        }
+        return parsedResponse;
         } catch (MessageSendingException e) {
             return Optional.empty();
+        } finally {
+            admissionController.release(permits, System.currentTimeMillis() - startTime, responded);
+        }
+    }
+
+    public Optional<JsonObject> queryNearest(Double lat, Double lon, Integer k) {
+        validateLatitude(lat);
+        validateLongitude(lon);
+        if (Objects.isNull(k) || k < 1 || k > maxSpatialResults) {
+            throw new IllegalArgumentException("k must be a number between 1 and " + maxSpatialResults);
+        }
+        return querySpatial(new SpatialQuery(lat, lon, k));
+    }
+
+    // a box whose minLon is greater than its maxLon crosses the antimeridian
+    public Optional<JsonObject> queryWithin(Double minLat, Double minLon, Double maxLat, Double maxLon, Integer limit) {
+        validateLatitude(minLat);
+        validateLatitude(maxLat);
+        validateLongitude(minLon);
+        validateLongitude(maxLon);
+        if (minLat > maxLat) {
+            throw new IllegalArgumentException("minLat cannot be greater than maxLat");
+        }
+        if (Objects.isNull(limit) || limit < 1 || limit > maxSpatialResults) {
+            throw new IllegalArgumentException("limit must be a number between 1 and " + maxSpatialResults);
+        }
+        return querySpatial(new SpatialQuery(minLat, minLon, maxLat, maxLon, limit));
+    }
+
+    // the names starting like the text or written like it, ignoring case and accents, the best matches first
+    public Optional<JsonObject> searchCities(String text, Integer limit) {
+        if (Objects.isNull(text) || text.isBlank()) {
+            throw new IllegalArgumentException("the text to search is required");
+        }
+        if (Objects.isNull(limit) || limit < 1 || limit > maxSearchResults) {
+            throw new IllegalArgumentException("limit must be a number between 1 and " + maxSearchResults);
+        }
+        // the same listener of the single queries answers it
+        return queryUncached(twoWaysQueueUrl, QUERY_CODEC.encode(new CoordinatesQuery(text, true, limit)));
+    }
+
+    private Optional<JsonObject> querySpatial(SpatialQuery request) {
+        if (spatialQueueUrl.isEmpty()) {
+            throw new IllegalStateException("spatial queries are not configured");
+        }
+        return queryUncached(spatialQueueUrl.get(), SPATIAL_CODEC.encode(request));
+    }
+
+    // the answers of spatial queries and searches depend on every place submitted, so they are not cached
+    private Optional<JsonObject> queryUncached(String queueUrl, String request) {
+        int permits = admissionController.acquire(1);
+        long startTime = System.currentTimeMillis();
+        boolean responded = false;
+        try {
+            String signature = queueService.sendMessageForResponse(queueUrl, request);
+            Optional<String> response = queueService.receiveResponse(signature, responseTimeoutSeconds);
+            responded = response.isPresent();
+            return response.map(JsonObject::new);
+        } catch (MessageSendingException e) {
+            LOG.error("Error sending query", e);
+            return Optional.empty();
+        } finally {
+            admissionController.release(permits, System.currentTimeMillis() - startTime, responded);
+        }
+    }
+
+    private void validateLatitude(Double lat) {
+        // NaN is not below nor above any bound, so it is rejected explicitly
+        if (Objects.isNull(lat) || !Double.isFinite(lat) || lat < -90 || lat > 90) {
+            throw new IllegalArgumentException("lat must be a number between -90 and 90");
+        }
+    }
+
+    private void validateLongitude(Double lon) {
+        if (Objects.isNull(lon) || !Double.isFinite(lon) || lon < -180 || lon > 180) {
+            throw new IllegalArgumentException("lon must be a number between -180 and 180");
         }
     }
 
+    public JsonObject queryCoordinatesInBulk(List<String> cities) {
+        if (cities.size() > maxCitiesPerQuery) {
+            throw new IllegalArgumentException("A bulk query cannot contain more than " + maxCitiesPerQuery + " cities");
+        }
+        // repeated cities are only requested once
+        List<String> uniqueCities = new ArrayList<>(new LinkedHashSet<>(cities));
+        Map<String, JsonObject> results = new HashMap<>();
+        List<String> pendingCities = new ArrayList<>();
+        for (String city : uniqueCities) {
+            Optional<JsonObject> cached = cache.flatMap(c -> c.get(city));
+            if (cached.isPresent()) {
+                results.put(city, withName(cached.get().copy(), city));
+            } else {
+                pendingCities.add(city);
+            }
+        }
+
+        // each packed message is a request in flight
+        int messages = (pendingCities.size() + citiesPerMessage - 1) / citiesPerMessage;
+        int permits = messages > 0 ? admissionController.acquire(messages) : 0;
+        long startTime = System.currentTimeMillis();
+        boolean allResponded = true;
+        try {
+            // we pack the remaining cities in as few messages as possible and keep the signature of each one
+            Map<String, List<String>> citiesBySignature = new HashMap<>();
+            for (int i = 0; i < pendingCities.size(); i += citiesPerMessage) {
+                List<String> chunk = pendingCities.subList(i, Math.min(i + citiesPerMessage, pendingCities.size()));
+                CoordinatesQuery request = new CoordinatesQuery(new ArrayList<>(chunk));
+                try {
+                    citiesBySignature.put(queueService.sendMessageForResponse(twoWaysBulkQueueUrl.orElse(twoWaysQueueUrl), QUERY_CODEC.encode(request)), chunk);
+                } catch (MessageSendingException e) {
+                    LOG.error("Error sending bulk query", e);
+                    chunk.forEach(city -> results.put(city, failedResult(city, "INTERNAL_SERVER_ERROR")));
+                }
+            }
+
+            // all the requests were sent before awaiting, so the consumer processes them while we wait for the first one
+            long deadline = System.currentTimeMillis() + responseTimeoutSeconds * 1000L;
+            for (Map.Entry<String, List<String>> entry : citiesBySignature.entrySet()) {
+                int remainingSeconds = (int) Math.max(1, Math.ceil((deadline - System.currentTimeMillis()) / 1000.0));
+                Optional<String> response = queueService.receiveResponse(entry.getKey(), remainingSeconds);
+                if (response.isPresent()) {
+                    JsonArray partialResults = new JsonObject(response.get()).getJsonArray("results", new JsonArray());
+                    for (int i = 0; i < partialResults.size(); i++) {
+                        JsonObject result = partialResults.getJsonObject(i);
+                        String city = result.getString("name");
+                        results.put(city, result);
+                        if (isCacheable(city, result)) {
+                            cache.ifPresent(c -> c.put(city, result.copy()));
+                        }
+                    }
+                }
+                allResponded = allResponded && response.isPresent();
+                // cities without an answer are reported as timed out
+                entry.getValue().forEach(city -> results.putIfAbsent(city, failedResult(city, "TIMEOUT")));
+            }
+        } finally {
+            if (permits > 0) {
+                admissionController.release(permits, System.currentTimeMillis() - startTime, allResponded);
+            }
+        }
+
+        // we answer in the same order we received the cities
+        JsonArray orderedResults = new JsonArray();
+        uniqueCities.forEach(city -> orderedResults.add(results.get(city)));
+        JsonObject response = new JsonObject();
+        response.put("results", orderedResults);
+        return response;
+    }
+
+    public Multi<JsonObject> streamCoordinatesInBulk(List<String> cities) {
+        if (cities.size() > maxCitiesPerQuery) {
+            throw new IllegalArgumentException("A bulk query cannot contain more than " + maxCitiesPerQuery + " cities");
+        }
+        // repeated cities are only requested once
+        List<String> uniqueCities = new ArrayList<>(new LinkedHashSet<>(cities));
+        List<Multi<JsonObject>> streams = new ArrayList<>();
+        List<JsonObject> knownResults = new ArrayList<>();
+        List<String> pendingCities = new ArrayList<>();
+        for (String city : uniqueCities) {
+            Optional<JsonObject> cached = cache.flatMap(c -> c.get(city));
+            if (cached.isPresent()) {
+                knownResults.add(withName(cached.get().copy(), city));
+            } else {
+                pendingCities.add(city);
+            }
+        }
+
+        // each packed message is a request in flight until its own stream ends
+        int messages = (pendingCities.size() + citiesPerMessage - 1) / citiesPerMessage;
+        AtomicInteger permits = new AtomicInteger(messages > 0 ? admissionController.acquire(messages) : 0);
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < pendingCities.size(); i += citiesPerMessage) {
+            List<String> chunk = pendingCities.subList(i, Math.min(i + citiesPerMessage, pendingCities.size()));
+            CoordinatesQuery request = new CoordinatesQuery(new ArrayList<>(chunk));
+            try {
+                String signature = queueService.sendMessageForStreamedResponse(twoWaysBulkQueueUrl.orElse(twoWaysQueueUrl), QUERY_CODEC.encode(request));
+                streams.add(streamResults(signature, chunk, responded -> releasePermit(permits, startTime, responded)));
+            } catch (MessageSendingException e) {
+                LOG.error("Error sending bulk query", e);
+                releasePermit(permits, startTime, false);
+                chunk.forEach(city -> knownResults.add(failedResult(city, "INTERNAL_SERVER_ERROR")));
+            }
+        }
+        // the results we already know go first, the others as soon as their chunk arrives
+        streams.add(0, Multi.createFrom().iterable(knownResults));
+        return Multi.createBy().merging().streams(streams)
+                // a stream cancelled before all its messages were answered gives back the remaining permits
+                .onTermination().invoke(() -> {
+                    int remaining = permits.getAndSet(0);
+                    if (remaining > 0) {
+                        admissionController.release(remaining, System.currentTimeMillis() - startTime, false);
+                    }
+                });
+    }
+
+    // fewer permits than messages may have been taken, so only the ones still held are released
+    private void releasePermit(AtomicInteger permits, long startTime, boolean responded) {
+        int held = permits.getAndUpdate(p -> Math.max(0, p - 1));
+        if (held > 0) {
+            admissionController.release(1, System.currentTimeMillis() - startTime, responded);
+        }
+    }
+
+    private Multi<JsonObject> streamResults(String signature, List<String> cities, Consumer<Boolean> onEnd) {
+        // the cities still waiting for a result, reported as failed if the stream ends without them
+        Set<String> missingCities = new HashSet<>(cities);
+        String[] missingStatus = { "TIMEOUT" };
+        return queueService.receiveStreamedResponse(signature, responseTimeoutSeconds)
+                .onItem().transformToIterable(chunk -> {
+                    JsonObject response = new JsonObject(chunk);
+                    JsonArray partialResults = response.getJsonArray("results");
+                    if (Objects.isNull(partialResults)) {
+                        // the listener failed, the remaining cities take its status
+                        missingStatus[0] = response.getString("status", "INTERNAL_SERVER_ERROR");
+                        return List.<JsonObject>of();
+                    }
+                    List<JsonObject> results = new ArrayList<>();
+                    for (int i = 0; i < partialResults.size(); i++) {
+                        JsonObject result = partialResults.getJsonObject(i);
+                        String city = result.getString("name");
+                        missingCities.remove(city);
+                        if (isCacheable(city, result)) {
+                            cache.ifPresent(c -> c.put(city, result.copy()));
+                        }
+                        results.add(result);
+                    }
+                    return results;
+                })
+                .onFailure().invoke(e -> {
+                    if (e instanceof IllegalStateException) {
+                        // the listener answered, but could not send the whole response
+                        missingStatus[0] = "INTERNAL_SERVER_ERROR";
+                    }
+                })
+                // the permit of this message is given back as soon as its own stream ends
+                .onCompletion().invoke(() -> onEnd.accept(true))
+                .onFailure().invoke(e -> onEnd.accept(false))
+                .onFailure().recoverWithCompletion()
+                .onCompletion().switchTo(() -> Multi.createFrom().iterable(missingCities.stream()
+                        .map(city -> failedResult(city, missingStatus[0]))
+                        .collect(Collectors.toList())));
+    }
+
     public void submitCoordinates(String name, Double lat, Double lon) {
-        JsonObject request = new JsonObject();
-        request.put("name", name);
-        request.put("lat", lat);
-        request.put("lon", lon);
+        CoordinatesSubmission request = toSubmission(name, lat, lon);
+        // the cached answer for this place will not be valid anymore
+        markSubmitted(request);
         try {
-            queueService.sendMessageForNoResponse(onewayResponseQueueUrl, request.toString());
+            queueService.sendMessageForNoResponse(onewayResponseQueueUrl, SUBMISSION_CODEC.encode(request));
         } catch (MessageSendingException e) {
             e.printStackTrace();
         }
     }
+
+    // the place is recorded before its cached answer is removed, so a query answered in between is not cached again
+    private void markSubmitted(CoordinatesSubmission submission) {
+        if (cache.isEmpty()) {
+            return;
+        }
+        pendingSubmissions.put(submission.getName(), new PendingSubmission(submission.getLat(), submission.getLon()));
+        cache.get().invalidate(submission.getName());
+    }
+
+    // forgets the submissions never seen in an answer, probably rejected by the consumer
+    @Scheduled(every = "{cache.submission-sweep-interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    public void sweepPendingSubmissions() {
+        long limit = System.currentTimeMillis() - submissionPendingSeconds * 1000;
+        pendingSubmissions.values().removeIf(pending -> pending.submittedAt < limit);
+    }
+
+    private JsonObject withName(JsonObject result, String city) {
+        if (Objects.isNull(result.getString("name"))) {
+            result.put("name", city);
+        }
+        return result;
+    }
+
+    private JsonObject failedResult(String city, String status) {
+        JsonObject result = new JsonObject();
+        result.put("name", city);
+        result.put("status", status);
+        return result;
+    }
+
+    public JsonObject submitCoordinatesInBulk(Reader body, boolean csv) throws IOException {
+        BufferedReader reader = new BufferedReader(body);
+        // once all the permits are taken, the reading of the body waits until a batch is sent
+        Semaphore inFlightBatches = new Semaphore(maxInFlightBatches);
+        List<CompletableFuture<Integer>> sentBatches = new ArrayList<>();
+        JsonArray errors = new JsonArray();
+        List<String> batch = new ArrayList<>();
+        int queued = 0;
+        int rejected = 0;
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            // we skip empty lines and the optional csv header
+            if (line.isBlank() || (csv && lineNumber == 1 && line.trim().toLowerCase().startsWith("name,"))) {
+                continue;
+            }
+            try {
+                CoordinatesSubmission record = csv ? parseCsvRecord(line) : parseJsonRecord(line);
+                markSubmitted(record);
+                batch.add(SUBMISSION_CODEC.encode(record));
+                queued++;
+            } catch (RuntimeException e) {
+                rejected++;
+                if (errors.size() < maxReportedErrors) {
+                    errors.add(new JsonObject().put("line", lineNumber).put("reason", e.getMessage()));
+                }
+            }
+            if (batch.size() == SUBMISSION_BATCH_SIZE) {
+                sentBatches.add(sendSubmissionBatch(batch, inFlightBatches));
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            sentBatches.add(sendSubmissionBatch(batch, inFlightBatches));
+        }
+        // we wait for the pending batches before answering
+        int failed = sentBatches.stream().mapToInt(CompletableFuture::join).sum();
+        JsonObject summary = new JsonObject();
+        summary.put("accepted", queued - failed);
+        summary.put("rejected", rejected);
+        summary.put("failed", failed);
+        summary.put("errors", errors);
+        return summary;
+    }
+
+    private CompletableFuture<Integer> sendSubmissionBatch(List<String> batch, Semaphore inFlightBatches) {
+        inFlightBatches.acquireUninterruptibly();
+        // the future returns the number of messages that could not be sent
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return queueService.sendMessagesForNoResponse(onewayResponseQueueUrl, batch).size();
+            } catch (MessageSendingException e) {
+                LOG.error("Error sending batch of submissions", e);
+                return batch.size();
+            } finally {
+                inFlightBatches.release();
+            }
+        }, submissionSenders);
+    }
+
+    private CoordinatesSubmission parseJsonRecord(String line) {
+        try {
+            CoordinatesSubmission record = SUBMISSION_CODEC.decode(line);
+            return toSubmission(record.getName(), record.getLat(), record.getLon());
+        } catch (MessageDecodingException e) {
+            throw new IllegalArgumentException("name must be a string and lat and lon must be numbers");
+        }
+    }
+
+    private CoordinatesSubmission parseCsvRecord(String line) {
+        // the name may contain commas, so the coordinates are taken from the end of the line
+        int lonSeparator = line.lastIndexOf(',');
+        int latSeparator = lonSeparator > 0 ? line.lastIndexOf(',', lonSeparator - 1) : -1;
+        if (latSeparator < 0) {
+            throw new IllegalArgumentException("Expected a line with the format name,lat,lon");
+        }
+        String name = line.substring(0, latSeparator).trim();
+        if (name.length() > 1 && name.startsWith("\"") && name.endsWith("\"")) {
+            name = name.substring(1, name.length() - 1).replace("\"\"", "\"");
+        }
+        return toSubmission(name,
+                Double.valueOf(line.substring(latSeparator + 1, lonSeparator).trim()),
+                Double.valueOf(line.substring(lonSeparator + 1).trim()));
+    }
+
+    private CoordinatesSubmission toSubmission(String name, Double lat, Double lon) {
+        if (Objects.isNull(name) || name.isBlank()) {
+            throw new IllegalArgumentException("name is required");
+        }
+        // the csv values are parsed with Double.valueOf, which also accepts NaN and Infinity
+        validateLatitude(lat);
+        validateLongitude(lon);
+        return new CoordinatesSubmission(name, lat, lon);
+    }
+
+    // only places that exist are kept: a place not found yet may be the one being submitted, and caching its absence
+    // would hide it for the whole ttl
+    private boolean isCacheable(String city, JsonObject response) {
+        if (!"OK".equals(response.getString("status"))) {
+            return false;
+        }
+        PendingSubmission pending = pendingSubmissions.get(city);
+        if (Objects.isNull(pending)) {
+            return true;
+        }
+        // an answer with the submitted coordinates means that the consumer stored them, older answers are not kept
+        if (Objects.equals(pending.lat, response.getDouble("lat")) && Objects.equals(pending.lon, response.getDouble("lon"))) {
+            pendingSubmissions.remove(city, pending);
+            return true;
+        }
+        return false;
+    }
+
+    // the coordinates of a submission and when it was sent
+    private static class PendingSubmission {
+        private final Double lat;
+        private final Double lon;
+        private final long submittedAt = System.currentTimeMillis();
+
+        private PendingSubmission(Double lat, Double lon) {
+            this.lat = lat;
+            this.lon = lon;
+        }
+    }
+
+    private void registerCacheMetrics(ICacheAdapter cacheAdapter) {
+        FunctionCounter.builder("cache.gets", cacheAdapter, ICacheAdapter::getHitCount)
+                .tag("cache", "coordinates").tag("result", "hit")
+                .description("The number of times the cache contained the requested coordinates")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", cacheAdapter, ICacheAdapter::getMissCount)
+                .tag("cache", "coordinates").tag("result", "miss")
+                .description("The number of times the coordinates had to be requested to the queue")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", cacheAdapter, ICacheAdapter::getEvictionCount)
+                .tag("cache", "coordinates")
+                .register(registry);
+        Gauge.builder("cache.size", cacheAdapter, ICacheAdapter::getSize)
+                .tag("cache", "coordinates")
+                .register(registry);
+    }
 }
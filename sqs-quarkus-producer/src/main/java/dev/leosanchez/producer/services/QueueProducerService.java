@@ -5,12 +5,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -21,13 +24,20 @@ import javax.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
+import dev.leosanchez.common.codecs.JsonCodec;
 import dev.leosanchez.common.dto.QueueMessage;
 import dev.leosanchez.common.adapters.queueadapter.IQueueAdapter;
+import dev.leosanchez.common.exceptions.MessageDecodingException;
 import dev.leosanchez.common.exceptions.MessagePollingException;
 import dev.leosanchez.common.exceptions.MessageRemovalException;
 import dev.leosanchez.common.exceptions.MessageSendingException;
+import io.smallrye.mutiny.Multi;
+import io.quarkus.runtime.Startup;
+import io.quarkus.runtime.configuration.ProfileManager;
+import io.quarkus.scheduler.Scheduled;
 
 @ApplicationScoped
+@Startup
 public class QueueProducerService {
     
     // just a logger
@@ -37,41 +47,107 @@ public class QueueProducerService {
     @Inject
     IQueueAdapter queueAdapter;
 
-    // the name of the application to make queues with the same name as prefix
-    // NOTE: the property is received as optional because it is not inserted in the
-    // test profile and we want to test this class.
-    @ConfigProperty(name = "quarkus.application.name")
-    Optional<String> applicationName;
+    // the pool from which the response queue is leased
+    @Inject
+    ResponseQueuePoolService responseQueuePool;
+
+    // the maximum time a message waits for the response queue to be ready
+    @ConfigProperty(name = "response.queue.provisioning-timeout-seconds", defaultValue = "10")
+    Integer provisioningTimeoutSeconds;
+
+    // the time a sender waits for its response, used as deadline of the requests
+    @ConfigProperty(name = "twoways.response.timeout-seconds", defaultValue = "30")
+    Integer responseTimeoutSeconds;
+
+    // the identifier of this instance as owner of the leased response queue
+    private final String instanceId = UUID.randomUUID().toString();
 
-    // the response queue that will be created after the initialization of the class
-    private Optional<String> responseQueueUrl = Optional.empty();
+    // the response queue that will be leased in background after the initialization of the class
+    private volatile Optional<String> responseQueueUrl = Optional.empty();
+
+    // completed once the response queue is ready, so the senders wait for it instead of polling
+    private volatile CompletableFuture<String> responseQueueReady = new CompletableFuture<>();
+
+    // makes sure that there is only one provisioning in progress
+    private final AtomicBoolean provisioningInProgress = new AtomicBoolean(false);
 
     // a stack that will receive messages for all the service, no matter the request made
-    private Map<String, String> messageStack = new HashMap<>();
+    // written by the polling thread while the waiters of every request read it
+    private Map<String, String> messageStack = new ConcurrentHashMap<>();
+
+    // when each response arrived, so the ones whose sender stopped waiting are forgotten
+    private Map<String, Long> messageArrivals = new ConcurrentHashMap<>();
+
+    // the chunks of the streamed responses received, by signature and sequence number
+    private Map<String, Map<Integer, String>> chunkStack = new ConcurrentHashMap<>();
+
+    // the number of chunks of each streamed response, known once its end marker is received
+    private Map<String, Integer> chunkTotals = new ConcurrentHashMap<>();
+
+    // the streamed responses that the listener could not send completely
+    private Set<String> interruptedStreams = ConcurrentHashMap.newKeySet();
+
+    // when the last chunk of each streamed response arrived, so the ones nobody reads are forgotten
+    private Map<String, Long> chunkArrivals = new ConcurrentHashMap<>();
 
     // a variable that will be used to store the polling task in order to check if
-    // it was done
-    private Future<Void> pollingFuture;
+    // it was done, read by every waiter
+    private volatile CompletableFuture<Void> pollingFuture;
 
     public void sendMessageForNoResponse(String targetQueueUrl, String message) throws MessageSendingException {
         LOG.info("Sending message " + message+" not expecting response");
         queueAdapter.sendMessage(targetQueueUrl, message);
     }
 
+    // the typed variants encode the message with the codec of its type, which is built once and reused
+    public <T> void sendMessageForNoResponse(String targetQueueUrl, T message, JsonCodec<T> codec) throws MessageSendingException {
+        sendMessageForNoResponse(targetQueueUrl, codec.encode(message));
+    }
+
+    public List<Integer> sendMessagesForNoResponse(String targetQueueUrl, List<String> messages) throws MessageSendingException {
+        LOG.info("Sending " + messages.size() + " messages in batch not expecting response");
+        // we return the indexes of the messages that could not be sent
+        return queueAdapter.sendMessageBatch(targetQueueUrl, messages);
+    }
+
     public Optional<String> getResponseQueueUrl () {
         return responseQueueUrl;
     }
 
     public String sendMessageForResponse(String targetQueueUrl, String message) throws MessageSendingException {
+        return sendMessageForResponse(targetQueueUrl, message, responseTimeoutSeconds);
+    }
+
+    public String sendMessageForResponse(String targetQueueUrl, String message, Integer secondsToTimeout) throws MessageSendingException {
+        return sendTwoWaysMessage(targetQueueUrl, message, secondsToTimeout, false);
+    }
+
+    public <T> String sendMessageForResponse(String targetQueueUrl, T message, JsonCodec<T> codec) throws MessageSendingException {
+        return sendMessageForResponse(targetQueueUrl, codec.encode(message));
+    }
+
+    public String sendMessageForStreamedResponse(String targetQueueUrl, String message) throws MessageSendingException {
+        // the listener will answer in many chunks, to be read with receiveStreamedResponse
+        return sendTwoWaysMessage(targetQueueUrl, message, responseTimeoutSeconds, true);
+    }
+
+    private String sendTwoWaysMessage(String targetQueueUrl, String message, Integer secondsToTimeout, boolean streaming) throws MessageSendingException {
         // we generate a signature
         String signature = UUID.randomUUID().toString();
         LOG.info("Sending message " + message+" expecting response");
         // we assign the attributes to the message
+        String responseQueue = retrieveResponseQueueUrl().get(); // we make sure that it is initialized
+        // after this moment (epoch millis) nobody will read the response, so the consumer can skip the request
+        String deadline = String.valueOf(System.currentTimeMillis() + secondsToTimeout * 1000L);
         Map<String, String> messageAttributes = new HashMap<>() {
             {
-                put("ResponseQueueUrl", retrieveResponseQueueUrl().get()); // we make sure that it is initialized
+                put("ResponseQueueUrl", responseQueue);
                 // we attach the generated signature to the message
                 put("Signature", signature);
+                put("Deadline", deadline);
+                if (streaming) {
+                    put("Streaming", "true");
+                }
             }
         };
         // we send the message through our adapter
@@ -91,25 +167,8 @@ public class QueueProducerService {
                 Optional<String> response = findMessage(signature);
                 while (response.isEmpty()) {
                     LOG.info("Message not found, polling");
-                    // if the variable that contains the polling task is not null and it is not done, then wait
-                    if (Objects.nonNull(pollingFuture) && !pollingFuture.isDone()) {
-                        LOG.info("There is already a polling in progress, so waiting");
-                        try {
-                            Thread.sleep(1000);
-                        } catch (InterruptedException e) {
-                            e.printStackTrace();
-                            return Optional.empty();
-                        }
-                    } else {
-                        // if the variable is null or it is done, then we start a new polling task
-                        LOG.info("A new polling will be executed");
-                        pollingFuture = CompletableFuture.runAsync(() -> {
-                            try {
-                                pollMessages();
-                            } catch (MessagePollingException e) {
-                                throw new RuntimeException(e);
-                            }
-                        });
+                    if (!pollOrWait()) {
+                        return Optional.empty();
                     }
                     response = findMessage(signature);
                 }
@@ -128,18 +187,132 @@ public class QueueProducerService {
         return receivedMessage;
     }
 
+    public <R> Optional<R> receiveResponse(String signature, Integer secondsToTimeout, JsonCodec<R> codec) {
+        Optional<String> response = receiveResponse(signature, secondsToTimeout);
+        if (response.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(codec.decode(response.get()));
+        } catch (MessageDecodingException e) {
+            // an answer we cannot read is handled like no answer at all
+            LOG.error(e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public Multi<String> receiveStreamedResponse(String signature, Integer secondsToTimeout) {
+        return Multi.createFrom().emitter(emitter -> {
+            LOG.info("Awaiting streamed response");
+            // we poll for the chunks in another thread
+            ExecutorService waiterExecutor = Executors.newSingleThreadExecutor();
+            emitter.onTermination(() -> {
+                // we terminate the thread created and forget the chunks nobody will read
+                waiterExecutor.shutdownNow();
+                forgetChunks(signature);
+            });
+            waiterExecutor.submit(() -> {
+                int nextSequence = 0;
+                // the timeout counts from the last chunk received, so long answers are not cut while they progress
+                long deadline = System.currentTimeMillis() + secondsToTimeout * 1000L;
+                while (!emitter.isCancelled()) {
+                    // a listener without streaming support answers in a single message
+                    Optional<String> response = findMessage(signature);
+                    if (response.isPresent()) {
+                        emitter.emit(response.get());
+                        emitter.complete();
+                        return;
+                    }
+                    // the chunks are emitted in order, the ones that arrived early wait for the previous ones
+                    Optional<String> chunk = findChunk(signature, nextSequence);
+                    while (chunk.isPresent()) {
+                        emitter.emit(chunk.get());
+                        nextSequence++;
+                        deadline = System.currentTimeMillis() + secondsToTimeout * 1000L;
+                        chunk = findChunk(signature, nextSequence);
+                    }
+                    Integer totalChunks = chunkTotals.get(signature);
+                    if (Objects.nonNull(totalChunks) && nextSequence >= totalChunks) {
+                        if (interruptedStreams.contains(signature)) {
+                            // the chunks emitted are only a part of the response
+                            emitter.fail(new IllegalStateException("Response " + signature + " was interrupted by the listener"));
+                        } else {
+                            emitter.complete();
+                        }
+                        return;
+                    }
+                    if (System.currentTimeMillis() > deadline) {
+                        LOG.error("Timeout");
+                        emitter.fail(new TimeoutException("No chunk received after " + secondsToTimeout + " seconds"));
+                        return;
+                    }
+                    if (!pollOrWait()) {
+                        emitter.fail(new InterruptedException("Interrupted while awaiting the streamed response"));
+                        return;
+                    }
+                }
+            });
+        });
+    }
+
+    // waits for the polling in progress or starts a new one, returns false if interrupted
+    private boolean pollOrWait() {
+        try {
+            // if the variable that contains the polling task is not null and it is not done, then wait
+            if (Objects.nonNull(pollingFuture) && !pollingFuture.isDone()) {
+                LOG.info("There is already a polling in progress, so waiting");
+                Thread.sleep(1000);
+                return true;
+            }
+            if (responseQueueUrl.isEmpty()) {
+                // the queue was lost or is still being leased, so there is nothing to poll yet
+                LOG.info("No response queue to poll, waiting for it");
+                provisionResponseQueue();
+                Thread.sleep(1000);
+                return true;
+            }
+            if (Objects.nonNull(pollingFuture) && pollingFuture.isCompletedExceptionally()) {
+                // the last polling failed, we wait before trying again instead of spinning
+                Thread.sleep(1000);
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+            return false;
+        }
+        // if the variable is null or it is done, then we start a new polling task
+        LOG.info("A new polling will be executed");
+        pollingFuture = CompletableFuture.runAsync(() -> {
+            try {
+                pollMessages();
+            } catch (MessagePollingException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        return true;
+    }
+
     @PostConstruct // we make sure this is executed after the initialization of the class
+    public void init() {
+        // in the test profile the queue is provisioned on demand, so the mocks are already in place
+        if (!ProfileManager.getActiveProfile().equals("test")) {
+            // we do not block the startup while the queue is being leased or created
+            provisionResponseQueue();
+        }
+    }
+
     public void createResponseQueue() {
         try {
             LOG.info("Initializing response queue");
-            String projectName = applicationName.orElse("TEST");
-            // we define a prefix for the generated response queues (Warning: queues cannot
-            // have a name with a length with more than 80 characters)
-            String prefix = projectName + "_RQ_TEMP_";
-            // we create a unique name for the response queue
-            String queueName = prefix + UUID.randomUUID().toString();
-            // we receive the queue url
-            responseQueueUrl = Optional.of(queueAdapter.createQueue(queueName));
+            // we lease a queue from the pool or create a new one if none is available
+            String queueUrl = responseQueuePool.lease(instanceId);
+            if (Objects.isNull(queueUrl)) {
+                throw new IllegalStateException("No response queue url received");
+            }
+            responseQueueUrl = Optional.of(queueUrl);
+            // the waiting senders are released, and later ones receive the url right away
+            if (!responseQueueReady.complete(queueUrl)) {
+                responseQueueReady = CompletableFuture.completedFuture(queueUrl);
+            }
         } catch (Exception e){
             LOG.error("Error creating response queue");
             e.printStackTrace();
@@ -147,21 +320,65 @@ public class QueueProducerService {
         }
     }
 
+    // keeps the lease of the response queue alive so it is not offered to other instances
+    @Scheduled(every = "{response.queue.heartbeat-interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    public void renewResponseQueueLease() {
+        if (!responseQueuePool.isPoolEnabled()) {
+            return;
+        }
+        Optional<String> queueUrl = responseQueueUrl;
+        if (queueUrl.isPresent()) {
+            // transient errors are retried by the pool, so a false here means that another instance owns the queue
+            if (!responseQueuePool.renew(queueUrl.get(), instanceId)) {
+                // we lost the queue, so we need another one
+                responseQueueUrl = Optional.empty();
+                responseQueueReady = new CompletableFuture<>();
+                provisionResponseQueue();
+            }
+        } else {
+            // a previous provisioning failed, we try again
+            provisionResponseQueue();
+        }
+    }
+
+    private void provisionResponseQueue() {
+        if (provisioningInProgress.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    createResponseQueue();
+                } finally {
+                    provisioningInProgress.set(false);
+                }
+            });
+        }
+    }
+
     private void pollMessages() throws MessagePollingException {
         LOG.info("Polling messages");
+        // the same url is used to receive and delete, even if the queue is replaced meanwhile
+        Optional<String> queueUrl = responseQueueUrl;
+        if (queueUrl.isEmpty()) {
+            throw new MessagePollingException("No response queue to poll");
+        }
         // we prepare the request
-        List<QueueMessage> messages = queueAdapter.receiveMessages(responseQueueUrl.get(), 10);
+        List<QueueMessage> messages = queueAdapter.receiveMessages(queueUrl.get(), 10);
         if (messages.size() > 0) {
             LOG.info("Messages received");
             for (QueueMessage message : messages) {
                 Map<String, String> attributes = message.getAttributes();
                 String signature = attributes.get("Signature");
-                if (Objects.nonNull(signature)) {
+                String sequence = attributes.get("Sequence");
+                if (Objects.nonNull(signature) && Objects.nonNull(sequence)) {
+                    // a chunk or the end marker of a streamed response
+                    storeChunk(signature, sequence, message.getMessage(), "true".equals(attributes.get("End")),
+                            "true".equals(attributes.get("Error")));
+                } else if (Objects.nonNull(signature)) {
+                    messageArrivals.put(signature, System.currentTimeMillis());
                     messageStack.put(signature, message.getMessage());
                 }
                 try{
                     // we remove it from the queue
-                    queueAdapter.deleteMessage(responseQueueUrl.get(), message.getReceiptHandle());
+                    queueAdapter.deleteMessage(queueUrl.get(), message.getReceiptHandle());
                 } catch (MessageRemovalException e) {
                     LOG.error("Error removing message");
                     e.printStackTrace();
@@ -170,6 +387,8 @@ public class QueueProducerService {
         } else {
             LOG.info("No messages");
         }
+        expireMessages();
+        expireChunks();
 
     }
 
@@ -177,44 +396,117 @@ public class QueueProducerService {
 
     private Optional<String> findMessage(String signature) {
         LOG.info("Finding message");
-        String response = messageStack.get(signature);
+        // if there is a message with the signature, we remove it from the list and we
+        // return it, so only one waiter gets it
+        String response = messageStack.remove(signature);
         if (Objects.nonNull(response)) {
-            // if there is a message with the signature, we remove it from the list and we
-            // return it
-            messageStack.remove(signature);
+            messageArrivals.remove(signature);
             return Optional.of(response);
         }
         return Optional.empty();
     }
 
+    // the responses that arrived after their sender stopped waiting would stay forever otherwise
+    private void expireMessages() {
+        long expiration = System.currentTimeMillis() - responseTimeoutSeconds * 1000L;
+        messageArrivals.forEach((signature, arrival) -> {
+            if (arrival < expiration) {
+                LOG.warn("Discarding unread response " + signature);
+                messageStack.remove(signature);
+                messageArrivals.remove(signature, arrival);
+            }
+        });
+    }
+
 
-    private Optional<String> retrieveResponseQueueUrl() {
-        LOG.info("Retrieving current response queue");
-        // if the value is null, lets wait until it is initialized
-        while (responseQueueUrl.isEmpty()) {
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+    private void storeChunk(String signature, String sequence, String message, boolean end, boolean error) {
+        try {
+            chunkArrivals.put(signature, System.currentTimeMillis());
+            if (end) {
+                if (error) {
+                    interruptedStreams.add(signature);
+                }
+                // the end marker carries the number of chunks of the response and no content
+                chunkTotals.put(signature, Integer.valueOf(sequence));
+            } else {
+                chunkStack.computeIfAbsent(signature, s -> new ConcurrentHashMap<>()).put(Integer.valueOf(sequence), message);
+            }
+        } catch (NumberFormatException e) {
+            LOG.error("Invalid sequence received: " + sequence);
+        }
+    }
+
+    // the chunks of a response whose stream was never subscribed would stay forever otherwise
+    private void expireChunks() {
+        long expiration = System.currentTimeMillis() - responseTimeoutSeconds * 1000L;
+        chunkArrivals.forEach((signature, arrival) -> {
+            if (arrival < expiration) {
+                LOG.warn("Discarding unread chunks of response " + signature);
+                forgetChunks(signature);
             }
+        });
+    }
+
+    private void forgetChunks(String signature) {
+        chunkStack.remove(signature);
+        chunkTotals.remove(signature);
+        interruptedStreams.remove(signature);
+        chunkArrivals.remove(signature);
+    }
+
+    private Optional<String> findChunk(String signature, int sequence) {
+        Map<Integer, String> chunks = chunkStack.get(signature);
+        if (Objects.isNull(chunks)) {
+            return Optional.empty();
         }
+        // we remove it, as it is read only once
+        return Optional.ofNullable(chunks.remove(sequence));
+    }
+
+    private Optional<String> retrieveResponseQueueUrl() throws MessageSendingException {
+        LOG.info("Retrieving current response queue");
         if (responseQueueUrl.isEmpty()) {
-            throw new Error("No response queue created");
-        } else {
-            LOG.infov("response queue created {0}", responseQueueUrl.get());
+            // if the queue is not being provisioned (e.g. a previous attempt failed), we start it
+            provisionResponseQueue();
+        }
+        try {
+            // we wait only until the queue is ready, not a fixed amount of time
+            String queueUrl = responseQueueReady.get(provisioningTimeoutSeconds, TimeUnit.SECONDS);
+            LOG.infov("response queue created {0}", queueUrl);
+            return Optional.of(queueUrl);
+        } catch (Exception e) {
+            throw new MessageSendingException("No response queue available");
         }
-        // so here we return the value only when we know it is initialized
-        return responseQueueUrl;
     }
 
     @PreDestroy
+    public void releaseResponseQueue() {
+        Optional<String> queueUrl = responseQueueUrl;
+        if (queueUrl.isEmpty()) {
+            LOG.info("No response queue to release");
+            return;
+        }
+        try {
+            LOG.info("Releasing queue: " + queueUrl.get());
+            // the queue is returned to the pool so the next instance does not have to create it
+            responseQueuePool.release(queueUrl.get());
+        } catch (Exception e) {
+            LOG.error("Error while releasing queue", e);
+        }
+    }
+
     public void deleteResponseQueue() {
+        Optional<String> queueUrl = responseQueueUrl;
+        if (queueUrl.isEmpty()) {
+            LOG.info("No response queue to delete");
+            return;
+        }
         try {
-            LOG.info("Deleting queue: " + responseQueueUrl);
-            queueAdapter.deleteQueue(responseQueueUrl.get());
+            LOG.info("Deleting queue: " + queueUrl.get());
+            queueAdapter.deleteQueue(queueUrl.get());
         } catch (Exception e) {
             LOG.error("Error while deleting queue", e);
         }
     }
     
-}
+}
\ No newline at end of file
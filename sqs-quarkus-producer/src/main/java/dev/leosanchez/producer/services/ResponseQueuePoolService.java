@@ -0,0 +1,297 @@
+package dev.leosanchez.producer.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import dev.leosanchez.common.adapters.queueadapter.IQueueAdapter;
+import dev.leosanchez.common.dto.QueueMessage;
+import dev.leosanchez.common.exceptions.MessagePollingException;
+import dev.leosanchez.common.exceptions.MessageRemovalException;
+import dev.leosanchez.common.exceptions.MessageSendingException;
+import dev.leosanchez.common.exceptions.QueueCreationException;
+import dev.leosanchez.common.exceptions.QueueRetrievalException;
+import dev.leosanchez.common.exceptions.QueueTaggingException;
+import io.quarkus.scheduler.Scheduled;
+
+// keeps a pool of response queues that are leased by the producer instances instead of being created on each start
+@ApplicationScoped
+public class ResponseQueuePoolService {
+
+    // just a logger
+    private static final Logger LOG = Logger.getLogger(ResponseQueuePoolService.class);
+
+    // the tag that contains the instance that leased the queue
+    public static final String OWNER_TAG = "LeaseOwner";
+    // the tag that contains the last time (epoch millis) the owner confirmed that it is alive
+    public static final String HEARTBEAT_TAG = "LeaseHeartbeat";
+    // the owner of the queues that are available in the pool
+    public static final String NO_OWNER = "none";
+    // the attribute of the single message an available queue holds, whoever receives it leases the queue
+    public static final String LEASE_TOKEN_ATTRIBUTE = "LeaseToken";
+
+    @Inject
+    IQueueAdapter queueAdapter;
+
+    // NOTE: the property is received as optional because it is not inserted in the test profile
+    @ConfigProperty(name = "quarkus.application.name")
+    Optional<String> applicationName;
+
+    // if disabled, a new queue is created on each start and deleted on shutdown
+    @ConfigProperty(name = "response.queue.pool.enabled", defaultValue = "true")
+    Boolean poolEnabled;
+
+    // the number of available queues the sweeper keeps created ahead of time
+    @ConfigProperty(name = "response.queue.pool.min-idle", defaultValue = "1")
+    Integer minIdleQueues;
+
+    // the number of available queues kept once they are released
+    @ConfigProperty(name = "response.queue.pool.max-idle", defaultValue = "5")
+    Integer maxIdleQueues;
+
+    // a leased queue without heartbeat for this time is considered abandoned and deleted, as it has no token to lease it again
+    @ConfigProperty(name = "response.queue.lease-expiration-seconds", defaultValue = "90")
+    Long leaseExpirationSeconds;
+
+    // an available queue not used for this time is deleted if there are more than the max idle queues
+    @ConfigProperty(name = "response.queue.orphan-expiration-seconds", defaultValue = "900")
+    Long orphanExpirationSeconds;
+
+    // the attempts made to renew a lease before waiting for the next heartbeat
+    @ConfigProperty(name = "response.queue.renew-attempts", defaultValue = "3")
+    Integer renewAttempts;
+
+    // the time waited between the attempts to renew a lease
+    @ConfigProperty(name = "response.queue.renew-retry-milliseconds", defaultValue = "500")
+    Long renewRetryMilliseconds;
+
+    public String getQueueNamePrefix() {
+        // Warning: queues cannot have a name with a length with more than 80 characters
+        return applicationName.orElse("TEST") + "_RQ_TEMP_";
+    }
+
+    public boolean isPoolEnabled() {
+        return poolEnabled;
+    }
+
+    public String lease(String owner) throws QueueCreationException {
+        if (poolEnabled) {
+            try {
+                Optional<String> leasedQueue = leaseAvailableQueue(owner);
+                if (leasedQueue.isPresent()) {
+                    return leasedQueue.get();
+                }
+            } catch (Exception e) {
+                LOG.error("Error leasing a queue from the pool, a new one will be created", e);
+            }
+        }
+        String queueUrl = queueAdapter.createQueue(getQueueNamePrefix() + UUID.randomUUID().toString());
+        if (poolEnabled) {
+            try {
+                queueAdapter.tagQueue(queueUrl, leaseTags(owner));
+            } catch (QueueTaggingException e) {
+                // the queue can still be used, but the sweeper will offer it to other instances after the lease expiration
+                LOG.error("Error tagging the created response queue " + queueUrl, e);
+            }
+        }
+        return queueUrl;
+    }
+
+    // returns false only when another instance owns the queue, as a failed call does not mean that we lost it
+    public boolean renew(String queueUrl, String owner) {
+        for (int attempt = 1; attempt <= renewAttempts; attempt++) {
+            try {
+                // if other instance leased our queue (because we missed the heartbeats) we have to find another one
+                String currentOwner = queueAdapter.getQueueTags(queueUrl).get(OWNER_TAG);
+                if (Objects.nonNull(currentOwner) && !currentOwner.equals(owner)) {
+                    LOG.warn("Response queue " + queueUrl + " was leased by " + currentOwner);
+                    return false;
+                }
+                queueAdapter.tagQueue(queueUrl, leaseTags(owner));
+                return true;
+            } catch (QueueRetrievalException | QueueTaggingException e) {
+                LOG.warn("Error renewing the lease of " + queueUrl + " (attempt " + attempt + " of " + renewAttempts + ")", e);
+                // the sweeper of another instance deletes the queues whose heartbeats were missed
+                if (isDeleted(queueUrl)) {
+                    LOG.warn("Response queue " + queueUrl + " was deleted as abandoned");
+                    return false;
+                }
+            }
+            try {
+                Thread.sleep(renewRetryMilliseconds);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        // we keep the queue, the next heartbeat will find out if another instance took it meanwhile
+        LOG.error("Could not renew the lease of " + queueUrl + ", keeping it until the next heartbeat");
+        return true;
+    }
+
+    public void release(String queueUrl) throws Exception {
+        if (poolEnabled && countIdleQueues() < maxIdleQueues) {
+            LOG.info("Returning response queue to the pool: " + queueUrl);
+            queueAdapter.tagQueue(queueUrl, leaseTags(NO_OWNER));
+            // only the owner puts the token back, so there is never more than one
+            offerLease(queueUrl);
+        } else {
+            queueAdapter.deleteQueue(queueUrl);
+        }
+    }
+
+    // removes abandoned queues and creates available queues ahead of time
+    @Scheduled(every = "{response.queue.sweep-interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    public void sweep() {
+        if (!poolEnabled) {
+            return;
+        }
+        try {
+            List<Map.Entry<String, Long>> idleQueues = new ArrayList<>();
+            long leaseLimit = System.currentTimeMillis() - leaseExpirationSeconds * 1000;
+            for (String queueUrl : queueAdapter.listQueues(getQueueNamePrefix())) {
+                Map<String, String> tags = queueAdapter.getQueueTags(queueUrl);
+                if (isAvailable(tags)) {
+                    idleQueues.add(Map.entry(queueUrl, heartbeatOf(tags)));
+                } else if (tags.containsKey(OWNER_TAG) && heartbeatOf(tags) < leaseLimit) {
+                    // several sweepers could put a token back at the same time, so the queue is deleted instead of offered.
+                    // A queue without tags is skipped, the heartbeat of the instance that created it tags it soon
+                    LOG.info("Deleting abandoned response queue " + queueUrl);
+                    queueAdapter.deleteQueue(queueUrl);
+                }
+            }
+            // the most recently used queues are kept and the remaining ones are removed once they are orphans
+            idleQueues.sort(Collections.reverseOrder(Comparator.comparing(Map.Entry::getValue)));
+            long orphanLimit = System.currentTimeMillis() - orphanExpirationSeconds * 1000;
+            for (int i = maxIdleQueues; i < idleQueues.size(); i++) {
+                if (idleQueues.get(i).getValue() < orphanLimit) {
+                    LOG.info("Deleting orphan response queue " + idleQueues.get(i).getKey());
+                    queueAdapter.deleteQueue(idleQueues.get(i).getKey());
+                }
+            }
+            for (int i = idleQueues.size(); i < minIdleQueues; i++) {
+                String queueUrl = queueAdapter.createQueue(getQueueNamePrefix() + UUID.randomUUID().toString());
+                queueAdapter.tagQueue(queueUrl, leaseTags(NO_OWNER));
+                offerLease(queueUrl);
+            }
+        } catch (Exception e) {
+            LOG.error("Error sweeping response queues", e);
+        }
+    }
+
+    private Optional<String> leaseAvailableQueue(String owner) throws Exception {
+        List<String> queueUrls = new ArrayList<>(queueAdapter.listQueues(getQueueNamePrefix()));
+        // starting instances pick queues in different order to reduce the chance of claiming the same one
+        Collections.shuffle(queueUrls);
+        for (String queueUrl : queueUrls) {
+            if (isAvailable(queueAdapter.getQueueTags(queueUrl)) && claim(queueUrl, owner)) {
+                LOG.info("Leased response queue " + queueUrl);
+                return Optional.of(queueUrl);
+            }
+        }
+        return Optional.empty();
+    }
+
+    // sqs has no conditional updates, so the tags cannot exclude other instances. A received message is hidden from
+    // the other receivers instead, so only the instance that receives the token of the queue leases it
+    private boolean claim(String queueUrl, String owner) throws Exception {
+        List<QueueMessage> messages = queueAdapter.receiveMessages(queueUrl, 10, 0);
+        Optional<QueueMessage> token = messages.stream()
+                .filter(message -> message.getAttributes().containsKey(LEASE_TOKEN_ATTRIBUTE)).findFirst();
+        if (token.isEmpty()) {
+            // another instance holds the token, the responses we received are left for its drain
+            for (QueueMessage message : messages) {
+                queueAdapter.changeMessageVisibility(queueUrl, message.getReceiptHandle(), 0);
+            }
+            return false;
+        }
+        try {
+            queueAdapter.tagQueue(queueUrl, leaseTags(owner));
+        } catch (QueueTaggingException e) {
+            queueAdapter.changeMessageVisibility(queueUrl, token.get().getReceiptHandle(), 0);
+            throw e;
+        }
+        // the token is removed while we own the queue, the rest are responses sent to the previous owner
+        for (QueueMessage message : messages) {
+            queueAdapter.deleteMessage(queueUrl, message.getReceiptHandle());
+        }
+        drain(queueUrl);
+        return true;
+    }
+
+    private void offerLease(String queueUrl) {
+        try {
+            queueAdapter.sendMessageWithAttributes(queueUrl, LEASE_TOKEN_ATTRIBUTE, Map.of(LEASE_TOKEN_ATTRIBUTE, "true"));
+        } catch (MessageSendingException e) {
+            // nobody can lease the queue, the sweeper deletes it once it is an orphan
+            LOG.error("Error offering the lease of " + queueUrl, e);
+        }
+    }
+
+    private boolean isDeleted(String queueUrl) {
+        try {
+            return queueAdapter.getQueueUrl(queueUrl.substring(queueUrl.lastIndexOf('/') + 1)).isEmpty();
+        } catch (QueueRetrievalException e) {
+            return false;
+        }
+    }
+
+    private void drain(String queueUrl) {
+        // responses sent to the previous owner will never be read. They are removed one by one instead of purging
+        // the queue, because a purge lasts up to 60 seconds and would also remove the first responses sent to us
+        try {
+            List<QueueMessage> messages = queueAdapter.receiveMessages(queueUrl, 10, 0);
+            while (!messages.isEmpty()) {
+                for (QueueMessage message : messages) {
+                    queueAdapter.deleteMessage(queueUrl, message.getReceiptHandle());
+                }
+                messages = queueAdapter.receiveMessages(queueUrl, 10, 0);
+            }
+        } catch (MessagePollingException | MessageRemovalException e) {
+            // the responses left are ignored by the producer, as nobody waits for their signatures
+            LOG.warn("Could not drain the leased queue " + queueUrl);
+        }
+    }
+
+    private long countIdleQueues() throws QueueRetrievalException {
+        long idleQueues = 0;
+        for (String queueUrl : queueAdapter.listQueues(getQueueNamePrefix())) {
+            if (isAvailable(queueAdapter.getQueueTags(queueUrl))) {
+                idleQueues++;
+            }
+        }
+        return idleQueues;
+    }
+
+    private boolean isAvailable(Map<String, String> tags) {
+        // the queues returned to the pool, the ones whose owner crashed have no token and are deleted by the sweeper
+        return NO_OWNER.equals(tags.get(OWNER_TAG));
+    }
+
+    private long heartbeatOf(Map<String, String> tags) {
+        try {
+            return Long.parseLong(tags.getOrDefault(HEARTBEAT_TAG, "0"));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private Map<String, String> leaseTags(String owner) {
+        Map<String, String> tags = new HashMap<>();
+        tags.put(OWNER_TAG, owner);
+        tags.put(HEARTBEAT_TAG, String.valueOf(System.currentTimeMillis()));
+        return tags;
+    }
+}
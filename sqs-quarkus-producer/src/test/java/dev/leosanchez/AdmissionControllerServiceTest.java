@@ -0,0 +1,38 @@
+package dev.leosanchez;
+
+import javax.inject.Inject;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.leosanchez.producer.exceptions.AdmissionRejectedException;
+import dev.leosanchez.producer.services.AdmissionControllerService;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+public class AdmissionControllerServiceTest {
+
+    // we inject the service we want to test
+    @Inject
+    AdmissionControllerService admissionController;
+
+    @Test
+    public void testRejectWhenLimitReached() {
+        int limit = admissionController.getLimit();
+        // we fill all the slots
+        int permits = admissionController.acquire(limit);
+        try {
+            Assertions.assertEquals(limit, permits);
+            Assertions.assertEquals(limit, admissionController.getInFlight());
+            // the next request waits a little and then is rejected
+            AdmissionRejectedException exception = Assertions.assertThrows(AdmissionRejectedException.class,
+                    () -> admissionController.acquire(1));
+            Assertions.assertTrue(exception.getRetryAfterSeconds() > 0);
+        } finally {
+            admissionController.release(permits, 0, true);
+        }
+        // once released, the requests are admitted again
+        admissionController.release(admissionController.acquire(1), 0, true);
+        Assertions.assertEquals(0, admissionController.getInFlight());
+    }
+}
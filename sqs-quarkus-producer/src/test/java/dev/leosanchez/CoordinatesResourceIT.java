@@ -56,6 +56,7 @@ public class CoordinatesResourceIT {
             try {
                 localstack.execInContainer("awslocal", "sqs", "create-queue", "--queue-name", "OneWayQueue");
                 localstack.execInContainer("awslocal", "sqs", "create-queue", "--queue-name", "TwoWaysQueue");
+                localstack.execInContainer("awslocal", "sqs", "create-queue", "--queue-name", "SpatialQueue");
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -63,6 +64,7 @@ public class CoordinatesResourceIT {
             // consumer configuration
             consumerContainer.withEnv("twoways.queue.url", localstackInternalUrl + "/queue/TwoWaysQueue");
             consumerContainer.withEnv("oneway.queue.url", localstackInternalUrl + "/queue/OneWayQueue");
+            consumerContainer.withEnv("spatial.queue.url", localstackInternalUrl + "/queue/SpatialQueue");
             consumerContainer.withEnv("quarkus.sqs.endpoint-override", localstackInternalUrl);
             consumerContainer.withNetwork(network);
             consumerContainer.start();
@@ -72,6 +74,7 @@ public class CoordinatesResourceIT {
                 {
                     put("twoways.queue.url", localstackUrl + "/queue/TwoWaysQueue");
                     put("oneway.queue.url", localstackUrl + "/queue/OneWayQueue");
+                    put("spatial.queue.url", localstackUrl + "/queue/SpatialQueue");
                     put("queue.provider", "sqs");
                     put("quarkus.sqs.endpoint-override", localstackUrl);
                     put("quarkus.sqs.aws.region", "us-east-1");
@@ -143,4 +146,30 @@ public class CoordinatesResourceIT {
         Assertions.assertNotNull(messageReceived.getDouble("lon"));
 
     }
+
+    @Test
+    public void testNearestEndpoint() {
+        String rawMessage = given()
+                .when().get("/coordinates/nearest?lat=-33.45&lon=-70.67&k=1")
+                .then()
+                .statusCode(200)
+                .extract()
+                .asString();
+        JsonObject messageReceived = new JsonObject(rawMessage);
+        Assertions.assertEquals("OK", messageReceived.getString("status"));
+        Assertions.assertEquals("Santiago", messageReceived.getJsonArray("results").getJsonObject(0).getString("name"));
+    }
+
+    @Test
+    public void testWithinEndpoint() {
+        String rawMessage = given()
+                .when().get("/coordinates/within?minLat=-34&minLon=-71&maxLat=-33&maxLon=-70")
+                .then()
+                .statusCode(200)
+                .extract()
+                .asString();
+        JsonObject messageReceived = new JsonObject(rawMessage);
+        Assertions.assertEquals("OK", messageReceived.getString("status"));
+        Assertions.assertFalse(messageReceived.getJsonArray("results").isEmpty());
+    }
 }
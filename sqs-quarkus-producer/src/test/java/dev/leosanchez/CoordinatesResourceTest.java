@@ -0,0 +1,63 @@
+package dev.leosanchez;
+
+import static io.restassured.RestAssured.given;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import dev.leosanchez.producer.services.CoordinatesService;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.mockito.InjectMock;
+import io.restassured.http.ContentType;
+import io.vertx.core.json.JsonObject;
+
+@QuarkusTest
+public class CoordinatesResourceTest {
+
+    // we only check what the endpoints accept, the queries are not sent
+    @InjectMock
+    CoordinatesService coordinatesService;
+
+    @Test
+    public void testBulkQuery() {
+        Mockito.when(coordinatesService.queryCoordinatesInBulk(List.of("Santiago", "Iquique")))
+            .thenReturn(new JsonObject().put("status", "OK"));
+
+        given().contentType(ContentType.JSON).body("{\"cities\":[\"Santiago\",\"Iquique\"]}")
+            .when().post("/coordinates/search")
+            .then().statusCode(200);
+    }
+
+    @Test
+    public void testBulkQueryWithInvalidCities() {
+        // null, blank and non text cities are rejected instead of being searched as "null" or "42"
+        for (String cities : List.of("[\"Santiago\",null]", "[\"Santiago\",\" \"]", "[\"Santiago\",42]", "[{\"name\":\"Santiago\"}]", "\"Santiago\"", "[]")) {
+            given().contentType(ContentType.JSON).body("{\"cities\":" + cities + "}")
+                .when().post("/coordinates/search")
+                .then().statusCode(400);
+            given().contentType(ContentType.JSON).body("{\"cities\":" + cities + "}")
+                .when().post("/coordinates/search/stream")
+                .then().statusCode(400);
+        }
+        Mockito.verify(coordinatesService, Mockito.never()).queryCoordinatesInBulk(Mockito.anyList());
+        Mockito.verify(coordinatesService, Mockito.never()).streamCoordinatesInBulk(Mockito.anyList());
+    }
+
+    @Test
+    public void testBodyOverLimitRejected() {
+        // a body just over coordinates.max-body-size, the limit of the endpoints other than the bulk submissions
+        byte[] body = ("{\"name\":\"" + "a".repeat(1048576) + "\"}").getBytes(StandardCharsets.UTF_8);
+        given().contentType(ContentType.JSON).body(body)
+            .when().post("/coordinates/submit")
+            .then().statusCode(413);
+        // a stream is sent chunked, without declaring its length
+        given().contentType(ContentType.JSON).body(new ByteArrayInputStream(body))
+            .when().post("/coordinates/submit")
+            .then().statusCode(413);
+        Mockito.verify(coordinatesService, Mockito.never()).submitCoordinates(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+}
@@ -2,6 +2,9 @@ package dev.leosanchez;
 
 import static org.mockito.ArgumentMatchers.argThat;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
 import java.util.Optional;
 
 import javax.inject.Inject;
@@ -16,6 +19,8 @@ import dev.leosanchez.producer.services.CoordinatesService;
 import dev.leosanchez.producer.services.QueueProducerService;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
+import io.smallrye.mutiny.Multi;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
 @QuarkusTest
@@ -35,6 +40,7 @@ public class CoordinatesServiceTest {
         JsonObject response = new JsonObject();
         response.put("lat", -34.397);
         response.put("lon", 150.644);
+        response.put("status", "OK");
 
         // we configure some signature responses
         Mockito.when(queueService.sendMessageForResponse(
@@ -72,6 +78,136 @@ public class CoordinatesServiceTest {
         Assertions.assertTrue(response.isEmpty());
     }
 
+    @Test
+    public void testCachedQueryCoordinates() throws MessageSendingException {
+        // we make sure that there is no previous entry for the city, the consumer answers with the submitted coordinates
+        service.submitCoordinates("Coquimbo", -34.397, 150.644);
+        service.queryCoordinates("Coquimbo");
+        Optional<JsonObject> response = service.queryCoordinates("Coquimbo");
+        Assertions.assertEquals(response.get().getDouble("lat"), -34.397);
+        // the second query must be answered by the cache
+        Mockito.verify(queueService, Mockito.times(1)).sendMessageForResponse(Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test
+    public void testCacheInvalidationOnSubmit() throws MessageSendingException {
+        service.submitCoordinates("Coquimbo", -34.397, 150.644);
+        service.queryCoordinates("Coquimbo");
+        // the submission of the same city must remove the cached entry
+        service.submitCoordinates("Coquimbo", -34.397, 150.644);
+        service.queryCoordinates("Coquimbo");
+        Mockito.verify(queueService, Mockito.times(2)).sendMessageForResponse(Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test
+    public void testAnswerBeforeSubmissionStoredNotCached() throws Exception {
+        JsonObject previous = new JsonObject().put("lat", -33.047).put("lon", -71.612).put("status", "OK");
+        JsonObject submitted = new JsonObject().put("lat", -33.036).put("lon", -71.629).put("status", "OK");
+        Mockito.when(queueService.sendMessageForResponse(Mockito.anyString(), argThat(matcher -> matcher.contains("Valparaiso")))).thenReturn("VLPO");
+        Mockito.when(queueService.receiveResponse(Mockito.eq("VLPO"), Mockito.anyInt()))
+            .thenReturn(Optional.of(previous.toString()), Optional.of(previous.toString()), Optional.of(submitted.toString()));
+
+        // the consumer lags, so the answers still carry the previous value however long it takes to store the submission
+        service.submitCoordinates("Valparaiso", -33.036, -71.629);
+        service.queryCoordinates("Valparaiso");
+        service.queryCoordinates("Valparaiso");
+        // once an answer carries the submitted coordinates, it is cached
+        Assertions.assertEquals(-33.036, service.queryCoordinates("Valparaiso").get().getDouble("lat"));
+        Assertions.assertEquals(-33.036, service.queryCoordinates("Valparaiso").get().getDouble("lat"));
+        Mockito.verify(queueService, Mockito.times(3)).sendMessageForResponse(Mockito.anyString(), argThat(matcher -> matcher.contains("Valparaiso")));
+    }
+
+    @Test
+    public void testNotFoundAnswerNotCached() throws MessageSendingException {
+        JsonObject notFound = new JsonObject().put("status", "NO_RESULTS");
+        Mockito.when(queueService.sendMessageForResponse(Mockito.anyString(), argThat(matcher -> matcher.contains("Temuco")))).thenReturn("TMCO");
+        Mockito.when(queueService.receiveResponse(Mockito.eq("TMCO"), Mockito.anyInt())).thenReturn(Optional.of(notFound.toString()));
+
+        service.queryCoordinates("Temuco");
+        service.queryCoordinates("Temuco");
+
+        // the place may be submitted at any moment, so its absence is asked again
+        Mockito.verify(queueService, Mockito.times(2)).sendMessageForResponse(Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test
+    public void testBulkQueryCoordinates() throws MessageSendingException {
+        // the consumer answers the whole bulk request in a single message
+        JsonObject found = new JsonObject().put("name", "Valparaiso").put("lat", -33.047).put("lon", -71.612).put("status", "OK");
+        JsonObject notFound = new JsonObject().put("name", "Chuchuncocity").put("status", "NO_RESULTS");
+        JsonObject bulkResponse = new JsonObject().put("status", "OK").put("results", new JsonArray().add(found).add(notFound));
+        Mockito.when(queueService.sendMessageForResponse(Mockito.anyString(), argThat(matcher -> matcher.contains("cities")))).thenReturn("BULK");
+        Mockito.when(queueService.receiveResponse(Mockito.eq("BULK"), Mockito.anyInt())).thenReturn(Optional.of(bulkResponse.toString()));
+
+        JsonObject response = service.queryCoordinatesInBulk(List.of("Valparaiso", "Chuchuncocity", "Valparaiso"));
+        JsonArray results = response.getJsonArray("results");
+
+        // the repeated city is requested and answered once, and all the cities travel in the same message
+        Mockito.verify(queueService, Mockito.times(1)).sendMessageForResponse(Mockito.anyString(), Mockito.anyString());
+        Assertions.assertEquals(2, results.size());
+        Assertions.assertEquals("OK", results.getJsonObject(0).getString("status"));
+        Assertions.assertEquals(-33.047, results.getJsonObject(0).getDouble("lat"));
+        Assertions.assertEquals("NO_RESULTS", results.getJsonObject(1).getString("status"));
+    }
+
+    @Test
+    public void testStreamQueryCoordinates() throws MessageSendingException {
+        // the consumer streams a chunk with one of the cities and ends without the other
+        JsonObject found = new JsonObject().put("name", "Antofagasta").put("lat", -23.650).put("lon", -70.400).put("status", "OK");
+        Mockito.when(queueService.sendMessageForStreamedResponse(Mockito.anyString(), argThat(matcher -> matcher.contains("cities")))).thenReturn("STREAM");
+        Mockito.when(queueService.receiveStreamedResponse(Mockito.eq("STREAM"), Mockito.anyInt()))
+            .thenReturn(Multi.createFrom().item(new JsonObject().put("results", new JsonArray().add(found)).toString()));
+
+        List<JsonObject> results = service.streamCoordinatesInBulk(List.of("Antofagasta", "Iquique"))
+            .collect().asList().await().indefinitely();
+
+        // the city without an answer is still reported
+        Assertions.assertEquals(2, results.size());
+        Assertions.assertEquals("OK", results.get(0).getString("status"));
+        Assertions.assertEquals("Iquique", results.get(1).getString("name"));
+        Assertions.assertEquals("TIMEOUT", results.get(1).getString("status"));
+    }
+
+    @Test
+    public void testNearestQuery() throws MessageSendingException {
+        JsonObject place = new JsonObject().put("name", "Coquimbo").put("lat", -30.657).put("lon", -71.884).put("distance", 328.1);
+        JsonObject nearestResponse = new JsonObject().put("status", "OK").put("results", new JsonArray().add(place));
+        Mockito.when(queueService.sendMessageForResponse(Mockito.eq("http://localhost:8010/queue/SpatialQueue"), Mockito.anyString())).thenReturn("NEAREST");
+        Mockito.when(queueService.receiveResponse(Mockito.eq("NEAREST"), Mockito.anyInt())).thenReturn(Optional.of(nearestResponse.toString()));
+
+        Optional<JsonObject> response = service.queryNearest(-33.4, -70.6, 1);
+
+        // the query travels to the spatial listener with its point and the number of places
+        Mockito.verify(queueService, Mockito.times(1)).sendMessageForResponse(Mockito.anyString(), argThat(matcher -> {
+            JsonObject request = new JsonObject(matcher);
+            return request.getDouble("lat").equals(-33.4) && request.getInteger("k").equals(1);
+        }));
+        Assertions.assertEquals("Coquimbo", response.get().getJsonArray("results").getJsonObject(0).getString("name"));
+        // invalid queries are not sent
+        Assertions.assertThrows(IllegalArgumentException.class, () -> service.queryNearest(-100.0, -70.6, 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> service.queryWithin(-30.0, -71.0, -34.0, -70.0, 10));
+    }
+
+    @Test
+    public void testSearchCities() throws MessageSendingException {
+        JsonObject place = new JsonObject().put("name", "Santiago").put("lat", -33.447).put("lon", -70.673).put("match", "fuzzy").put("status", "OK");
+        JsonObject searchResponse = new JsonObject().put("status", "OK").put("results", new JsonArray().add(place));
+        Mockito.when(queueService.sendMessageForResponse(Mockito.anyString(), argThat(matcher -> matcher.contains("search")))).thenReturn("SEARCH");
+        Mockito.when(queueService.receiveResponse(Mockito.eq("SEARCH"), Mockito.anyInt())).thenReturn(Optional.of(searchResponse.toString()));
+
+        Optional<JsonObject> response = service.searchCities("Satniago", 5);
+
+        // the search travels to the listener of the single queries with its text and limit
+        Mockito.verify(queueService, Mockito.times(1)).sendMessageForResponse(Mockito.eq("http://localhost:8010/queue/TwoWaysQueue"), argThat(matcher -> {
+            JsonObject request = new JsonObject(matcher);
+            return request.getString("city").equals("Satniago") && request.getBoolean("search") && request.getInteger("limit").equals(5);
+        }));
+        Assertions.assertEquals("Santiago", response.get().getJsonArray("results").getJsonObject(0).getString("name"));
+        // invalid searches are not sent
+        Assertions.assertThrows(IllegalArgumentException.class, () -> service.searchCities(" ", 5));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> service.searchCities("Santiago", 0));
+    }
+
     @Test
     public void testSubmitCoordinates() throws MessageSendingException {
         service.submitCoordinates("Santiago", -34.397, 150.644);
@@ -86,5 +222,37 @@ public class CoordinatesServiceTest {
         );
     }
 
+    @Test
+    public void testSubmitCoordinatesInBulk() throws MessageSendingException, IOException {
+        // twelve valid places and two invalid lines
+        StringBuilder body = new StringBuilder("name,lat,lon\n");
+        for (int i = 0; i < 12; i++) {
+            body.append("Place ").append(i).append(",-34.397,150.644\n");
+        }
+        body.append("Nowhere,-134.397,150.644\n");
+        body.append("Incomplete\n");
+
+        JsonObject summary = service.submitCoordinatesInBulk(new StringReader(body.toString()), true);
 
+        Assertions.assertEquals(12, summary.getInteger("accepted"));
+        Assertions.assertEquals(2, summary.getInteger("rejected"));
+        Assertions.assertEquals(0, summary.getInteger("failed"));
+        Assertions.assertEquals(15, summary.getJsonArray("errors").getJsonObject(1).getInteger("line"));
+        // the valid places are sent in batches of ten
+        Mockito.verify(queueService, Mockito.times(2)).sendMessagesForNoResponse(Mockito.anyString(), Mockito.anyList());
+    }
+
+    @Test
+    public void testSubmitCoordinatesNotFinite() throws MessageSendingException, IOException {
+        // NaN and Infinity are parsed as numbers, but they are not coordinates
+        String body = "NotANumber,NaN,150.644\nFarAway,-34.397,Infinity\nSomewhere,-34.397,150.644\n";
+
+        JsonObject summary = service.submitCoordinatesInBulk(new StringReader(body), true);
+
+        Assertions.assertEquals(1, summary.getInteger("accepted"));
+        Assertions.assertEquals(2, summary.getInteger("rejected"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> service.submitCoordinates("NotANumber", Double.NaN, 150.644));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> service.queryNearest(Double.NaN, -70.6, 1));
+        Mockito.verify(queueService, Mockito.never()).sendMessageForNoResponse(Mockito.anyString(), Mockito.anyString());
+    }
 }
@@ -2,10 +2,12 @@ package dev.leosanchez;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.times;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Inject;
 
@@ -22,6 +24,7 @@ import dev.leosanchez.common.exceptions.MessageRemovalException;
 import dev.leosanchez.common.exceptions.MessageSendingException;
 import dev.leosanchez.common.exceptions.QueueCreationException;
 import dev.leosanchez.common.exceptions.QueueRemovalException;
+import dev.leosanchez.common.exceptions.QueueRetrievalException;
 import dev.leosanchez.producer.services.QueueProducerService;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
@@ -39,8 +42,9 @@ public class QueueProducerServiceTest {
 
     // here we are going to mock some responses of the sdk client
     @BeforeEach
-    public void beforeEach() throws MessagePollingException{
+    public void beforeEach() throws MessagePollingException, QueueCreationException{
         // mock creation
+        Mockito.when(queueClientAdapter.createQueue(Mockito.anyString())).thenAnswer(answer -> "https://queue.com/" + answer.getArgument(0));
 
         Mockito.when(
             queueClientAdapter.receiveMessages(Mockito.anyString(), Mockito.anyInt())
@@ -68,8 +72,68 @@ public class QueueProducerServiceTest {
         Mockito.verify(queueClientAdapter).createQueue(argThat((ArgumentMatcher<String>) matcher ->  matcher.startsWith("TEST_RQ_TEMP_")));
     }
 
+    @Test
+    public void testQueueLeasedFromPool() throws Exception {
+        // there is an available queue released by a previous instance
+        String pooledQueueUrl = "https://queue.com/TEST_RQ_TEMP_pooled";
+        AtomicReference<Map<String, String>> tags = new AtomicReference<>(Map.of("LeaseOwner", "none", "LeaseHeartbeat", "0"));
+        Mockito.when(queueClientAdapter.listQueues(Mockito.anyString())).thenReturn(List.of(pooledQueueUrl));
+        Mockito.when(queueClientAdapter.getQueueTags(pooledQueueUrl)).thenAnswer(answer -> tags.get());
+        Mockito.doAnswer(answer -> {
+            tags.set(answer.getArgument(1));
+            return null;
+        }).when(queueClientAdapter).tagQueue(Mockito.eq(pooledQueueUrl), Mockito.anyMap());
+        // the previous instance put the lease token back
+        Mockito.when(queueClientAdapter.receiveMessages(pooledQueueUrl, 10, 0)).thenReturn(
+            List.of(new QueueMessage("LeaseToken", "TOKEN_00000001", Map.of("LeaseToken", "true"))),
+            List.of()
+        );
+
+        queueService.createResponseQueue();
+
+        // the queue is reused instead of creating a new one
+        Mockito.verify(queueClientAdapter, Mockito.never()).createQueue(Mockito.anyString());
+        Assertions.assertEquals(pooledQueueUrl, queueService.getResponseQueueUrl().get());
+        Assertions.assertNotEquals("none", tags.get().get("LeaseOwner"));
+    }
+
+    @Test
+    public void testQueueKeptWhenRenewFailsTransiently() throws Exception {
+        queueService.createResponseQueue();
+        String queueUrl = queueService.getResponseQueueUrl().get();
+        Mockito.when(queueClientAdapter.getQueueTags(queueUrl)).thenThrow(new QueueRetrievalException("Throttled"));
+        Mockito.when(queueClientAdapter.getQueueUrl(Mockito.anyString())).thenReturn(Optional.of(queueUrl));
+
+        queueService.renewResponseQueueLease();
+
+        // the responses in flight are still read from the same queue
+        Assertions.assertEquals(Optional.of(queueUrl), queueService.getResponseQueueUrl());
+    }
+
+    @Test
+    public void testNoPollingWithoutResponseQueue() throws Exception {
+        queueService.createResponseQueue();
+        String queueUrl = queueService.getResponseQueueUrl().get();
+        // another instance took the queue and no other one can be leased or created
+        Mockito.when(queueClientAdapter.getQueueTags(queueUrl)).thenReturn(Map.of("LeaseOwner", "another"));
+        Mockito.when(queueClientAdapter.createQueue(Mockito.anyString())).thenThrow(new QueueCreationException("Unavailable"));
+        queueService.renewResponseQueueLease();
+
+        Optional<String> response = queueService.receiveResponse("NL", 2);
+
+        // the waiter waits for a new queue instead of polling an empty url
+        Assertions.assertTrue(response.isEmpty());
+        Mockito.verify(queueClientAdapter, Mockito.never()).receiveMessages(Mockito.anyString(), Mockito.anyInt());
+        // the queue is provisioned again for the next tests
+        Mockito.reset(queueClientAdapter);
+        beforeEach();
+        queueService.createResponseQueue();
+    }
+
     @Test
     public void testQueueDestruction() throws QueueRemovalException {
+        // there must be a queue to delete
+        queueService.createResponseQueue();
         // we call our provider class (this is going to be called  @PreDestroy)
         queueService.deleteResponseQueue();
         Mockito.verify(queueClientAdapter, times(1)).deleteQueue(Mockito.anyString());
@@ -90,6 +154,18 @@ public class QueueProducerServiceTest {
         );
     }
 
+    @Test
+    public void testSendMessageWithDeadline() throws MessageSendingException{
+        long start = System.currentTimeMillis();
+        queueService.sendMessageForResponse("ABC", "Bonjour", 5);
+        // the consumer receives the moment after which nobody will wait for the response
+        Mockito.verify(queueClientAdapter, times(1)).sendMessageWithAttributes(
+            Mockito.eq("ABC"),
+            Mockito.eq("Bonjour"),
+            argThat((ArgumentMatcher<Map<String, String>>) matcher -> Long.parseLong(matcher.get("Deadline")) >= start + 5000)
+        );
+    }
+
     @Test
     public void testAwaitResponseSimple(){
         // we declare what we expect to receive (we already configured the mock to generate the same values)
@@ -144,6 +220,46 @@ public class QueueProducerServiceTest {
         Assertions.assertTrue(Math.floorDiv(end-start, 1000) == timeoutSeconds);   
     }
     
+    @Test
+    public void testAwaitStreamedResponse() throws MessagePollingException {
+        queueService.createResponseQueue();
+        // the chunks arrive out of order, and the end marker before the last chunk
+        Mockito.when(queueClientAdapter.receiveMessages(Mockito.anyString(), Mockito.anyInt())).thenReturn(
+            List.of(
+                new QueueMessage("Wiedersehen", "DE_00000002", Map.of("Signature", "DE", "Sequence", "1")),
+                new QueueMessage("END", "DE_00000003", Map.of("Signature", "DE", "Sequence", "2", "End", "true"))
+            ),
+            List.of(
+                new QueueMessage("Auf", "DE_00000001", Map.of("Signature", "DE", "Sequence", "0"))
+            ),
+            List.of()
+        );
+
+        List<String> chunks = queueService.receiveStreamedResponse("DE", 10).collect().asList().await().indefinitely();
+
+        // the chunks are emitted in order and the end marker is not part of the response
+        Assertions.assertEquals(List.of("Auf", "Wiedersehen"), chunks);
+    }
+
+    @Test
+    public void testAwaitInterruptedStreamedResponse() throws MessagePollingException {
+        queueService.createResponseQueue();
+        // the listener could send only the first chunk and reported the error in the end marker
+        Mockito.when(queueClientAdapter.receiveMessages(Mockito.anyString(), Mockito.anyInt())).thenReturn(
+            List.of(
+                new QueueMessage("Auf", "PT_00000001", Map.of("Signature", "PT", "Sequence", "0")),
+                new QueueMessage("END", "PT_00000002", Map.of("Signature", "PT", "Sequence", "1", "End", "true", "Error", "true"))
+            ),
+            List.of()
+        );
+        List<String> chunks = new ArrayList<>();
+
+        // the chunks received are emitted, but the stream does not complete as if they were the whole response
+        Assertions.assertThrows(IllegalStateException.class,
+            () -> queueService.receiveStreamedResponse("PT", 10).onItem().invoke(chunks::add).collect().asList().await().indefinitely());
+        Assertions.assertEquals(List.of("Auf"), chunks);
+    }
+
     @Test
     public void testMessageRemoval() throws MessageRemovalException{
 
@@ -0,0 +1,157 @@
+package dev.leosanchez;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Inject;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Mockito;
+
+import dev.leosanchez.common.adapters.queueadapter.IQueueAdapter;
+import dev.leosanchez.common.dto.QueueMessage;
+import dev.leosanchez.common.exceptions.QueueRetrievalException;
+import dev.leosanchez.common.exceptions.QueueTaggingException;
+import dev.leosanchez.producer.services.ResponseQueuePoolService;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.mockito.InjectMock;
+
+@QuarkusTest
+public class ResponseQueuePoolServiceTest {
+
+    // the class that we want to test
+    @Inject
+    ResponseQueuePoolService responseQueuePool;
+
+    // a mock of the sdk client
+    @InjectMock
+    IQueueAdapter queueClientAdapter;
+
+    @Test
+    public void testRenewRetriesTransientErrors() throws Exception {
+        String queueUrl = "https://queue.com/TEST_RQ_TEMP_leased";
+        Mockito.when(queueClientAdapter.getQueueTags(queueUrl))
+            .thenThrow(new QueueRetrievalException("Throttled"))
+            .thenReturn(Map.of("LeaseOwner", "owner", "LeaseHeartbeat", "0"));
+        Mockito.when(queueClientAdapter.getQueueUrl("TEST_RQ_TEMP_leased")).thenReturn(Optional.of(queueUrl));
+
+        // the lease is kept and renewed on the second attempt
+        Assertions.assertTrue(responseQueuePool.renew(queueUrl, "owner"));
+        Mockito.verify(queueClientAdapter, Mockito.times(2)).getQueueTags(queueUrl);
+        Mockito.verify(queueClientAdapter, Mockito.times(1)).tagQueue(Mockito.eq(queueUrl), Mockito.anyMap());
+    }
+
+    @Test
+    public void testRenewKeepsLeaseWhenAllAttemptsFail() throws Exception {
+        String queueUrl = "https://queue.com/TEST_RQ_TEMP_leased";
+        Mockito.when(queueClientAdapter.getQueueTags(queueUrl)).thenReturn(Map.of("LeaseOwner", "owner"));
+        Mockito.doThrow(new QueueTaggingException("Unavailable")).when(queueClientAdapter).tagQueue(Mockito.eq(queueUrl), Mockito.anyMap());
+        Mockito.when(queueClientAdapter.getQueueUrl("TEST_RQ_TEMP_leased")).thenReturn(Optional.of(queueUrl));
+
+        // nobody else owns the queue, so the responses in flight are still read from it
+        Assertions.assertTrue(responseQueuePool.renew(queueUrl, "owner"));
+        Mockito.verify(queueClientAdapter, Mockito.times(3)).tagQueue(Mockito.eq(queueUrl), Mockito.anyMap());
+    }
+
+    @Test
+    public void testRenewFailsWhenOwnershipIsLost() throws Exception {
+        String queueUrl = "https://queue.com/TEST_RQ_TEMP_leased";
+        Mockito.when(queueClientAdapter.getQueueTags(queueUrl)).thenReturn(Map.of("LeaseOwner", "another"));
+
+        Assertions.assertFalse(responseQueuePool.renew(queueUrl, "owner"));
+        Mockito.verify(queueClientAdapter, Mockito.never()).tagQueue(Mockito.anyString(), Mockito.anyMap());
+    }
+
+    @Test
+    public void testRenewFailsWhenQueueIsDeleted() throws Exception {
+        String queueUrl = "https://queue.com/TEST_RQ_TEMP_leased";
+        Mockito.when(queueClientAdapter.getQueueTags(queueUrl)).thenThrow(new QueueRetrievalException("Does not exist"));
+        Mockito.when(queueClientAdapter.getQueueUrl("TEST_RQ_TEMP_leased")).thenReturn(Optional.empty());
+
+        // the sweeper of another instance deleted the queue after we missed the heartbeats
+        Assertions.assertFalse(responseQueuePool.renew(queueUrl, "owner"));
+        Mockito.verify(queueClientAdapter, Mockito.times(1)).getQueueTags(queueUrl);
+    }
+
+    @Test
+    public void testLeaseCreatesQueueWhenPoolIsUnreachable() throws Exception {
+        Mockito.when(queueClientAdapter.listQueues(Mockito.anyString())).thenThrow(new QueueRetrievalException("Unavailable"));
+        Mockito.when(queueClientAdapter.createQueue(Mockito.anyString())).thenAnswer(answer -> "https://queue.com/" + answer.getArgument(0));
+
+        String queueUrl = responseQueuePool.lease("owner");
+
+        Assertions.assertTrue(queueUrl.contains("TEST_RQ_TEMP_"));
+        Mockito.verify(queueClientAdapter, Mockito.times(1)).createQueue(Mockito.anyString());
+    }
+
+    @Test
+    public void testLeaseKeepsCreatedQueueWhenTaggingFails() throws Exception {
+        Mockito.when(queueClientAdapter.createQueue(Mockito.anyString())).thenAnswer(answer -> "https://queue.com/" + answer.getArgument(0));
+        Mockito.doThrow(new QueueTaggingException("Unavailable")).when(queueClientAdapter).tagQueue(Mockito.anyString(), Mockito.anyMap());
+
+        // the queue is usable even if the sweeper does not know its owner yet
+        Assertions.assertTrue(responseQueuePool.lease("owner").contains("TEST_RQ_TEMP_"));
+    }
+
+    @Test
+    public void testLeasedQueueIsDrainedInsteadOfPurged() throws Exception {
+        String pooledQueueUrl = "https://queue.com/TEST_RQ_TEMP_pooled";
+        AtomicReference<Map<String, String>> tags = new AtomicReference<>(Map.of("LeaseOwner", "none", "LeaseHeartbeat", "0"));
+        Mockito.when(queueClientAdapter.listQueues(Mockito.anyString())).thenReturn(List.of(pooledQueueUrl));
+        Mockito.when(queueClientAdapter.getQueueTags(pooledQueueUrl)).thenAnswer(answer -> tags.get());
+        Mockito.doAnswer(answer -> {
+            tags.set(answer.getArgument(1));
+            return null;
+        }).when(queueClientAdapter).tagQueue(Mockito.eq(pooledQueueUrl), Mockito.anyMap());
+        // a response sent to the previous owner is still in the queue, next to the lease token
+        Mockito.when(queueClientAdapter.receiveMessages(pooledQueueUrl, 10, 0)).thenReturn(
+            List.of(new QueueMessage("LeaseToken", "TOKEN_00000001", Map.of("LeaseToken", "true"))),
+            List.of(new QueueMessage("Stale", "STALE_00000001", Map.of("Signature", "OLD"))),
+            List.of()
+        );
+
+        Assertions.assertEquals(pooledQueueUrl, responseQueuePool.lease("owner"));
+
+        // the stale response is removed without purging, which would also remove the responses sent to us
+        Mockito.verify(queueClientAdapter, Mockito.times(1)).deleteMessage(pooledQueueUrl, "TOKEN_00000001");
+        Mockito.verify(queueClientAdapter, Mockito.times(1)).deleteMessage(pooledQueueUrl, "STALE_00000001");
+        Mockito.verify(queueClientAdapter, Mockito.never()).purgeQueue(Mockito.anyString());
+    }
+
+    @Test
+    public void testQueueNotLeasedWithoutToken() throws Exception {
+        String pooledQueueUrl = "https://queue.com/TEST_RQ_TEMP_pooled";
+        Mockito.when(queueClientAdapter.listQueues(Mockito.anyString())).thenReturn(List.of(pooledQueueUrl));
+        // the tags were not updated yet, but another instance already received the token
+        Mockito.when(queueClientAdapter.getQueueTags(pooledQueueUrl)).thenReturn(Map.of("LeaseOwner", "none", "LeaseHeartbeat", "0"));
+        Mockito.when(queueClientAdapter.receiveMessages(pooledQueueUrl, 10, 0)).thenReturn(
+            List.of(new QueueMessage("Stale", "STALE_00000001", Map.of("Signature", "OLD"))));
+        Mockito.when(queueClientAdapter.createQueue(Mockito.anyString())).thenAnswer(answer -> "https://queue.com/" + answer.getArgument(0));
+
+        String queueUrl = responseQueuePool.lease("owner");
+
+        // the queue is neither claimed nor drained, the response we received is left for the instance that leased it
+        Assertions.assertNotEquals(pooledQueueUrl, queueUrl);
+        Mockito.verify(queueClientAdapter, Mockito.never()).tagQueue(Mockito.eq(pooledQueueUrl), Mockito.anyMap());
+        Mockito.verify(queueClientAdapter, Mockito.never()).deleteMessage(Mockito.eq(pooledQueueUrl), Mockito.anyString());
+        Mockito.verify(queueClientAdapter, Mockito.times(1)).changeMessageVisibility(pooledQueueUrl, "STALE_00000001", 0);
+    }
+
+    @Test
+    public void testReleasedQueueOffersItsLease() throws Exception {
+        String queueUrl = "https://queue.com/TEST_RQ_TEMP_leased";
+        Mockito.when(queueClientAdapter.listQueues(Mockito.anyString())).thenReturn(List.of(queueUrl));
+        Mockito.when(queueClientAdapter.getQueueTags(queueUrl)).thenReturn(Map.of("LeaseOwner", "owner", "LeaseHeartbeat", "0"));
+
+        responseQueuePool.release(queueUrl);
+
+        // the queue goes back to the pool with the single token that leases it
+        Mockito.verify(queueClientAdapter, Mockito.times(1)).tagQueue(Mockito.eq(queueUrl),
+            Mockito.argThat((ArgumentMatcher<Map<String, String>>) matcher -> "none".equals(matcher.get("LeaseOwner"))));
+        Mockito.verify(queueClientAdapter, Mockito.times(1)).sendMessageWithAttributes(queueUrl, "LeaseToken", Map.of("LeaseToken", "true"));
+    }
+}